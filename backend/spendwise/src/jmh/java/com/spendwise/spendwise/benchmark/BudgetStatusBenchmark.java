@@ -0,0 +1,91 @@
+package com.spendwise.spendwise.benchmark;
+
+import com.spendwise.spendwise.dto.BudgetStatus;
+import com.spendwise.spendwise.dto.BudgetView;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.service.BudgetStatusCalculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Java-side cost of GET /api/budgets/status: crediting the grouped daily sums
+ * to each budget and the cents math in BudgetStatus. The repository is
+ * stubbed with the rows the grouped query would return.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BudgetStatusBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"12", "48"})
+    public int budgetCount;
+
+    private User user;
+    private List<BudgetView> budgets;
+    private long[] spent;
+    private BudgetStatusCalculator calculator;
+
+    @Setup
+    public void setUp() {
+        List<Expense> expenses = ExpenseDatasets.expenses(size);
+        user = expenses.get(0).getUser();
+
+        budgets = new ArrayList<>();
+        for (int i = 0; i < budgetCount; i++) {
+            // Monthly budgets across 2023, cycling through the categories plus one overall budget per month
+            LocalDate start = LocalDate.of(2023, i % 12 + 1, 1);
+            Category category = i < 12 ? null : ExpenseDatasets.category(user, i % ExpenseDatasets.CATEGORIES.length);
+            budgets.add(new BudgetView((long) i, category == null ? null : category.getId(),
+                    category == null ? null : category.getName(), Money.ofCents((500 + i * 25L) * 100), "monthly",
+                    start, start.withDayOfMonth(start.lengthOfMonth())));
+        }
+
+        ExpenseRepository repository = mock(ExpenseRepository.class);
+        List<Object[]> rows = ExpenseDatasets.dailyCategorySums(expenses, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31));
+        when(repository.sumByCategoryAndDate(any(), any(), any())).thenReturn(rows);
+        calculator = new BudgetStatusCalculator(repository, ExpenseDatasets.emptyArchive());
+        spent = calculator.calculateSpent(user, budgets);
+    }
+
+    @Benchmark
+    public long[] calculateSpent() {
+        return calculator.calculateSpent(user, budgets);
+    }
+
+    @Benchmark
+    public List<BudgetStatus> budgetStatusMath() {
+        List<BudgetStatus> statuses = new ArrayList<>(budgets.size());
+        for (int i = 0; i < budgets.size(); i++) {
+            statuses.add(new BudgetStatus(budgets.get(i), spent[i], spent[i]));
+        }
+        return statuses;
+    }
+}
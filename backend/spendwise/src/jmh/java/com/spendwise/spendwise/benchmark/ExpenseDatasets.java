@@ -0,0 +1,143 @@
+package com.spendwise.spendwise.benchmark;
+
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.ExpenseRollup;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.service.ExpenseArchiveService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Deterministic synthetic expense histories shared by the benchmarks.
+ */
+final class ExpenseDatasets {
+
+    static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+    static final int DAYS = 5 * 365;
+    static final String[] CATEGORIES = {
+            "food", "transport", "rent", "utilities", "health", "education",
+            "entertainment", "shopping", "travel", "gifts", "insurance", "other"
+    };
+    static final String[] TITLE_WORDS = {
+            "coffee", "lunch", "dinner", "groceries", "market", "bakery", "pizza", "sushi",
+            "bus", "train", "taxi", "fuel", "parking", "rent", "electricity", "water",
+            "internet", "phone", "pharmacy", "doctor", "dentist", "gym", "books", "course",
+            "cinema", "concert", "netflix", "spotify", "shoes", "jacket", "laptop", "charger",
+            "hotel", "flight", "museum", "birthday", "wedding", "insurance", "repair", "cleaning"
+    };
+
+    private ExpenseDatasets() {}
+
+    // An archive with nothing in it: walks hand on the table's rows alone and reads run once
+    @SuppressWarnings("unchecked")
+    static ExpenseArchiveService emptyArchive() {
+        ExpenseArchiveService archive = mock(ExpenseArchiveService.class);
+        doAnswer(invocation -> {
+            Stream<Object> hot = invocation.getArgument(1);
+            hot.forEach(invocation.<Consumer<Object>>getArgument(4));
+            return null;
+        }).when(archive).forEachInOrder(any(), any(), any(), any(), any(), any());
+        when(archive.readConsistently(any(), any())).thenAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(1)).get());
+        return archive;
+    }
+
+    // Category ids are the position in CATEGORIES plus one
+    static Category category(User user, int index) {
+        return new Category(index + 1, user, CATEGORIES[index]);
+    }
+
+    static List<Expense> expenses(int size) {
+        Random random = new Random(42);
+        Random titles = new Random(7);
+        User user = new User("bench", "bench@example.com", "unused");
+        Category[] categories = new Category[CATEGORIES.length];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = category(user, i);
+        }
+        List<Expense> expenses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            expenses.add(new Expense(title(titles),
+                    Money.ofCents(random.nextInt(50_001)),
+                    categories[random.nextInt(categories.length)],
+                    FIRST_DAY.plusDays(random.nextInt(DAYS)),
+                    user));
+        }
+        return expenses;
+    }
+
+    // Two or three title words, e.g. "coffee market"
+    private static String title(Random random) {
+        StringBuilder title = new StringBuilder(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        int words = 2 + random.nextInt(2);
+        for (int i = 1; i < words; i++) {
+            title.append(' ').append(TITLE_WORDS[random.nextInt(TITLE_WORDS.length)]);
+        }
+        return title.toString();
+    }
+
+    // What expense_rollups holds for the same history
+    static List<ExpenseRollup> rollups(List<Expense> expenses) {
+        Map<String, ExpenseRollup> buckets = new HashMap<>();
+        for (Expense expense : expenses) {
+            LocalDate date = expense.getDate();
+            String key = date.getYear() + "-" + date.getMonthValue() + "/" + expense.getCategory().getId();
+            ExpenseRollup rollup = buckets.computeIfAbsent(key, k -> new ExpenseRollup(expense.getUser(),
+                    date.getYear(), date.getMonthValue(), expense.getCategory(), 0, 0));
+            rollup.setTotalCents(rollup.getTotalCents() + expense.getAmount().cents());
+            rollup.setExpenseCount(rollup.getExpenseCount() + 1);
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    // Rows as returned by ExpenseRepository.streamColumnsByUser: [id, date, cents, category id] by date, ids by position
+    static List<Object[]> columnRows(List<Expense> expenses) {
+        List<Object[]> rows = new ArrayList<>(expenses.size());
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            rows.add(new Object[]{(long) i, expense.getDate(), expense.getAmount().cents(), expense.getCategory().getId()});
+        }
+        rows.sort(Comparator.comparing((Object[] row) -> (LocalDate) row[1]).thenComparing(row -> (Long) row[0]));
+        return rows;
+    }
+
+    // Rows as returned by ExpenseRepository.streamTitlesByUser: [id, date, category id, title] by date, ids by position
+    static List<Object[]> titleRows(List<Expense> expenses) {
+        List<Object[]> rows = new ArrayList<>(expenses.size());
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            rows.add(new Object[]{(long) i, expense.getDate(), expense.getCategory().getId(), expense.getTitle()});
+        }
+        rows.sort(Comparator.comparing((Object[] row) -> (LocalDate) row[1]).thenComparing(row -> (Long) row[0]));
+        return rows;
+    }
+
+    // Rows as returned by ExpenseRepository.sumByCategoryAndDate: [category id, date, sum]
+    static List<Object[]> dailyCategorySums(List<Expense> expenses, LocalDate start, LocalDate end) {
+        Map<String, Object[]> rows = new HashMap<>();
+        for (Expense expense : expenses) {
+            if (expense.getDate().isBefore(start) || expense.getDate().isAfter(end)) {
+                continue;
+            }
+            Object[] row = rows.computeIfAbsent(expense.getCategory().getId() + "/" + expense.getDate(),
+                    k -> new Object[]{expense.getCategory().getId(), expense.getDate(), 0L});
+            row[2] = (Long) row[2] + expense.getAmount().cents();
+        }
+        return new ArrayList<>(rows.values());
+    }
+}
@@ -0,0 +1,154 @@
+package com.spendwise.spendwise.benchmark;
+
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.ExpenseRollup;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.CategoryRepository;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.service.CategoryDictionary;
+import com.spendwise.spendwise.service.ExpenseAnalyticsEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * In-memory cost of the report endpoints once rows have been loaded.
+ * The *Streams benchmarks reproduce the original controller code, which
+ * aggregated the full entity list on every request; the *Rollups benchmarks
+ * aggregate the expense_rollups rows the endpoints read by default and the
+ * *Columnar benchmarks query ExpenseAnalyticsEngine with the history loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ReportBenchmark {
+
+    private static final int YEAR = 2023;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    private List<Expense> expenses;
+    private List<ExpenseRollup> rollups;
+    private List<ExpenseRollup> yearRollups;
+    private ExpenseAnalyticsEngine engine;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        expenses = ExpenseDatasets.expenses(size);
+        rollups = ExpenseDatasets.rollups(expenses);
+        yearRollups = rollups.stream().filter(r -> r.getYear() == YEAR).toList();
+
+        // The engine keys histories by user id, which an unsaved User lacks
+        user = new User("bench", "bench@example.com", "unused") {
+            @Override
+            public Long getId() {
+                return 1L;
+            }
+        };
+        ExpenseRepository repository = mock(ExpenseRepository.class);
+        List<Object[]> rows = ExpenseDatasets.columnRows(expenses);
+        when(repository.streamColumnsByUser(any())).thenAnswer(invocation -> rows.stream());
+        CategoryDictionary dictionary = new CategoryDictionary(mock(CategoryRepository.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry()) {
+            @Override
+            public String name(User user, int id) {
+                return ExpenseDatasets.CATEGORIES[id - 1];
+            }
+        };
+        engine = new ExpenseAnalyticsEngine(repository, ExpenseDatasets.emptyArchive(), dictionary,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), true, Long.MAX_VALUE, Duration.ofHours(1), 250_000);
+        engine.monthlyTotals(user, YEAR);
+    }
+
+    @Benchmark
+    public Map<Integer, Long> yearlyReportStreams() {
+        LocalDate start = LocalDate.of(YEAR, 1, 1);
+        LocalDate end = LocalDate.of(YEAR, 12, 31);
+
+        List<Expense> yearExpenses = expenses.stream()
+                .filter(e -> !e.getDate().isBefore(start) && !e.getDate().isAfter(end))
+                .toList();
+
+        Map<Integer, Long> monthlyTotals = new HashMap<>();
+        for (int m = 1; m <= 12; m++) {
+            LocalDate monthStart = LocalDate.of(YEAR, m, 1);
+            LocalDate monthEnd = monthStart.withDayOfMonth(monthStart.lengthOfMonth());
+            long monthTotal = yearExpenses.stream()
+                    .filter(e -> !e.getDate().isBefore(monthStart) && !e.getDate().isAfter(monthEnd))
+                    .mapToLong(e -> e.getAmount().cents()).sum();
+            monthlyTotals.put(m, monthTotal);
+        }
+        return monthlyTotals;
+    }
+
+    // Same result as yearlyReportStreams in one pass, for comparison
+    @Benchmark
+    public long[] yearlyReportSinglePass() {
+        long[] monthlyTotals = new long[13];
+        for (Expense expense : expenses) {
+            LocalDate date = expense.getDate();
+            if (date.getYear() == YEAR) {
+                monthlyTotals[date.getMonthValue()] += expense.getAmount().cents();
+            }
+        }
+        return monthlyTotals;
+    }
+
+    @Benchmark
+    public long[] yearlyReportRollups() {
+        long[] monthlyTotals = new long[13];
+        for (ExpenseRollup rollup : yearRollups) {
+            monthlyTotals[rollup.getMonth()] += rollup.getTotalCents();
+        }
+        return monthlyTotals;
+    }
+
+    @Benchmark
+    public Map<String, Long> categorySummaryStreams() {
+        return expenses.stream()
+                .collect(Collectors.groupingBy(Expense::getCategoryName, Collectors.summingLong(e -> e.getAmount().cents())));
+    }
+
+    @Benchmark
+    public Map<String, Long> categorySummaryRollups() {
+        return rollups.stream()
+                .collect(Collectors.groupingBy(r -> r.getCategory().getName(), Collectors.summingLong(ExpenseRollup::getTotalCents)));
+    }
+
+    @Benchmark
+    public long[] yearlyReportColumnar() {
+        return engine.monthlyTotals(user, YEAR);
+    }
+
+    @Benchmark
+    public ExpenseAnalyticsEngine.Totals categorySummaryColumnar() {
+        return engine.totals(user, null, null);
+    }
+}
@@ -0,0 +1,104 @@
+package com.spendwise.spendwise.benchmark;
+
+import com.spendwise.spendwise.dto.ExpenseView;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.service.ExpenseSearchService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cost of answering a title search. The *Scan benchmark reproduces filtering
+ * the full expense list, as the expenses page does client-side; the others
+ * query ExpenseSearchService with the index loaded. Loading the matched rows
+ * by id, from the table or the archive, is stubbed out, so they measure the
+ * index alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SearchBenchmark {
+
+    private static final int LIMIT = 50;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private List<Expense> expenses;
+    private ExpenseSearchService searchService;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        expenses = ExpenseDatasets.expenses(size);
+
+        // The index is keyed by user id, which an unsaved User lacks
+        user = new User("bench", "bench@example.com", "unused") {
+            @Override
+            public Long getId() {
+                return 1L;
+            }
+        };
+        ExpenseRepository repository = mock(ExpenseRepository.class);
+        List<Object[]> rows = ExpenseDatasets.titleRows(expenses);
+        when(repository.streamTitlesByUser(any())).thenAnswer(invocation -> rows.stream());
+        searchService = new ExpenseSearchService(repository, ExpenseDatasets.emptyArchive(), mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), Long.MAX_VALUE, Duration.ofHours(1));
+        searchService.suggest(user, "c", LIMIT);
+    }
+
+    @Benchmark
+    public List<Expense> wordScan() {
+        return expenses.stream()
+                .filter(e -> e.getTitle().toLowerCase(Locale.ROOT).contains("coffee"))
+                .sorted(Comparator.comparing(Expense::getDate).reversed())
+                .limit(LIMIT)
+                .toList();
+    }
+
+    @Benchmark
+    public List<ExpenseView> word() {
+        return searchService.search(user, "coffee ", null, null, null, LIMIT);
+    }
+
+    @Benchmark
+    public List<ExpenseView> typedPrefix() {
+        return searchService.search(user, "coffee gro", null, null, null, LIMIT);
+    }
+
+    @Benchmark
+    public List<ExpenseView> wordInCategoryAndYear() {
+        return searchService.search(user, "taxi ", 2, LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31), LIMIT);
+    }
+
+    @Benchmark
+    public List<String> suggest() {
+        return searchService.suggest(user, "c", 10);
+    }
+}
@@ -0,0 +1,99 @@
+package com.spendwise.spendwise.benchmark;
+
+import com.spendwise.spendwise.sharding.ShardContext;
+import com.spendwise.spendwise.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Expense insert throughput from many writers against 1, 2 and 4 file-backed
+ * H2 databases behind a ShardRoutingDataSource, each insert committed on its
+ * own and routed by the user's home shard as the application does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+public class ShardedWriteBenchmark {
+
+    private static final int USERS = 1000;
+
+    @Param({"1", "2", "4"})
+    public int shards;
+
+    private Path directory;
+    private ShardRoutingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transaction;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("spendwise-shards");
+        List<DataSource> pools = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            HikariDataSource pool = new HikariDataSource();
+            pool.setJdbcUrl("jdbc:h2:file:" + directory.resolve("shard" + shard).toAbsolutePath());
+            pool.setUsername("sa");
+            pool.setMaximumPoolSize(10);
+            pools.add(pool);
+        }
+        dataSource = new ShardRoutingDataSource(pools);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        for (int shard = 0; shard < shards; shard++) {
+            ShardContext.run(shard, () -> jdbcTemplate.execute("CREATE TABLE expenses ("
+                    + "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, user_id BIGINT NOT NULL,"
+                    + " title VARCHAR(255) NOT NULL, amount_cents BIGINT NOT NULL, date DATE NOT NULL)"));
+            ShardContext.run(shard, () -> jdbcTemplate.execute("CREATE INDEX idx_expenses_user ON expenses (user_id)"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        dataSource.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int insertExpense() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long userId = random.nextLong(1, USERS + 1);
+        int shard = Math.floorMod(Long.hashCode(userId), shards);
+        return ShardContext.call(shard, () -> transaction.execute(status -> jdbcTemplate.update(
+                "INSERT INTO expenses (user_id, title, amount_cents, date) VALUES (?, ?, ?, ?)",
+                userId, "Coffee", random.nextLong(100, 10_000), LocalDate.now())));
+    }
+}
@@ -0,0 +1,29 @@
+package com.spendwise.spendwise.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches are Caffeine-backed and sized through spring.cache.* properties.
+ * Hit, miss and eviction counts are published as cache.* metrics. Caches
+ * that services build themselves go through monitor, so their meters carry
+ * the same tags as the managed ones; Prometheus rejects a second tag set
+ * under one meter name.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String USER_IDENTITIES = "userIdentities";
+
+    // Not managed by any CacheManager, tagged as Spring tags the caches of its cacheManager bean
+    public static final String UNMANAGED = "none";
+
+    public static void monitor(MeterRegistry meterRegistry, Cache<?, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name, Tags.of("cache.manager", UNMANAGED, "name", name));
+    }
+}
@@ -0,0 +1,69 @@
+package com.spendwise.spendwise.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves free-text category columns into the per-user categories table.
+ * Every distinct (user, name) used by an expense or budget becomes a
+ * category, expenses.category and budgets.category are replaced by a
+ * category_id foreign key, and expense_rollups keyed by name is dropped to
+ * be backfilled by ExpenseRollupService. Ordered before the
+ * EntityManagerFactory by SchemaMigrations.
+ */
+@Component
+public class CategoryTableMigration implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryTableMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CategoryTableMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        boolean expenses = hasColumn("expenses", "category") && !hasColumn("expenses", "category_id");
+        boolean budgets = hasColumn("budgets", "category") && !hasColumn("budgets", "category_id");
+        if (expenses || budgets) {
+            // Same shape ddl-auto would create for the Category entity
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS categories ("
+                    + "id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "name VARCHAR(255) NOT NULL, "
+                    + "user_id BIGINT NOT NULL REFERENCES users (id), "
+                    + "CONSTRAINT uk_categories_user_name UNIQUE (user_id, name))");
+        }
+        if (expenses) {
+            convert("expenses", true);
+        }
+        if (budgets) {
+            convert("budgets", false);
+        }
+        if (hasColumn("expense_rollups", "category")) {
+            jdbcTemplate.execute("DROP TABLE expense_rollups");
+            log.info("Dropped expense_rollups keyed by category name; it will be backfilled by category id");
+        }
+    }
+
+    private void convert(String table, boolean required) {
+        int created = jdbcTemplate.update("INSERT INTO categories (user_id, name) "
+                + "SELECT DISTINCT t.user_id, t.category FROM " + table + " t WHERE t.category IS NOT NULL "
+                + "AND NOT EXISTS (SELECT 1 FROM categories c WHERE c.user_id = t.user_id AND c.name = t.category)");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN category_id INTEGER REFERENCES categories (id)");
+        int rows = jdbcTemplate.update("UPDATE " + table + " t SET category_id = "
+                + "(SELECT c.id FROM categories c WHERE c.user_id = t.user_id AND c.name = t.category)");
+        if (required) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN category_id SET NOT NULL");
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN category");
+        log.info("Moved {} {}.category values to category ids ({} new categories)", rows, table, created);
+    }
+
+    private boolean hasColumn(String table, String column) {
+        return SchemaMigrations.hasColumn(jdbcTemplate, table, column);
+    }
+}
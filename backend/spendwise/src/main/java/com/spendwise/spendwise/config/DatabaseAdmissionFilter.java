@@ -0,0 +1,70 @@
+package com.spendwise.spendwise.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * With virtual threads Tomcat no longer limits concurrency through its thread
+ * pool, so thousands of requests could queue on the Hikari pool at once. This
+ * filter admits at most spendwise.db.max-concurrent-requests API requests at a
+ * time; the rest wait up to spendwise.db.admission-timeout and then get 503.
+ * Platform-thread mode does not need it and leaves it out.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class DatabaseAdmissionFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long timeoutNanos;
+
+    public DatabaseAdmissionFilter(@Value("${spendwise.db.max-concurrent-requests:20}") int maxConcurrentRequests,
+                                   @Value("${spendwise.db.admission-timeout:2s}") Duration timeout,
+                                   MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrentRequests, true);
+        this.timeoutNanos = timeout.toNanos();
+        Gauge.builder("spendwise.db.admission.waiting", permits, Semaphore::getQueueLength)
+                .description("API requests waiting for a database admission permit")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Database is at capacity");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.spendwise.spendwise.config;
+
+import org.hibernate.cfg.JdbcSettings;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hooks Hibernate into the metrics. Session factory statistics are published
+ * as hibernate.* meters (hibernate.generate_statistics), Hikari pool wait time
+ * as hikaricp.connections.acquire and request latency as http.server.requests.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return properties -> properties.put(JdbcSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+}
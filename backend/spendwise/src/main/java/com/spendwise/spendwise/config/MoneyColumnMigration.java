@@ -0,0 +1,55 @@
+package com.spendwise.spendwise.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts money columns written before amounts were stored as cents.
+ * expenses.amount (DOUBLE) and budgets.amount (DECIMAL) become BIGINT
+ * amount_cents columns; expense_rollups with a double total is dropped so
+ * that ddl-auto recreates it and ExpenseRollupService backfills it from the
+ * converted expenses. Ordered before the EntityManagerFactory by
+ * SchemaMigrations.
+ */
+@Component
+public class MoneyColumnMigration implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(MoneyColumnMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MoneyColumnMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        convertToCents("expenses", "amount");
+        convertToCents("budgets", "amount");
+        if (hasColumn("expense_rollups", "total")) {
+            jdbcTemplate.execute("DROP TABLE expense_rollups");
+            log.info("Dropped expense_rollups with double totals; it will be backfilled in cents");
+        }
+    }
+
+    private void convertToCents(String table, String column) {
+        String centsColumn = column + "_cents";
+        if (!hasColumn(table, column) || hasColumn(table, centsColumn)) {
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN " + centsColumn + " BIGINT");
+        // ROUND absorbs binary fractions such as 0.1 * 100 = 10.000000000000002
+        int rows = jdbcTemplate.update("UPDATE " + table + " SET " + centsColumn
+                + " = CAST(ROUND(" + column + " * 100) AS BIGINT)");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN " + centsColumn + " SET NOT NULL");
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP COLUMN " + column);
+        log.info("Converted {} {}.{} values to {}", rows, table, column, centsColumn);
+    }
+
+    private boolean hasColumn(String table, String column) {
+        return SchemaMigrations.hasColumn(jdbcTemplate, table, column);
+    }
+}
@@ -0,0 +1,32 @@
+package com.spendwise.spendwise.config;
+
+import org.springframework.boot.jpa.autoconfigure.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shared pieces of the one-off schema migrations. Each migration converts a
+ * legacy layout in place and runs before the EntityManagerFactory, so
+ * ddl-auto only ever sees the current schema.
+ */
+final class SchemaMigrations {
+
+    private SchemaMigrations() {}
+
+    static boolean hasColumn(JdbcTemplate jdbcTemplate, String table, String column) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = 'PUBLIC'"
+                        + " AND UPPER(TABLE_NAME) = UPPER(?) AND UPPER(COLUMN_NAME) = UPPER(?)",
+                Integer.class, table, column);
+        return count != null && count > 0;
+    }
+
+    // Makes the EntityManagerFactory, and with it ddl-auto, wait for every migration
+    @Component
+    static class EntityManagerFactoryDependsOnMigrations extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnMigrations() {
+            super(MoneyColumnMigration.class, CategoryTableMigration.class);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.spendwise.spendwise.config;
+
+import com.spendwise.spendwise.sharding.ShardDirectory;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves id sequences past rows that were inserted while the table still used
+ * IDENTITY columns. Runs once the schema is in place and before the web
+ * server accepts requests.
+ */
+@Component
+public class SequenceAlignment implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SequenceAlignment.class);
+
+    // Must match the allocationSize of the entity's @SequenceGenerator
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Depending on the EntityManagerFactory guarantees ddl-auto has created the sequences
+    public SequenceAlignment(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        align("expenses", "expenses_seq");
+    }
+
+    private void align(String table, String sequence) {
+        // With sharding, ids above the range of this shard's sequence came from other shards' sequences
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table + " WHERE id < ?",
+                Long.class, ShardDirectory.SEQUENCE_RANGE);
+        List<Long> baseValue = jdbcTemplate.queryForList(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = UPPER(?)",
+                Long.class, sequence);
+        if (baseValue.isEmpty() || maxId == null) {
+            return;
+        }
+
+        // The pooled optimizer hands out (value - allocationSize, value], so the next value must clear maxId by a full block
+        long required = maxId + ALLOCATION_SIZE + 1;
+        if (baseValue.get(0) < required) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + required);
+            log.info("Restarted {} at {} to clear existing {} ids", sequence, required, table);
+        }
+    }
+}
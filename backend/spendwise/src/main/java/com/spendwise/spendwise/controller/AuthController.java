@@ -2,13 +2,25 @@ package com.spendwise.spendwise.controller;
 
 import com.spendwise.spendwise.entity.User;
 import com.spendwise.spendwise.repository.UserRepository;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import com.spendwise.spendwise.dto.LoginRequest;
 import com.spendwise.spendwise.dto.RegistrationRequest;
 import com.spendwise.spendwise.dto.AuthResponse;
+import com.spendwise.spendwise.security.HashingCapacityExceededException;
+import com.spendwise.spendwise.security.PasswordHashingService;
+import com.spendwise.spendwise.security.TokenService;
+import com.spendwise.spendwise.service.UserIdentityCache;
+import com.spendwise.spendwise.service.UserRegistrationService;
+import com.spendwise.spendwise.sharding.ShardContext;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 @RestController
 @RequestMapping("/api/auth")
 @CrossOrigin
@@ -16,27 +28,46 @@ public class AuthController {
 
     private final UserRepository userRepository;
 
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+
+    private final UserIdentityCache userIdentityCache;
+
+    private final TokenService tokenService;
+
+    private final UserRegistrationService userRegistrationService;
+
+    private final AsyncTaskExecutor requestExecutor;
 
     public AuthController(UserRepository userRepository,
-                      PasswordEncoder passwordEncoder) {
+                      PasswordHashingService passwordHashingService,
+                      UserIdentityCache userIdentityCache,
+                      TokenService tokenService,
+                      UserRegistrationService userRegistrationService,
+                      @Qualifier("applicationTaskExecutor") AsyncTaskExecutor requestExecutor) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.userIdentityCache = userIdentityCache;
+        this.tokenService = tokenService;
+        this.userRegistrationService = userRegistrationService;
+        this.requestExecutor = requestExecutor;
     }
 
 
+    // BCrypt runs on the hashing pool; the request thread is released while it works. The
+    // database writes go back to the executor Spring MVC uses for async requests, so hashing
+    // threads never wait on a connection.
     @PostMapping("/register")
-    public AuthResponse register(@RequestBody RegistrationRequest request) {
+    public CompletableFuture<AuthResponse> register(@RequestBody RegistrationRequest request) {
 
-        if (userRepository.findByEmail(request.getEmail()).isPresent()) {
-            return new AuthResponse("User already exists", false);
+        if (userIdentityCache.find(request.getEmail()) != null) {
+            return CompletableFuture.completedFuture(new AuthResponse("User already exists", false));
         }
 
-        // Create user with email as name if name not provided
-        User user = new User(request.getEmail().split("@")[0], request.getEmail(), request.getPassword());
-        user.setPassword(passwordEncoder.encode(request.getPassword()));
-        userRepository.save(user);
-        return new AuthResponse("User registered successfully", true);
+        return passwordHashingService.encode(request.getPassword()).thenApplyAsync(encodedPassword -> {
+            User user = ShardContext.call(0, () -> userRegistrationService.register(request.getEmail(), encodedPassword));
+            userIdentityCache.evict(user.getEmail());
+            return new AuthResponse("User registered successfully", true);
+        }, requestExecutor);
     }
 
    /* @PostMapping("/login")
@@ -49,20 +80,37 @@ public class AuthController {
     }*/
 
     @PostMapping("/login")
-    public AuthResponse login(@RequestBody LoginRequest request) {
+    public CompletableFuture<AuthResponse> login(@RequestBody LoginRequest request) {
 
         Optional<User> userOptional = userRepository.findByEmail(request.getEmail());
 
         if (userOptional.isEmpty()) {
-            return new AuthResponse("User not found", false);
+            return CompletableFuture.completedFuture(new AuthResponse("User not found", false));
         }
 
         User user = userOptional.get();
 
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-            return new AuthResponse("Invalid password", false);
-        }
-        return new AuthResponse("Login successful", true);
+        return passwordHashingService.matches(request.getPassword(), user.getPassword()).thenApply(matches -> {
+            if (!matches) {
+                return new AuthResponse("Invalid password", false);
+            }
+            // The token is what authenticates later requests, so BCrypt only runs here
+            TokenService.IssuedToken token = tokenService.issue(user.getId(), user.getEmail());
+            return new AuthResponse("Login successful", true, token.token(), token.expiresAt());
+        });
+    }
+
+    // Two registrations for the same email raced past the existence check
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<AuthResponse> userAlreadyExists(DataIntegrityViolationException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new AuthResponse("User already exists", false));
+    }
+
+    @ExceptionHandler(HashingCapacityExceededException.class)
+    public ResponseEntity<AuthResponse> hashingCapacityExceeded(HashingCapacityExceededException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new AuthResponse(e.getMessage(), false));
     }
 
 }
@@ -1,13 +1,29 @@
 package com.spendwise.spendwise.controller;
 
+import com.spendwise.spendwise.dto.BudgetStatus;
+import com.spendwise.spendwise.dto.BudgetView;
 import com.spendwise.spendwise.entity.Budget;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.Money;
 import com.spendwise.spendwise.entity.User;
 import com.spendwise.spendwise.repository.BudgetRepository;
-import com.spendwise.spendwise.repository.ExpenseRepository;
-import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.security.TokenAuthenticationFilter;
+import com.spendwise.spendwise.security.TokenService;
+import com.spendwise.spendwise.service.BudgetStatusBroadcaster;
+import com.spendwise.spendwise.service.BudgetStatusService;
+import com.spendwise.spendwise.service.CategoryDictionary;
+import com.spendwise.spendwise.service.UserDataVersions;
+import com.spendwise.spendwise.service.UserResolver;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.security.Principal;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -18,23 +34,42 @@ import java.util.Optional;
 public class BudgetController {
 
     private final BudgetRepository budgetRepository;
-    private final UserRepository userRepository;
-    private final ExpenseRepository expenseRepository;
+    private final UserResolver userResolver;
+    private final BudgetStatusService budgetStatusService;
+    private final BudgetStatusBroadcaster budgetStatusBroadcaster;
+    private final CategoryDictionary categoryDictionary;
+    private final UserDataVersions dataVersions;
+    private final TokenService tokenService;
+    private final Duration streamTokenTtl;
 
-    public BudgetController(BudgetRepository budgetRepository, UserRepository userRepository, ExpenseRepository expenseRepository) {
+    public BudgetController(BudgetRepository budgetRepository, UserResolver userResolver,
+                            BudgetStatusService budgetStatusService, BudgetStatusBroadcaster budgetStatusBroadcaster,
+                            CategoryDictionary categoryDictionary, UserDataVersions dataVersions,
+                            TokenService tokenService,
+                            @Value("${spendwise.budget-stream.token-ttl:1m}") Duration streamTokenTtl) {
         this.budgetRepository = budgetRepository;
-        this.userRepository = userRepository;
-        this.expenseRepository = expenseRepository;
+        this.userResolver = userResolver;
+        this.budgetStatusService = budgetStatusService;
+        this.budgetStatusBroadcaster = budgetStatusBroadcaster;
+        this.categoryDictionary = categoryDictionary;
+        this.dataVersions = dataVersions;
+        this.tokenService = tokenService;
+        this.streamTokenTtl = streamTokenTtl;
     }
 
     // Get all budgets for a user
     @GetMapping
-    public List<Budget> getBudgets(@RequestParam String email) {
-        Optional<User> userOptional = userRepository.findByEmail(email);
+    public List<BudgetView> getBudgets(@RequestParam String email, ServletWebRequest request) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
         if (userOptional.isEmpty()) {
             return List.of();
         }
-        return budgetRepository.findByUser(userOptional.get());
+
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId()))) {
+            return null;
+        }
+
+        return budgetRepository.findViewsByUser(userOptional.get());
     }
 
     // Create a new budget
@@ -45,71 +80,99 @@ public class BudgetController {
                                @RequestParam String period,
                                @RequestParam LocalDate startDate,
                                @RequestParam LocalDate endDate) {
-        Optional<User> userOptional = userRepository.findByEmail(email);
+        Optional<User> userOptional = userResolver.findByEmail(email);
         if (userOptional.isEmpty()) {
             throw new RuntimeException("User not found");
         }
 
-        Budget budget = new Budget(userOptional.get(), category, amount, period, startDate, endDate);
-        return budgetRepository.save(budget);
+        User user = userOptional.get();
+        Category budgetCategory = category == null || category.isBlank() ? null : categoryDictionary.resolve(user, category.trim());
+        Budget budget = budgetRepository.save(new Budget(user, budgetCategory, Money.of(amount), period, startDate, endDate));
+        dataVersions.bump(user.getId());
+        budgetStatusBroadcaster.budgetChanged(user.getId(), budget.getId());
+        return budget;
     }
 
-    // Update a budget
+    // Update a budget; another user's budget is reported as not found
     @PutMapping("/{id}")
     public Budget updateBudget(@PathVariable Long id,
                                @RequestParam BigDecimal amount,
                                @RequestParam LocalDate startDate,
-                               @RequestParam LocalDate endDate) {
-        Optional<Budget> budgetOptional = budgetRepository.findById(id);
+                               @RequestParam LocalDate endDate,
+                               Principal principal) {
+        Optional<Budget> budgetOptional = findOwnBudget(id, principal);
         if (budgetOptional.isEmpty()) {
-            throw new RuntimeException("Budget not found");
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Budget not found");
         }
 
         Budget budget = budgetOptional.get();
-        budget.setAmount(amount);
+        budget.setAmount(Money.of(amount));
         budget.setStartDate(startDate);
         budget.setEndDate(endDate);
-        return budgetRepository.save(budget);
+        Budget savedBudget = budgetRepository.save(budget);
+        dataVersions.bump(savedBudget.getUser().getId());
+        budgetStatusBroadcaster.budgetChanged(savedBudget.getUser().getId(), savedBudget.getId());
+        return savedBudget;
     }
 
-    // Delete a budget
+    // Delete a budget; ids of other users' budgets are ignored
     @DeleteMapping("/{id}")
-    public void deleteBudget(@PathVariable Long id) {
-        budgetRepository.deleteById(id);
+    public void deleteBudget(@PathVariable Long id, Principal principal) {
+        findOwnBudget(id, principal).ifPresent(budget -> {
+            budgetRepository.delete(budget);
+            dataVersions.bump(budget.getUser().getId());
+            budgetStatusBroadcaster.budgetRemoved(budget.getUser().getId(), budget.getId());
+        });
     }
 
     // Get budget status (spent vs budget)
     @GetMapping("/status")
-    public List<BudgetStatus> getBudgetStatus(@RequestParam String email) {
-        Optional<User> userOptional = userRepository.findByEmail(email);
+    public List<BudgetStatus> getBudgetStatus(@RequestParam String email, ServletWebRequest request) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
         if (userOptional.isEmpty()) {
             return List.of();
         }
 
-        List<Budget> budgets = budgetRepository.findByUser(userOptional.get());
-        return budgets.stream().map(budget -> {
-            // Calculate spent amount for the budget period and category
-            BigDecimal spent = calculateSpent(userOptional.get(), budget.getCategory(), budget.getStartDate(), budget.getEndDate());
-            return new BudgetStatus(budget, spent);
-        }).toList();
+        // Projections move with the calendar, so the tag changes daily as well as on writes
+        LocalDate today = LocalDate.now();
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId(), today.toString()))) {
+            return null;
+        }
+
+        return budgetStatusService.statuses(userOptional.get(), today);
     }
 
-    private BigDecimal calculateSpent(User user, String category, LocalDate start, LocalDate end) {
-        BigDecimal spent = expenseRepository.sumAmountByUserAndCategoryAndDateRange(user, category, start, end);
-        return spent != null ? spent : BigDecimal.ZERO;
+    // Short-lived token for opening the status stream from a browser EventSource, passed as access_token
+    @PostMapping("/status/stream-token")
+    public TokenService.IssuedToken issueStreamToken(@RequestParam String email) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
+        if (userOptional.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
+        // The email is the session token's, TokenAuthenticationFilter has checked that
+        return tokenService.issueScoped(userOptional.get().getId(), email, TokenAuthenticationFilter.QUERY_TOKEN_SCOPE,
+                streamTokenTtl);
     }
 
-    public static class BudgetStatus {
-        public Budget budget;
-        public BigDecimal spent;
-        public BigDecimal remaining;
-        public double percentage;
-
-        public BudgetStatus(Budget budget, BigDecimal spent) {
-            this.budget = budget;
-            this.spent = spent;
-            this.remaining = budget.getAmount().subtract(spent);
-            this.percentage = spent.divide(budget.getAmount(), 2, RoundingMode.HALF_UP).doubleValue() * 100;
+    // Stream of budget-status events, starting with every budget, then each budget whose status changes;
+    // budget-removed events carry the id of a deleted budget
+    @GetMapping(value = "/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBudgetStatus(@RequestParam String email) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
+        if (userOptional.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
+
+        SseEmitter emitter = budgetStatusBroadcaster.subscribe(userOptional.get());
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many open budget status streams");
         }
+        return emitter;
+    }
+
+    // The authenticated principal is the email the token was issued to
+    private Optional<Budget> findOwnBudget(Long id, Principal principal) {
+        return budgetRepository.findById(id)
+                .filter(budget -> budget.getUser().getEmail().equalsIgnoreCase(principal.getName()));
     }
-}
\ No newline at end of file
+}
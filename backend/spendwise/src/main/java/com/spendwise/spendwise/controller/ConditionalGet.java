@@ -0,0 +1,22 @@
+package com.spendwise.spendwise.controller;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * ETag handling shared by the read endpoints.
+ */
+final class ConditionalGet {
+
+    // Browsers may keep the response but must revalidate it; this also keeps Spring Security's no-store default off
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    private ConditionalGet() {}
+
+    // Sets the ETag and answers 304 when If-None-Match matches; handlers then return null without reading data
+    static boolean notModified(ServletWebRequest request, String etag) {
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        return request.checkNotModified(etag);
+    }
+}
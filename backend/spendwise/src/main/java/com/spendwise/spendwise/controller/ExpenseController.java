@@ -1,16 +1,49 @@
 package com.spendwise.spendwise.controller;
 
 import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.ExpenseRollup;
+import com.spendwise.spendwise.entity.Money;
 import com.spendwise.spendwise.entity.User;
 import com.spendwise.spendwise.repository.ExpenseRepository;
-import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.repository.ExpenseRollupRepository;
+import com.spendwise.spendwise.repository.TimeBucket;
+import com.spendwise.spendwise.dto.ExpensePage;
 import com.spendwise.spendwise.dto.ExpenseResponse;
+import com.spendwise.spendwise.dto.ExpenseView;
+import com.spendwise.spendwise.dto.ImportResult;
+import com.spendwise.spendwise.dto.RollupVerification;
+import com.spendwise.spendwise.dto.TimeSeries;
+import com.spendwise.spendwise.service.CategoryDictionary;
+import com.spendwise.spendwise.service.ExpenseAnalyticsEngine;
+import com.spendwise.spendwise.service.ExpenseArchiveService;
+import com.spendwise.spendwise.service.ExpenseExportService;
+import com.spendwise.spendwise.service.ExpenseImportService;
+import com.spendwise.spendwise.service.ExpenseRollupService;
+import com.spendwise.spendwise.service.ExpenseSearchService;
+import com.spendwise.spendwise.service.ExpenseTimeSeriesService;
+import com.spendwise.spendwise.service.ExpenseWriteBatcher;
+import com.spendwise.spendwise.service.ExpenseWriteCapacityExceededException;
+import com.spendwise.spendwise.service.SpendingInsightsService;
+import com.spendwise.spendwise.service.UserDataVersions;
+import com.spendwise.spendwise.service.UserResolver;
+import com.spendwise.spendwise.sharding.ShardContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.util.Map;
-import java.util.stream.Collectors;
 import java.util.List;
 import java.util.Optional;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 import java.time.LocalDate;
 
 @RestController
@@ -18,159 +51,486 @@ import java.time.LocalDate;
 @CrossOrigin
 public class ExpenseController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final ExpenseRepository expenseRepository;
-    private final UserRepository userRepository;
+    private final UserResolver userResolver;
+    private final ExpenseRollupRepository rollupRepository;
+    private final ExpenseRollupService rollupService;
+    private final ExpenseWriteBatcher expenseWriteBatcher;
+    private final ExpenseExportService exportService;
+    private final ExpenseImportService importService;
+    private final ExpenseAnalyticsEngine analyticsEngine;
+    private final CategoryDictionary categoryDictionary;
+    private final ExpenseSearchService searchService;
+    private final UserDataVersions dataVersions;
+    private final ExpenseTimeSeriesService timeSeriesService;
+    private final SpendingInsightsService insightsService;
+    private final ExpenseArchiveService archiveService;
 
     public ExpenseController(ExpenseRepository expenseRepository,
-                             UserRepository userRepository) {
+                             UserResolver userResolver,
+                             ExpenseRollupRepository rollupRepository,
+                             ExpenseRollupService rollupService,
+                             ExpenseWriteBatcher expenseWriteBatcher,
+                             ExpenseExportService exportService,
+                             ExpenseImportService importService,
+                             ExpenseAnalyticsEngine analyticsEngine,
+                             CategoryDictionary categoryDictionary,
+                             ExpenseSearchService searchService,
+                             UserDataVersions dataVersions,
+                             ExpenseTimeSeriesService timeSeriesService,
+                             SpendingInsightsService insightsService,
+                             ExpenseArchiveService archiveService) {
         this.expenseRepository = expenseRepository;
-        this.userRepository = userRepository;
+        this.userResolver = userResolver;
+        this.rollupRepository = rollupRepository;
+        this.rollupService = rollupService;
+        this.expenseWriteBatcher = expenseWriteBatcher;
+        this.exportService = exportService;
+        this.importService = importService;
+        this.analyticsEngine = analyticsEngine;
+        this.categoryDictionary = categoryDictionary;
+        this.searchService = searchService;
+        this.dataVersions = dataVersions;
+        this.timeSeriesService = timeSeriesService;
+        this.insightsService = insightsService;
+        this.archiveService = archiveService;
     }
 
-    // Add expense
+    // Add expense; with write batching on, the request thread is released until the expense's batch commits
     @PostMapping
-    public ExpenseResponse addExpense(@RequestParam String email,
+    public CompletableFuture<ExpenseResponse> addExpense(@RequestParam String email,
                              @RequestBody Expense expense) {
 
-        Optional<User> userOptional = userRepository.findByEmail(email);
+        Optional<User> userOptional = userResolver.findByEmail(email);
+
+        if (userOptional.isEmpty()) {
+            return CompletableFuture.completedFuture(new ExpenseResponse("User not found", false));
+        }
+
+        return expenseWriteBatcher.add(userOptional.get(), expense).thenApply(savedExpense -> {
+            ExpenseResponse response = new ExpenseResponse("Expense added successfully", true, savedExpense);
+            response.setAnomaly(insightsService.score(userOptional.get(), savedExpense));
+            return response;
+        });
+    }
+
+    // Bulk import expenses from CSV (header: title,amount,category,date)
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ExpenseResponse importCsv(@RequestParam String email, InputStream body) throws IOException {
+        Optional<User> userOptional = userResolver.findByEmail(email);
 
         if (userOptional.isEmpty()) {
             return new ExpenseResponse("User not found", false);
         }
 
-        expense.setUser(userOptional.get());
-        Expense savedExpense = expenseRepository.save(expense);
+        try {
+            return importResponse(importService.importCsv(userOptional.get(), body));
+        } catch (IllegalArgumentException e) {
+            return new ExpenseResponse(e.getMessage(), false);
+        }
+    }
+
+    // Bulk import expenses from a JSON array of {title, amount, category, date}
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ExpenseResponse importJson(@RequestParam String email, InputStream body) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
+
+        if (userOptional.isEmpty()) {
+            return new ExpenseResponse("User not found", false);
+        }
 
-        return new ExpenseResponse("Expense added successfully", true, savedExpense);
+        try {
+            return importResponse(importService.importJson(userOptional.get(), body));
+        } catch (IllegalArgumentException | tools.jackson.core.JacksonException e) {
+            return new ExpenseResponse("Invalid import body: " + e.getMessage(), false);
+        }
+    }
+
+    private static ExpenseResponse importResponse(ImportResult result) {
+        String message = "Imported " + result.getImported() + " of " + result.getReceived() + " expenses";
+        return new ExpenseResponse(message, result.getImported() > 0 || result.getReceived() == 0, result);
     }
 
     // Get total expense for a user
     @GetMapping("/total")
-    public Double getTotalExpense(@RequestParam String email) {
+    public Money getTotalExpense(@RequestParam String email, ServletWebRequest request) {
 
-        Optional<User> userOptional = userRepository.findByEmail(email);
+        Optional<User> userOptional = userResolver.findByEmail(email);
 
         if (userOptional.isEmpty()) {
-            return 0.0;
+            return Money.ZERO;
         }
 
-        List<Expense> expenses = expenseRepository.findByUser(userOptional.get());
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId()))) {
+            return null;
+        }
 
-        return expenses.stream()
-                .mapToDouble(Expense::getAmount)
-                .sum();
+        return Money.ofCents(rollupRepository.findByUser(userOptional.get()).stream()
+                .mapToLong(ExpenseRollup::getTotalCents)
+                .sum());
     }
 
     // Get category-wise summary
     @GetMapping("/summary")
-    public Map<String, Double> getCategorySummary(@RequestParam String email) {
+    public Map<String, Money> getCategorySummary(@RequestParam String email, ServletWebRequest request) {
 
-        Optional<User> userOptional = userRepository.findByEmail(email);
+        Optional<User> userOptional = userResolver.findByEmail(email);
 
         if (userOptional.isEmpty()) {
             return Map.of();
         }
 
-        List<Expense> expenses = expenseRepository.findByUser(userOptional.get());
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId()))) {
+            return null;
+        }
 
-        return expenses.stream()
-                .collect(Collectors.groupingBy(
-                        Expense::getCategory,
-                        Collectors.summingDouble(Expense::getAmount)
-                ));
+        if (analyticsEngine.isEnabled()) {
+            return toMoney(analyticsEngine.totals(userOptional.get(), null, null).categoryCents());
+        }
+        return totalsByCategory(userOptional.get(), rollupRepository.findByUser(userOptional.get()));
     }
 
     @GetMapping("/filter")
-    public List<Expense> filterByDate(
+    public List<ExpenseView> filterByDate(
             @RequestParam String email,
             @RequestParam String startDate,
-            @RequestParam String endDate) {
+            @RequestParam String endDate,
+            ServletWebRequest request) {
 
-        Optional<User> userOptional = userRepository.findByEmail(email);
+        Optional<User> userOptional = userResolver.findByEmail(email);
 
         if (userOptional.isEmpty()) {
             return List.of();
         }
 
-        List<Expense> expenses = expenseRepository.findByUser(userOptional.get());
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId()))) {
+            return null;
+        }
 
-        return expenses.stream()
-                .filter(expense -> !expense.getDate().isBefore(java.time.LocalDate.parse(startDate))
-                        && !expense.getDate().isAfter(java.time.LocalDate.parse(endDate)))
-                .toList();
+        LocalDate start = LocalDate.parse(startDate);
+        LocalDate end = LocalDate.parse(endDate);
+        return archiveService.merge(userOptional.get(),
+                expenseRepository.findViewsByUserAndDateBetween(userOptional.get(), start, end), start, end);
+    }
+
+    // Get one page of expenses, newest first, continuing after the given cursor
+    @GetMapping("/page")
+    public ExpensePage<ExpenseView> getExpensePage(@RequestParam String email,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "50") int limit,
+                                               @RequestParam(required = false) String category,
+                                               @RequestParam(required = false) BigDecimal minAmount,
+                                               @RequestParam(required = false) BigDecimal maxAmount,
+                                               ServletWebRequest request) {
+
+        Optional<User> userOptional = userResolver.findByEmail(email);
+
+        if (userOptional.isEmpty()) {
+            return new ExpensePage<>(List.of(), null);
+        }
+
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId()))) {
+            return null;
+        }
+
+        Integer categoryId = null;
+        if (category != null) {
+            categoryId = categoryDictionary.findId(userOptional.get(), category);
+            if (categoryId == null) {
+                // A category the user never used matches nothing
+                return new ExpensePage<>(List.of(), null);
+            }
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Money min = minAmount != null ? Money.of(minAmount) : null;
+        Money max = maxAmount != null ? Money.of(maxAmount) : null;
+        List<ExpenseView> expenses;
+        ExpensePage.Cursor after = null;
+        if (cursor == null || cursor.isBlank()) {
+            expenses = expenseRepository.findPage(userOptional.get(), categoryId, min, max, Limit.of(pageSize));
+        } else {
+            try {
+                after = ExpensePage.decodeCursor(cursor);
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+            expenses = expenseRepository.findPageAfter(userOptional.get(), after.date(), after.id(),
+                    categoryId, min, max, Limit.of(pageSize));
+        }
+        // Pages reaching back past the archive horizon continue into the archived expenses
+        expenses = archiveService.mergePage(userOptional.get(), expenses, pageSize,
+                after != null ? after.date() : null, after != null ? after.id() : null,
+                categoryId != null ? categoryDictionary.name(userOptional.get(), categoryId) : null, min, max);
+
+        String nextCursor = null;
+        if (expenses.size() == pageSize) {
+            ExpenseView last = expenses.get(expenses.size() - 1);
+            nextCursor = ExpensePage.encodeCursor(last.date(), last.id());
+        }
+        return new ExpensePage<>(expenses, nextCursor);
+    }
+
+    // Search expense titles, newest first; category and date range narrow the matches
+    @GetMapping("/search")
+    public List<ExpenseView> searchExpenses(@RequestParam String email,
+                                       @RequestParam String q,
+                                       @RequestParam(required = false) String category,
+                                       @RequestParam(required = false) String startDate,
+                                       @RequestParam(required = false) String endDate,
+                                       @RequestParam(defaultValue = "50") int limit,
+                                       ServletWebRequest request) {
+
+        Optional<User> userOptional = userResolver.findByEmail(email);
+
+        if (userOptional.isEmpty()) {
+            return List.of();
+        }
+
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId()))) {
+            return null;
+        }
+
+        Integer categoryId = null;
+        if (category != null) {
+            categoryId = categoryDictionary.findId(userOptional.get(), category);
+            if (categoryId == null) {
+                return List.of();
+            }
+        }
+
+        return searchService.search(userOptional.get(), q, categoryId,
+                startDate != null ? LocalDate.parse(startDate) : null,
+                endDate != null ? LocalDate.parse(endDate) : null,
+                Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    // Type-ahead: title words starting with the given prefix, most used first
+    @GetMapping("/search/suggest")
+    public List<String> suggestTitleWords(@RequestParam String email,
+                                          @RequestParam String prefix,
+                                          @RequestParam(defaultValue = "10") int limit,
+                                          ServletWebRequest request) {
+
+        Optional<User> userOptional = userResolver.findByEmail(email);
+
+        if (userOptional.isEmpty()) {
+            return List.of();
+        }
+
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId()))) {
+            return null;
+        }
+
+        return searchService.suggest(userOptional.get(), prefix, Math.max(1, Math.min(limit, 50)));
     }
 
     // Get all expenses for a user
     @GetMapping
-    public List<Expense> getExpenses(@RequestParam String email) {
+    public List<ExpenseView> getExpenses(@RequestParam String email, ServletWebRequest request) {
 
-        Optional<User> userOptional = userRepository.findByEmail(email);
+        Optional<User> userOptional = userResolver.findByEmail(email);
 
         if (userOptional.isEmpty()) {
             return List.of();
         }
 
-        return expenseRepository.findByUser(userOptional.get());
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId()))) {
+            return null;
+        }
+
+        return archiveService.merge(userOptional.get(), expenseRepository.findViewsByUser(userOptional.get()), null, null);
+    }
+
+    // Export the complete expense history as CSV or NDJSON, streamed row by row
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(@RequestParam String email,
+                                                                @RequestParam(defaultValue = "csv") String format) {
+
+        Optional<User> userOptional = userResolver.findByEmail(email);
+
+        if (userOptional.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
+
+        ExpenseExportService.Format exportFormat;
+        try {
+            exportFormat = ExpenseExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported export format: " + format);
+        }
+
+        User user = userOptional.get();
+        // Written on an MVC async thread, which has to be routed to the user's shard too
+        int shard = ShardContext.current();
+        StreamingResponseBody body = out -> ShardContext.runChecked(shard,
+                () -> exportService.export(user, exportFormat, out));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"expenses." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+    // Spending per day/week/month/quarter/year over a date range, optionally with a category
+    // split, a moving average over the last N buckets and changes against the previous bucket
+    @GetMapping("/analytics")
+    public TimeSeries getTimeSeries(@RequestParam String email,
+                                    @RequestParam String startDate,
+                                    @RequestParam String endDate,
+                                    @RequestParam(defaultValue = "month") String bucket,
+                                    @RequestParam(defaultValue = "false") boolean byCategory,
+                                    @RequestParam(defaultValue = "0") int movingAverage,
+                                    @RequestParam(defaultValue = "false") boolean deltas,
+                                    ServletWebRequest request) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
+        if (userOptional.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
+
+        TimeBucket timeBucket;
+        try {
+            timeBucket = TimeBucket.valueOf(bucket.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported bucket: " + bucket);
+        }
+        if (movingAverage < 0 || movingAverage > 366) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "movingAverage must be between 0 and 366 buckets");
+        }
+
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId()))) {
+            return null;
+        }
+
+        try {
+            return timeSeriesService.series(userOptional.get(), timeBucket, LocalDate.parse(startDate),
+                    LocalDate.parse(endDate), byCategory, movingAverage, deltas);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
     // Get monthly report
     @GetMapping("/monthly-report")
-    public MonthlyReport getMonthlyReport(@RequestParam String email, @RequestParam int year, @RequestParam int month) {
-        Optional<User> userOptional = userRepository.findByEmail(email);
+    public MonthlyReport getMonthlyReport(@RequestParam String email, @RequestParam int year, @RequestParam int month, ServletWebRequest request) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
         if (userOptional.isEmpty()) {
             return new MonthlyReport();
         }
 
-        LocalDate start = LocalDate.of(year, month, 1);
-        LocalDate end = start.withDayOfMonth(start.lengthOfMonth());
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId()))) {
+            return null;
+        }
+
+        if (analyticsEngine.isEnabled()) {
+            LocalDate start = LocalDate.of(year, month, 1);
+            ExpenseAnalyticsEngine.Totals totals = analyticsEngine.totals(userOptional.get(),
+                    start, start.withDayOfMonth(start.lengthOfMonth()));
+            return new MonthlyReport(Money.ofCents(totals.totalCents()), toMoney(totals.categoryCents()),
+                    (int) totals.count());
+        }
 
-        List<Expense> expenses = expenseRepository.findByUser(userOptional.get()).stream()
-                .filter(e -> !e.getDate().isBefore(start) && !e.getDate().isAfter(end))
-                .toList();
+        List<ExpenseRollup> rollups = rollupRepository.findByUserAndYearAndMonth(userOptional.get(), year, month);
 
-        double total = expenses.stream().mapToDouble(e -> e.getAmount()).sum();
-        Map<String, Double> categoryTotals = expenses.stream()
-                .collect(Collectors.groupingBy(Expense::getCategory, Collectors.summingDouble(Expense::getAmount)));
+        long totalCents = rollups.stream().mapToLong(ExpenseRollup::getTotalCents).sum();
+        long expenseCount = rollups.stream().mapToLong(ExpenseRollup::getExpenseCount).sum();
 
-        return new MonthlyReport(total, categoryTotals, expenses.size());
+        return new MonthlyReport(Money.ofCents(totalCents), totalsByCategory(userOptional.get(), rollups), (int) expenseCount);
     }
 
     // Get yearly report
     @GetMapping("/yearly-report")
-    public YearlyReport getYearlyReport(@RequestParam String email, @RequestParam int year) {
-        Optional<User> userOptional = userRepository.findByEmail(email);
+    public YearlyReport getYearlyReport(@RequestParam String email, @RequestParam int year, ServletWebRequest request) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
         if (userOptional.isEmpty()) {
             return new YearlyReport();
         }
 
-        LocalDate start = LocalDate.of(year, 1, 1);
-        LocalDate end = LocalDate.of(year, 12, 31);
-
-        List<Expense> expenses = expenseRepository.findByUser(userOptional.get()).stream()
-                .filter(e -> !e.getDate().isBefore(start) && !e.getDate().isAfter(end))
-                .toList();
+        if (ConditionalGet.notModified(request, dataVersions.etag(userOptional.get().getId()))) {
+            return null;
+        }
 
-        double total = expenses.stream().mapToDouble(e -> e.getAmount()).sum();
-        Map<Integer, Double> monthlyTotals = new HashMap<>();
+        long totalCents = 0;
+        long expenseCount = 0;
+        long[] monthCents;
+        if (analyticsEngine.isEnabled()) {
+            monthCents = analyticsEngine.monthlyTotals(userOptional.get(), year);
+            for (long cents : monthCents) {
+                totalCents += cents;
+            }
+            expenseCount = analyticsEngine.count(userOptional.get(), LocalDate.of(year, 1, 1), LocalDate.of(year, 12, 31));
+        } else {
+            monthCents = new long[13];
+            for (ExpenseRollup rollup : rollupRepository.findByUserAndYear(userOptional.get(), year)) {
+                totalCents += rollup.getTotalCents();
+                expenseCount += rollup.getExpenseCount();
+                monthCents[rollup.getMonth()] += rollup.getTotalCents();
+            }
+        }
+        Map<Integer, Money> monthlyTotals = new HashMap<>();
         for (int m = 1; m <= 12; m++) {
-            LocalDate monthStart = LocalDate.of(year, m, 1);
-            LocalDate monthEnd = monthStart.withDayOfMonth(monthStart.lengthOfMonth());
-            double monthTotal = expenses.stream()
-                    .filter(e -> !e.getDate().isBefore(monthStart) && !e.getDate().isAfter(monthEnd))
-                    .mapToDouble(e -> e.getAmount()).sum();
-            monthlyTotals.put(m, monthTotal);
+            monthlyTotals.put(m, Money.ofCents(monthCents[m]));
+        }
+
+        return new YearlyReport(Money.ofCents(totalCents), monthlyTotals, (int) expenseCount);
+    }
+
+    // Recompute the report rollups of a user from the raw expenses
+    @PostMapping("/rollups/rebuild")
+    public ExpenseResponse rebuildRollups(@RequestParam String email) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
+        if (userOptional.isEmpty()) {
+            return new ExpenseResponse("User not found", false);
+        }
+
+        int buckets = rollupService.rebuild(userOptional.get());
+        // Drifted rollups change what /total and the reports return
+        dataVersions.bump(userOptional.get().getId());
+        return new ExpenseResponse("Rebuilt " + buckets + " rollup buckets", true);
+    }
+
+    // Check the report rollups of a user against the raw expenses
+    @GetMapping("/rollups/verify")
+    public ExpenseResponse verifyRollups(@RequestParam String email) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
+        if (userOptional.isEmpty()) {
+            return new ExpenseResponse("User not found", false);
         }
 
-        return new YearlyReport(total, monthlyTotals, expenses.size());
+        RollupVerification verification = rollupService.verify(userOptional.get());
+        String message = verification.isConsistent() ? "Rollups are consistent" : "Rollups have drifted";
+        return new ExpenseResponse(message, true, verification);
+    }
+
+    // Sum rollup cents per category id, naming each category and converting to Money once
+    private Map<String, Money> totalsByCategory(User user, List<ExpenseRollup> rollups) {
+        Map<Integer, long[]> cents = new HashMap<>();
+        for (ExpenseRollup rollup : rollups) {
+            if (rollup.getExpenseCount() == 0) {
+                continue;
+            }
+            cents.computeIfAbsent(rollup.getCategory().getId(), c -> new long[1])[0] += rollup.getTotalCents();
+        }
+        Map<String, Money> totals = new HashMap<>();
+        cents.forEach((categoryId, sum) -> totals.put(categoryDictionary.name(user, categoryId), Money.ofCents(sum[0])));
+        return totals;
+    }
+
+    private static Map<String, Money> toMoney(Map<String, Long> cents) {
+        Map<String, Money> totals = new HashMap<>();
+        cents.forEach((category, sum) -> totals.put(category, Money.ofCents(sum)));
+        return totals;
     }
 
     public static class MonthlyReport {
-        public double total;
-        public Map<String, Double> categoryTotals;
+        public Money total = Money.ZERO;
+        public Map<String, Money> categoryTotals;
         public int expenseCount;
 
         public MonthlyReport() {}
-        public MonthlyReport(double total, Map<String, Double> categoryTotals, int expenseCount) {
+        public MonthlyReport(Money total, Map<String, Money> categoryTotals, int expenseCount) {
             this.total = total;
             this.categoryTotals = categoryTotals;
             this.expenseCount = expenseCount;
@@ -178,15 +538,28 @@ public class ExpenseController {
     }
 
     public static class YearlyReport {
-        public double total;
-        public Map<Integer, Double> monthlyTotals;
+        public Money total = Money.ZERO;
+        public Map<Integer, Money> monthlyTotals;
         public int expenseCount;
 
         public YearlyReport() {}
-        public YearlyReport(double total, Map<Integer, Double> monthlyTotals, int expenseCount) {
+        public YearlyReport(Money total, Map<Integer, Money> monthlyTotals, int expenseCount) {
             this.total = total;
             this.monthlyTotals = monthlyTotals;
             this.expenseCount = expenseCount;
         }
     }
+
+    // An expense that cannot be prepared for saving, e.g. one without a category
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ExpenseResponse> invalidExpense(IllegalArgumentException e) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new ExpenseResponse(e.getMessage(), false));
+    }
+
+    @ExceptionHandler(ExpenseWriteCapacityExceededException.class)
+    public ResponseEntity<ExpenseResponse> writeCapacityExceeded(ExpenseWriteCapacityExceededException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ExpenseResponse(e.getMessage(), false));
+    }
 }
@@ -0,0 +1,109 @@
+package com.spendwise.spendwise.controller;
+
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.RecurringExpense;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.RecurringExpenseRepository;
+import com.spendwise.spendwise.service.CategoryDictionary;
+import com.spendwise.spendwise.service.RecurringExpenseScheduler;
+import com.spendwise.spendwise.service.UserResolver;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/recurring-expenses")
+@CrossOrigin
+public class RecurringExpenseController {
+
+    private final RecurringExpenseRepository recurringExpenseRepository;
+    private final UserResolver userResolver;
+    private final CategoryDictionary categoryDictionary;
+    private final RecurringExpenseScheduler scheduler;
+
+    public RecurringExpenseController(RecurringExpenseRepository recurringExpenseRepository, UserResolver userResolver,
+                                      CategoryDictionary categoryDictionary, RecurringExpenseScheduler scheduler) {
+        this.recurringExpenseRepository = recurringExpenseRepository;
+        this.userResolver = userResolver;
+        this.categoryDictionary = categoryDictionary;
+        this.scheduler = scheduler;
+    }
+
+    // Get all recurring expense rules of a user
+    @GetMapping
+    public List<RecurringExpense> getRecurringExpenses(@RequestParam String email) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
+        if (userOptional.isEmpty()) {
+            return List.of();
+        }
+
+        return recurringExpenseRepository.findByUser(userOptional.get());
+    }
+
+    // Create a rule adding the expense every interval days, weeks, months or years from startDate
+    @PostMapping
+    public RecurringExpense createRecurringExpense(@RequestParam String email,
+                                                   @RequestParam String title,
+                                                   @RequestParam BigDecimal amount,
+                                                   @RequestParam String category,
+                                                   @RequestParam String frequency,
+                                                   @RequestParam(defaultValue = "1") int interval,
+                                                   @RequestParam LocalDate startDate,
+                                                   @RequestParam(required = false) LocalDate endDate) {
+        User user = requireUser(email);
+
+        RecurringExpense.Frequency recurrence;
+        try {
+            recurrence = RecurringExpense.Frequency.valueOf(frequency.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported frequency: " + frequency);
+        }
+        if (interval < 1 || (endDate != null && endDate.isBefore(startDate)) || category.isBlank() || title.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Title and category are required, interval must be positive and endDate not before startDate");
+        }
+
+        RecurringExpense rule = recurringExpenseRepository.save(new RecurringExpense(user, title, positive(amount),
+                categoryDictionary.resolve(user, category.trim()), recurrence, interval, startDate, endDate));
+        if (!startDate.isAfter(LocalDate.now())) {
+            // Past and current occurrences show up without waiting for the next scheduled run
+            scheduler.runSoon();
+        }
+        return rule;
+    }
+
+    // Stop a rule; expenses it already added are kept
+    @DeleteMapping("/{id}")
+    public void deleteRecurringExpense(@PathVariable Long id, @RequestParam String email) {
+        User user = requireUser(email);
+        recurringExpenseRepository.findById(id)
+                .filter(rule -> rule.getUser().getId().equals(user.getId()))
+                .ifPresent(recurringExpenseRepository::delete);
+    }
+
+    // Rules are not rounded like one-off amounts, since a rounding error would repeat with every occurrence
+    private static Money positive(BigDecimal amount) {
+        if (amount.signum() <= 0 || amount.stripTrailingZeros().scale() > Money.SCALE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Amount must be positive with at most " + Money.SCALE + " decimals");
+        }
+        try {
+            return Money.of(amount);
+        } catch (ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Amount is too large");
+        }
+    }
+
+    private User requireUser(String email) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
+        if (userOptional.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
+        return userOptional.get();
+    }
+}
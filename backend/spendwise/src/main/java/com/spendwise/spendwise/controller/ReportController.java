@@ -0,0 +1,97 @@
+package com.spendwise.spendwise.controller;
+
+import com.spendwise.spendwise.dto.ReportJobStatus;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.service.ReportCapacityExceededException;
+import com.spendwise.spendwise.service.ReportJobService;
+import com.spendwise.spendwise.service.UserResolver;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/reports")
+@CrossOrigin
+public class ReportController {
+
+    private static final int MAX_WAIT_SECONDS = 20;
+
+    private final ReportJobService reportJobService;
+    private final UserResolver userResolver;
+
+    public ReportController(ReportJobService reportJobService, UserResolver userResolver) {
+        this.reportJobService = reportJobService;
+        this.userResolver = userResolver;
+    }
+
+    // Start a report over whole months [from, to] (yyyy-MM), grouped by month or year and optionally by category
+    @PostMapping("/jobs")
+    public ResponseEntity<ReportJobStatus> submitJob(@RequestParam String email,
+                                                     @RequestParam YearMonth from,
+                                                     @RequestParam YearMonth to,
+                                                     @RequestParam(defaultValue = "month") String groupBy,
+                                                     @RequestParam(defaultValue = "false") boolean byCategory) {
+        User user = requireUser(email);
+
+        if (to.isBefore(from) || ChronoUnit.MONTHS.between(from, to) >= ReportJobService.MAX_MONTHS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Range must run forwards and span at most " + ReportJobService.MAX_MONTHS + " months");
+        }
+        ReportJobService.Grouping grouping;
+        try {
+            grouping = ReportJobService.Grouping.valueOf(groupBy.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported grouping: " + groupBy);
+        }
+
+        ReportJobStatus status = reportJobService.submit(user, from, to, grouping, byCategory).status();
+        // A finished job means the same report was already computed for the current data
+        return ResponseEntity.status(status.status().equals("PENDING") ? HttpStatus.ACCEPTED : HttpStatus.OK)
+                .header(HttpHeaders.LOCATION, "/api/reports/jobs/" + status.id())
+                .body(status);
+    }
+
+    // Poll a job; with waitSeconds the response is held until the job finishes or the wait runs out
+    @GetMapping("/jobs/{id}")
+    public CompletableFuture<ReportJobStatus> getJob(@PathVariable String id,
+                                                     @RequestParam String email,
+                                                     @RequestParam(defaultValue = "0") int waitSeconds) {
+        User user = requireUser(email);
+        ReportJobService.Job job = reportJobService.find(user, id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Report job not found or expired");
+        }
+
+        int wait = Math.max(0, Math.min(waitSeconds, MAX_WAIT_SECONDS));
+        if (wait == 0 || job.result().isDone()) {
+            return CompletableFuture.completedFuture(job.status());
+        }
+        // Waiting is asynchronous, so the request thread is released until the job completes
+        return job.result().handle((result, failure) -> job.status())
+                .completeOnTimeout(job.status(), wait, TimeUnit.SECONDS);
+    }
+
+    @ExceptionHandler(ReportCapacityExceededException.class)
+    public ResponseEntity<Map<String, String>> reportCapacityExceeded(ReportCapacityExceededException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("message", e.getMessage()));
+    }
+
+    private User requireUser(String email) {
+        Optional<User> userOptional = userResolver.findByEmail(email);
+        if (userOptional.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
+        }
+        return userOptional.get();
+    }
+}
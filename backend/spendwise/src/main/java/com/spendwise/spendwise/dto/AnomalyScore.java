@@ -0,0 +1,9 @@
+package com.spendwise.spendwise.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.spendwise.spendwise.entity.Money;
+
+// How an expense compares with the user's other expenses in its category. zScore is measured on log amounts,
+// typicalAmount is their geometric mean; both are absent until the category has enough history.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AnomalyScore(boolean unusual, Double zScore, Money typicalAmount, long sampleSize) {}
@@ -1,14 +1,25 @@
 package com.spendwise.spendwise.dto;
 
+import java.time.Instant;
+
 public class AuthResponse {
     private String message;
     private boolean success;
+    private String token;
+    private Instant expiresAt;
 
     public AuthResponse(String message, boolean success) {
         this.message = message;
         this.success = success;
     }
 
+    public AuthResponse(String message, boolean success, String token, Instant expiresAt) {
+        this.message = message;
+        this.success = success;
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -24,4 +35,20 @@ public class AuthResponse {
     public void setSuccess(boolean success) {
         this.success = success;
     }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
 }
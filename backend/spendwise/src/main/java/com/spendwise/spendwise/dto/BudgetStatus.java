@@ -0,0 +1,28 @@
+package com.spendwise.spendwise.dto;
+
+import com.spendwise.spendwise.entity.Money;
+
+// A budget with what has been spent against it (spent vs budget)
+public class BudgetStatus {
+    public BudgetView budget;
+    public Money spent;
+    public Money remaining;
+    public double percentage;
+    // Expected spend by the end of the period at the recent daily rate
+    public Money projected;
+
+    public BudgetStatus(BudgetView budget, long spentCents, long projectedCents) {
+        long budgetCents = budget.amount().cents();
+        this.budget = budget;
+        this.spent = Money.ofCents(spentCents);
+        this.remaining = Money.ofCents(budgetCents - spentCents);
+        this.projected = Money.ofCents(projectedCents);
+        if (budgetCents == 0) {
+            // A zero budget is fully used by any spending at all
+            this.percentage = spentCents > 0 ? 100 : 0;
+        } else {
+            // Whole percent, rounded half-up like the former 2-decimal ratio
+            this.percentage = Math.round(spentCents * 100.0 / budgetCents);
+        }
+    }
+}
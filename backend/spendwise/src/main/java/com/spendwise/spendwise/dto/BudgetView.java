@@ -0,0 +1,15 @@
+package com.spendwise.spendwise.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.spendwise.spendwise.entity.Money;
+
+import java.time.LocalDate;
+
+// Read-only budget row; category is the name and null for an overall budget
+public record BudgetView(Long id,
+                         @JsonIgnore Integer categoryId,
+                         String category,
+                         Money amount,
+                         String period,
+                         LocalDate startDate,
+                         LocalDate endDate) {}
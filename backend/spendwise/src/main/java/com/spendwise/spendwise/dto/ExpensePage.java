@@ -0,0 +1,42 @@
+package com.spendwise.spendwise.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class ExpensePage<T> {
+    private List<T> items;
+    private String nextCursor;
+
+    public ExpensePage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    // Null when there are no more rows
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+
+    // Cursors are "<date>_<id>" of the last row on the page
+    public static String encodeCursor(LocalDate date, Long id) {
+        return date + "_" + id;
+    }
+
+    public static Cursor decodeCursor(String cursor) {
+        int separator = cursor.lastIndexOf('_');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        return new Cursor(LocalDate.parse(cursor.substring(0, separator)), Long.parseLong(cursor.substring(separator + 1)));
+    }
+
+    public record Cursor(LocalDate date, Long id) {}
+}
@@ -1,9 +1,12 @@
 package com.spendwise.spendwise.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class ExpenseResponse {
     private String message;
     private boolean success;
     private Object data;
+    private AnomalyScore anomaly;
 
     public ExpenseResponse(String message, boolean success) {
         this.message = message;
@@ -40,4 +43,14 @@ public class ExpenseResponse {
     public void setData(Object data) {
         this.data = data;
     }
+
+    // Only set for a newly added expense
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public AnomalyScore getAnomaly() {
+        return anomaly;
+    }
+
+    public void setAnomaly(AnomalyScore anomaly) {
+        this.anomaly = anomaly;
+    }
 }
@@ -0,0 +1,13 @@
+package com.spendwise.spendwise.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.spendwise.spendwise.entity.Money;
+
+import java.time.LocalDate;
+
+// Read-only expense row selected straight into the response shape, without a managed entity behind it
+public record ExpenseView(Long id,
+                          String title,
+                          Money amount,
+                          String category,
+                          @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd") LocalDate date) {}
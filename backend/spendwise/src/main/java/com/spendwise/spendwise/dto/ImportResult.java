@@ -0,0 +1,49 @@
+package com.spendwise.spendwise.dto;
+
+import java.util.List;
+
+public class ImportResult {
+    private int received;
+    private int imported;
+    private int failed;
+    private List<RowError> errors;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+
+    public ImportResult(int received, int imported, List<RowError> errors, int failed, long elapsedMillis) {
+        this.received = received;
+        this.imported = imported;
+        this.failed = failed;
+        this.errors = errors;
+        this.elapsedMillis = elapsedMillis;
+        this.rowsPerSecond = elapsedMillis > 0 ? imported * 1000.0 / elapsedMillis : imported;
+    }
+
+    public int getReceived() {
+        return received;
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    // Capped at spendwise.import.max-reported-errors; see failed for the full count
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    // Row numbers are 1-based and exclude the CSV header
+    public record RowError(int row, String message) {}
+}
@@ -0,0 +1,23 @@
+package com.spendwise.spendwise.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.spendwise.spendwise.entity.Money;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+// Totals over [from, to] in whole months, one bucket per month or year that has expenses
+public record RangeReport(YearMonth from,
+                          YearMonth to,
+                          String groupBy,
+                          Money total,
+                          long expenseCount,
+                          List<Bucket> buckets) {
+
+    // period is "yyyy-MM" or "yyyy"; categoryTotals is only present when the report was split by category
+    public record Bucket(String period,
+                         Money total,
+                         long expenseCount,
+                         @JsonInclude(JsonInclude.Include.NON_NULL) Map<String, Money> categoryTotals) {}
+}
@@ -0,0 +1,7 @@
+package com.spendwise.spendwise.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Poll response for a report job; result is set once the job is DONE and error once it FAILED
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ReportJobStatus(String id, String status, RangeReport result, String error) {}
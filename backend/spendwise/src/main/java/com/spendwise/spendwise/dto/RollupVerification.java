@@ -0,0 +1,31 @@
+package com.spendwise.spendwise.dto;
+
+import java.util.List;
+
+public class RollupVerification {
+    private Long userId;
+    private int bucketsChecked;
+    private List<String> mismatches;
+
+    public RollupVerification(Long userId, int bucketsChecked, List<String> mismatches) {
+        this.userId = userId;
+        this.bucketsChecked = bucketsChecked;
+        this.mismatches = mismatches;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public int getBucketsChecked() {
+        return bucketsChecked;
+    }
+
+    public List<String> getMismatches() {
+        return mismatches;
+    }
+
+    public boolean isConsistent() {
+        return mismatches.isEmpty();
+    }
+}
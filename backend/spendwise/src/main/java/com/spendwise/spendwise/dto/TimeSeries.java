@@ -0,0 +1,32 @@
+package com.spendwise.spendwise.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.spendwise.spendwise.entity.Money;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+// Spending per bucket over [startDate, endDate], one point per bucket including empty ones.
+// Every bucket is whole: startDate and endDate are the requested range widened to the first day
+// of its first bucket and the last day of its last bucket.
+public record TimeSeries(String bucket,
+                         LocalDate startDate,
+                         LocalDate endDate,
+                         List<Point> points) {
+
+    /**
+     * start is the first day of the bucket. movingAverage is the mean of
+     * this and the preceding buckets in the window; delta and deltaPercent
+     * compare with the previous bucket (deltaPercent is absent when that was
+     * zero). Optional fields are only present when requested.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Point(LocalDate start,
+                        Money total,
+                        long expenseCount,
+                        Money movingAverage,
+                        Money delta,
+                        Double deltaPercent,
+                        Map<String, Money> categoryTotals) {}
+}
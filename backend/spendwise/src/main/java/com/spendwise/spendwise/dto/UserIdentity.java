@@ -0,0 +1,4 @@
+package com.spendwise.spendwise.dto;
+
+// The immutable part of a user that is safe to cache across requests
+public record UserIdentity(Long id, String email) {}
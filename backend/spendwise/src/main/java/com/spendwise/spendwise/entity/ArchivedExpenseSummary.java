@@ -0,0 +1,65 @@
+package com.spendwise.spendwise.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Spend of archived expenses in one (user, year-month, category) bucket,
+ * left behind in the database when the expenses themselves move to the
+ * user's archive file. Together with the expenses table it accounts for
+ * every expense, which is what rebuilding and verifying rollups relies on.
+ */
+@Entity
+@Table(name = "archived_expense_summaries",
+       uniqueConstraints = @UniqueConstraint(name = "uk_archived_expense_summaries_bucket",
+               columnNames = {"user_id", "period_year", "period_month", "category_id"}))
+public class ArchivedExpenseSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "period_year", nullable = false)
+    private int year;
+
+    @Column(name = "period_month", nullable = false)
+    private int month;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id", nullable = false)
+    private Category category;
+
+    @Column(name = "total_cents", nullable = false)
+    private long totalCents;
+
+    @Column(nullable = false)
+    private long expenseCount;
+
+    public ArchivedExpenseSummary() {}
+
+    public ArchivedExpenseSummary(User user, int year, int month, Category category, long totalCents, long expenseCount) {
+        this.user = user;
+        this.year = year;
+        this.month = month;
+        this.category = category;
+        this.totalCents = totalCents;
+        this.expenseCount = expenseCount;
+    }
+
+    public Long getId() { return id; }
+
+    public User getUser() { return user; }
+
+    public int getYear() { return year; }
+
+    public int getMonth() { return month; }
+
+    public Category getCategory() { return category; }
+
+    public long getTotalCents() { return totalCents; }
+
+    public long getExpenseCount() { return expenseCount; }
+}
@@ -1,9 +1,9 @@
 package com.spendwise.spendwise.entity;
 
 import jakarta.persistence.*;
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
 @Table(name = "budgets")
@@ -18,11 +18,13 @@ public class Budget {
     @JsonIgnore
     private User user;
 
-    @Column(nullable = true)
-    private String category; // null for overall budget
+    @ManyToOne
+    @JoinColumn(name = "category_id", nullable = true)
+    @JsonIgnore
+    private Category category; // null for overall budget
 
-    @Column(nullable = false)
-    private BigDecimal amount;
+    @Column(name = "amount_cents", nullable = false)
+    private Money amount;
 
     @Column(nullable = false)
     private String period; // "monthly", "yearly"
@@ -36,7 +38,7 @@ public class Budget {
     // Constructors
     public Budget() {}
 
-    public Budget(User user, String category, BigDecimal amount, String period, LocalDate startDate, LocalDate endDate) {
+    public Budget(User user, Category category, Money amount, String period, LocalDate startDate, LocalDate endDate) {
         this.user = user;
         this.category = category;
         this.amount = amount;
@@ -52,11 +54,14 @@ public class Budget {
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
 
-    public String getCategory() { return category; }
-    public void setCategory(String category) { this.category = category; }
+    public Category getCategory() { return category; }
+    public void setCategory(Category category) { this.category = category; }
+
+    @JsonProperty("category")
+    public String getCategoryName() { return category != null ? category.getName() : null; }
 
-    public BigDecimal getAmount() { return amount; }
-    public void setAmount(BigDecimal amount) { this.amount = amount; }
+    public Money getAmount() { return amount; }
+    public void setAmount(Money amount) { this.amount = amount; }
 
     public String getPeriod() { return period; }
     public void setPeriod(String period) { this.period = period; }
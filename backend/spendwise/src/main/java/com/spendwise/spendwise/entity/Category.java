@@ -0,0 +1,53 @@
+package com.spendwise.spendwise.entity;
+
+import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * One entry of a user's category dictionary. Expenses, budgets and rollups
+ * reference categories by this small integer id instead of repeating the
+ * name on every row. Entries are never renamed or deleted.
+ */
+@Entity
+@Table(name = "categories",
+       uniqueConstraints = @UniqueConstraint(name = "uk_categories_user_name", columnNames = {"user_id", "name"}))
+public class Category {
+
+    // Column length of name
+    public static final int NAME_MAX_LENGTH = 255;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @JsonIgnore
+    private User user;
+
+    @Column(nullable = false, length = NAME_MAX_LENGTH)
+    private String name;
+
+    public Category() {}
+
+    public Category(User user, String name) {
+        this.user = user;
+        this.name = name;
+    }
+
+    public Category(Integer id, User user, String name) {
+        this.id = id;
+        this.user = user;
+        this.name = name;
+    }
+
+    // Getters and Setters
+    public Integer getId() { return id; }
+    public void setId(Integer id) { this.id = id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+}
@@ -3,24 +3,40 @@ package com.spendwise.spendwise.entity;
 import jakarta.persistence.*;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "expenses")
+@Table(name = "expenses",
+       indexes = {
+               @Index(name = "idx_expenses_user_date", columnList = "user_id, date"),
+               @Index(name = "idx_expenses_user_category_date", columnList = "user_id, category_id, date")
+       })
 public class Expense {
 
+    // Column length of title
+    public static final int TITLE_MAX_LENGTH = 255;
+
+    // Pooled sequence ids let Hibernate batch inserts, which IDENTITY prevents
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expenses_seq")
+    @SequenceGenerator(name = "expenses_seq", sequenceName = "expenses_seq", allocationSize = 50)
     private Long id;
 
-    @Column(nullable = false)
+    @Column(nullable = false, length = TITLE_MAX_LENGTH)
     private String title;
     
-    @Column(nullable = false)
-    private double amount;
+    @Column(name = "amount_cents", nullable = false)
+    private Money amount;
     
-    @Column(nullable = false)
-    private String category;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id", nullable = false)
+    @JsonIgnore
+    private Category category;
+
+    // Name sent by clients; ExpenseService resolves it to a Category
+    @Transient
+    private String categoryName;
     
     @Column(nullable = false)
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
@@ -33,7 +49,7 @@ public class Expense {
 
     public Expense() {}
 
-    public Expense(String title, double amount, String category, LocalDate date, User user) {
+    public Expense(String title, Money amount, Category category, LocalDate date, User user) {
         this.title = title;
         this.amount = amount;
         this.category = category;
@@ -47,11 +63,17 @@ public class Expense {
     public String getTitle() { return title; }
     public void setTitle(String title) { this.title = title; }
 
-    public double getAmount() { return amount; }
-    public void setAmount(double amount) { this.amount = amount; }
+    public Money getAmount() { return amount; }
+    public void setAmount(Money amount) { this.amount = amount; }
+
+    public Category getCategory() { return category; }
+    public void setCategory(Category category) { this.category = category; }
 
-    public String getCategory() { return category; }
-    public void setCategory(String category) { this.category = category; }
+    // Read queries that return expenses to clients fetch the category with them
+    @JsonProperty("category")
+    public String getCategoryName() { return category != null ? category.getName() : categoryName; }
+    @JsonProperty("category")
+    public void setCategoryName(String categoryName) { this.categoryName = categoryName; }
 
     public LocalDate getDate() { return date; }
     public void setDate(LocalDate date) { this.date = date; }
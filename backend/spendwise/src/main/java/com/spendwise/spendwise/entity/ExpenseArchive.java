@@ -0,0 +1,53 @@
+package com.spendwise.spendwise.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * A user's archive of expenses moved out of the expenses table: how much of
+ * the archive file is committed and which dates it covers. Readers look up
+ * the segments they need in ExpenseArchiveSegment instead.
+ */
+@Entity
+@Table(name = "expense_archives")
+public class ExpenseArchive {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    // Bytes past this were written by an archival run that did not commit and are ignored
+    @Column(nullable = false)
+    private long committedBytes;
+
+    @Column(nullable = false)
+    private long expenseCount;
+
+    private LocalDate oldestDate;
+
+    private LocalDate newestDate;
+
+    public ExpenseArchive() {}
+
+    public ExpenseArchive(Long userId) {
+        this.userId = userId;
+    }
+
+    // Records a segment of count expenses dated oldest to newest appended to the file
+    public void appended(long committedBytes, int count, LocalDate oldest, LocalDate newest) {
+        this.committedBytes = committedBytes;
+        this.expenseCount += count;
+        this.oldestDate = oldestDate == null || oldest.isBefore(oldestDate) ? oldest : oldestDate;
+        this.newestDate = newestDate == null || newest.isAfter(newestDate) ? newest : newestDate;
+    }
+
+    public Long getUserId() { return userId; }
+
+    public long getCommittedBytes() { return committedBytes; }
+
+    public long getExpenseCount() { return expenseCount; }
+
+    public LocalDate getOldestDate() { return oldestDate; }
+
+    public LocalDate getNewestDate() { return newestDate; }
+}
@@ -0,0 +1,58 @@
+package com.spendwise.spendwise.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Where one committed segment of a user's archive file starts and which
+ * dates it holds, so readers seek straight to the segments a date range or
+ * page cursor needs instead of walking the file from its start.
+ */
+@Entity
+@Table(name = "expense_archive_segments",
+       indexes = @Index(name = "idx_expense_archive_segments_user_dates",
+               columnList = "user_id, newest_date, oldest_date"))
+public class ExpenseArchiveSegment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Byte offset of the segment header in the archive file
+    @Column(name = "file_offset", nullable = false)
+    private long offset;
+
+    @Column(nullable = false)
+    private int expenseCount;
+
+    @Column(name = "oldest_date", nullable = false)
+    private LocalDate oldestDate;
+
+    @Column(name = "newest_date", nullable = false)
+    private LocalDate newestDate;
+
+    public ExpenseArchiveSegment() {}
+
+    public ExpenseArchiveSegment(Long userId, long offset, int expenseCount, LocalDate oldestDate, LocalDate newestDate) {
+        this.userId = userId;
+        this.offset = offset;
+        this.expenseCount = expenseCount;
+        this.oldestDate = oldestDate;
+        this.newestDate = newestDate;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getUserId() { return userId; }
+
+    public long getOffset() { return offset; }
+
+    public int getExpenseCount() { return expenseCount; }
+
+    public LocalDate getOldestDate() { return oldestDate; }
+
+    public LocalDate getNewestDate() { return newestDate; }
+}
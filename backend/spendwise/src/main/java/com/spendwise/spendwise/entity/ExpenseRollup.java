@@ -0,0 +1,75 @@
+package com.spendwise.spendwise.entity;
+
+import jakarta.persistence.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Pre-aggregated spend for one (user, year-month, category) bucket.
+ * Kept in step with the expenses table so report endpoints can read
+ * a handful of rows instead of a user's whole history.
+ */
+@Entity
+@Table(name = "expense_rollups",
+       uniqueConstraints = @UniqueConstraint(name = "uk_expense_rollups_bucket",
+               columnNames = {"user_id", "period_year", "period_month", "category_id"}))
+public class ExpenseRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @JsonIgnore
+    private User user;
+
+    @Column(name = "period_year", nullable = false)
+    private int year;
+
+    @Column(name = "period_month", nullable = false)
+    private int month;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id", nullable = false)
+    @JsonIgnore
+    private Category category;
+
+    // Sum of the bucket's expense amounts in cents
+    @Column(name = "total_cents", nullable = false)
+    private long totalCents;
+
+    @Column(nullable = false)
+    private long expenseCount;
+
+    public ExpenseRollup() {}
+
+    public ExpenseRollup(User user, int year, int month, Category category, long totalCents, long expenseCount) {
+        this.user = user;
+        this.year = year;
+        this.month = month;
+        this.category = category;
+        this.totalCents = totalCents;
+        this.expenseCount = expenseCount;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public int getYear() { return year; }
+    public void setYear(int year) { this.year = year; }
+
+    public int getMonth() { return month; }
+    public void setMonth(int month) { this.month = month; }
+
+    public Category getCategory() { return category; }
+    public void setCategory(Category category) { this.category = category; }
+
+    public long getTotalCents() { return totalCents; }
+    public void setTotalCents(long totalCents) { this.totalCents = totalCents; }
+
+    public long getExpenseCount() { return expenseCount; }
+    public void setExpenseCount(long expenseCount) { this.expenseCount = expenseCount; }
+}
@@ -0,0 +1,137 @@
+package com.spendwise.spendwise.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// A rule that adds the same expense every interval units from startDate until endDate (inclusive, if set)
+@Entity
+@Table(name = "recurring_expenses",
+       indexes = {
+               @Index(name = "idx_recurring_expenses_next_due", columnList = "next_due_date"),
+               @Index(name = "idx_recurring_expenses_user", columnList = "user_id")
+       })
+public class RecurringExpense {
+
+    public enum Frequency {
+        DAILY(ChronoUnit.DAYS), WEEKLY(ChronoUnit.WEEKS), MONTHLY(ChronoUnit.MONTHS), YEARLY(ChronoUnit.YEARS);
+
+        private final ChronoUnit unit;
+
+        Frequency(ChronoUnit unit) {
+            this.unit = unit;
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @JsonIgnore
+    private User user;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(name = "amount_cents", nullable = false)
+    private Money amount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "category_id", nullable = false)
+    @JsonIgnore
+    private Category category;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Frequency frequency;
+
+    // Every how many frequency units, e.g. 2 with WEEKLY for fortnightly
+    @Column(name = "interval_count", nullable = false)
+    private int interval;
+
+    @Column(nullable = false)
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private LocalDate startDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private LocalDate endDate;
+
+    // Occurrences already added as expenses; the next one is occurrence number materialized
+    @Column(nullable = false)
+    @JsonIgnore
+    private long materialized;
+
+    // Date of the next occurrence, null once the rule has ended; what the scheduler's due query runs on
+    @Column(name = "next_due_date")
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private LocalDate nextDueDate;
+
+    // Keeps two schedulers from adding the same occurrence
+    @Version
+    @JsonIgnore
+    private long version;
+
+    public RecurringExpense() {}
+
+    public RecurringExpense(User user, String title, Money amount, Category category, Frequency frequency,
+                            int interval, LocalDate startDate, LocalDate endDate) {
+        this.user = user;
+        this.title = title;
+        this.amount = amount;
+        this.category = category;
+        this.frequency = frequency;
+        this.interval = interval;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.nextDueDate = occurrence(0);
+    }
+
+    // Counted from startDate rather than the previous occurrence, so the 31st stays the 31st after February
+    public LocalDate occurrence(long index) {
+        LocalDate date = startDate.plus(index * interval, frequency.unit);
+        return endDate != null && date.isAfter(endDate) ? null : date;
+    }
+
+    // Records that the next occurrence was added and moves nextDueDate on
+    public void advance() {
+        materialized++;
+        nextDueDate = occurrence(materialized);
+    }
+
+    // The same rule, including how far it has got, for another copy of the user's data
+    public RecurringExpense copyTo(User user, Category category) {
+        RecurringExpense copy = new RecurringExpense(user, title, amount, category, frequency, interval,
+                startDate, endDate);
+        copy.materialized = materialized;
+        copy.nextDueDate = nextDueDate;
+        return copy;
+    }
+
+    public Long getId() { return id; }
+
+    public User getUser() { return user; }
+
+    public String getTitle() { return title; }
+
+    public Money getAmount() { return amount; }
+
+    public Category getCategory() { return category; }
+
+    @JsonProperty("category")
+    public String getCategoryName() { return category != null ? category.getName() : null; }
+
+    public Frequency getFrequency() { return frequency; }
+
+    public int getInterval() { return interval; }
+
+    public LocalDate getStartDate() { return startDate; }
+
+    public LocalDate getEndDate() { return endDate; }
+
+    public LocalDate getNextDueDate() { return nextDueDate; }
+}
@@ -0,0 +1,31 @@
+package com.spendwise.spendwise.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * How often a user's data has changed, persisted so every instance derives
+ * the same ETags from it. Stored on the user's shard and bumped in the
+ * transaction of each write.
+ */
+@Entity
+@Table(name = "user_data_versions")
+public class UserDataVersion {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private long version;
+
+    public UserDataVersion() {}
+
+    public UserDataVersion(Long userId, long version) {
+        this.userId = userId;
+        this.version = version;
+    }
+
+    public Long getUserId() { return userId; }
+
+    public long getVersion() { return version; }
+}
@@ -0,0 +1,35 @@
+package com.spendwise.spendwise.entity;
+
+import jakarta.persistence.*;
+
+// Which shard holds a user's data; only read from shard 0, the shard directory's home
+@Entity
+@Table(name = "user_shards")
+public class UserShard {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(nullable = false)
+    private int shard;
+
+    public UserShard() {}
+
+    public UserShard(Long userId, int shard) {
+        this.userId = userId;
+        this.shard = shard;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public void setShard(int shard) {
+        this.shard = shard;
+    }
+}
@@ -0,0 +1,36 @@
+package com.spendwise.spendwise.repository;
+
+import com.spendwise.spendwise.entity.ArchivedExpenseSummary;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ArchivedExpenseSummaryRepository extends JpaRepository<ArchivedExpenseSummary, Long> {
+
+    @Query("SELECT s FROM ArchivedExpenseSummary s JOIN FETCH s.category WHERE s.user = :user")
+    List<ArchivedExpenseSummary> findByUser(@Param("user") User user);
+
+    // Rows of [year, month, category id, cents, count]; scalars, so a repeated read sees concurrent archival runs
+    @Query("SELECT s.year, s.month, s.category.id, s.totalCents, s.expenseCount FROM ArchivedExpenseSummary s"
+            + " WHERE s.user = :user")
+    List<Object[]> sumByMonthAndCategory(@Param("user") User user);
+
+    // Rows of [year, month, category id, cents, count] for buckets from (startYear, startMonth) through (endYear, endMonth)
+    @Query("SELECT s.year, s.month, s.category.id, s.totalCents, s.expenseCount FROM ArchivedExpenseSummary s"
+            + " WHERE s.user = :user"
+            + " AND s.year * 12 + s.month BETWEEN :startYear * 12 + :startMonth AND :endYear * 12 + :endMonth")
+    List<Object[]> sumByMonthAndCategoryBetween(@Param("user") User user,
+                                                @Param("startYear") int startYear,
+                                                @Param("startMonth") int startMonth,
+                                                @Param("endYear") int endYear,
+                                                @Param("endMonth") int endMonth);
+
+    @Modifying
+    @Query("UPDATE ArchivedExpenseSummary s SET s.totalCents = s.totalCents + :amountCents, s.expenseCount = s.expenseCount + :count WHERE s.user = :user AND s.year = :year AND s.month = :month AND s.category = :category")
+    int increment(@Param("user") User user, @Param("year") int year, @Param("month") int month, @Param("category") Category category, @Param("amountCents") long amountCents, @Param("count") long count);
+}
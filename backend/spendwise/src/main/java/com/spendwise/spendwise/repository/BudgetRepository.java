@@ -1,8 +1,12 @@
 package com.spendwise.spendwise.repository;
 
+import com.spendwise.spendwise.dto.BudgetView;
 import com.spendwise.spendwise.entity.Budget;
+import com.spendwise.spendwise.entity.Category;
 import com.spendwise.spendwise.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
@@ -11,9 +15,12 @@ import java.util.List;
 @Repository
 public interface BudgetRepository extends JpaRepository<Budget, Long> {
 
-    List<Budget> findByUser(User user);
+    // Read path for listings and status: response rows only, with the category name joined in
+    @Query("SELECT new com.spendwise.spendwise.dto.BudgetView(b.id, c.id, c.name, b.amount, b.period, b.startDate, b.endDate)"
+            + " FROM Budget b LEFT JOIN b.category c WHERE b.user = :user")
+    List<BudgetView> findViewsByUser(@Param("user") User user);
 
-    List<Budget> findByUserAndCategory(User user, String category);
+    List<Budget> findByUserAndCategory(User user, Category category);
 
     List<Budget> findByUserAndPeriod(User user, String period);
 
@@ -0,0 +1,15 @@
+package com.spendwise.spendwise.repository;
+
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface CategoryRepository extends JpaRepository<Category, Integer> {
+
+    List<Category> findByUser(User user);
+
+    Optional<Category> findByUserAndName(User user, String name);
+}
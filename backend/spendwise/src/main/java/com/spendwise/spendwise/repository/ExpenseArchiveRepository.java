@@ -0,0 +1,15 @@
+package com.spendwise.spendwise.repository;
+
+import com.spendwise.spendwise.entity.ExpenseArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ExpenseArchiveRepository extends JpaRepository<ExpenseArchive, Long> {
+
+    // Grows with every committed archival run; a scalar, so it is read from the database even within a transaction
+    @Query("SELECT a.committedBytes FROM ExpenseArchive a WHERE a.userId = :userId")
+    Optional<Long> findCommittedBytes(@Param("userId") Long userId);
+}
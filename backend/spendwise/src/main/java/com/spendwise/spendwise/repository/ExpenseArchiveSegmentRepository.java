@@ -0,0 +1,25 @@
+package com.spendwise.spendwise.repository;
+
+import com.spendwise.spendwise.entity.ExpenseArchiveSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ExpenseArchiveSegmentRepository extends JpaRepository<ExpenseArchiveSegment, Long> {
+
+    // Segments that may hold expenses dated within [from, to], in file order
+    @Query("SELECT s FROM ExpenseArchiveSegment s WHERE s.userId = :userId"
+            + " AND s.newestDate >= :from AND s.oldestDate <= :to ORDER BY s.offset")
+    List<ExpenseArchiveSegment> findOverlapping(@Param("userId") Long userId, @Param("from") LocalDate from,
+                                                @Param("to") LocalDate to);
+
+    // Segments holding expenses dated on or before the date, newest first, for continuing a newest-first page
+    @Query("SELECT s FROM ExpenseArchiveSegment s WHERE s.userId = :userId AND s.oldestDate <= :to"
+            + " ORDER BY s.newestDate DESC, s.offset DESC")
+    List<ExpenseArchiveSegment> findNewestFirst(@Param("userId") Long userId, @Param("to") LocalDate to);
+
+    List<ExpenseArchiveSegment> findByUserIdOrderByOldestDate(Long userId);
+}
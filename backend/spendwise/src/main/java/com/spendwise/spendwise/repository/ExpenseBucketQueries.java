@@ -0,0 +1,13 @@
+package com.spendwise.spendwise.repository;
+
+import com.spendwise.spendwise.entity.User;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Queries whose GROUP BY depends on a runtime choice, mixed into ExpenseRepository
+public interface ExpenseBucketQueries {
+
+    // Rows of [bucket start, category id, sum(amount), count] for expenses dated within [startDate, endDate]
+    List<Object[]> sumByBucketAndCategory(User user, TimeBucket bucket, LocalDate startDate, LocalDate endDate);
+}
@@ -0,0 +1,27 @@
+package com.spendwise.spendwise.repository;
+
+import com.spendwise.spendwise.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.LocalDate;
+import java.util.List;
+
+class ExpenseBucketQueriesImpl implements ExpenseBucketQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Object[]> sumByBucketAndCategory(User user, TimeBucket bucket, LocalDate startDate, LocalDate endDate) {
+        // The bucket expression is one of the enum's constants, never client input
+        String start = bucket.startExpression();
+        return entityManager.createQuery("SELECT " + start + ", e.category.id, SUM(e.amount), COUNT(e)"
+                        + " FROM Expense e WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate"
+                        + " GROUP BY " + start + ", e.category.id", Object[].class)
+                .setParameter("user", user)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .getResultList();
+    }
+}
@@ -1,18 +1,101 @@
 package com.spendwise.spendwise.repository;
 
+import com.spendwise.spendwise.dto.ExpenseView;
 import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
 import com.spendwise.spendwise.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, ExpenseBucketQueries {
 
-    List<Expense> findByUser(User user);
+    // Listings select response rows directly, so no entities, snapshots or proxies are built per row
+    String VIEW = "SELECT new com.spendwise.spendwise.dto.ExpenseView(e.id, e.title, e.amount, c.name, e.date)"
+            + " FROM Expense e JOIN e.category c";
 
-    @Query("SELECT SUM(e.amount) FROM Expense e WHERE e.user = :user AND (:category IS NULL OR e.category = :category) AND e.date BETWEEN :startDate AND :endDate")
-    BigDecimal sumAmountByUserAndCategoryAndDateRange(@Param("user") User user, @Param("category") String category, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    @Query(VIEW + " WHERE e.user = :user ORDER BY e.date, e.id")
+    List<ExpenseView> findViewsByUser(@Param("user") User user);
+
+    @Query(VIEW + " WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate ORDER BY e.date, e.id")
+    List<ExpenseView> findViewsByUserAndDateBetween(@Param("user") User user, @Param("startDate") LocalDate startDate,
+                                                    @Param("endDate") LocalDate endDate);
+
+    @Query(VIEW + " WHERE e.id IN :ids")
+    List<ExpenseView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // First page of the keyset listing, newest first
+    @Query(VIEW + " WHERE e.user = :user"
+            + " AND (:categoryId IS NULL OR c.id = :categoryId)"
+            + " AND (:minAmount IS NULL OR e.amount >= :minAmount)"
+            + " AND (:maxAmount IS NULL OR e.amount <= :maxAmount)"
+            + " ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseView> findPage(@Param("user") User user, @Param("categoryId") Integer categoryId,
+                               @Param("minAmount") Money minAmount, @Param("maxAmount") Money maxAmount,
+                               Limit limit);
+
+    // Next page of the keyset listing: rows strictly after the (date, id) cursor
+    @Query(VIEW + " WHERE e.user = :user"
+            + " AND (e.date < :cursorDate OR (e.date = :cursorDate AND e.id < :cursorId))"
+            + " AND (:categoryId IS NULL OR c.id = :categoryId)"
+            + " AND (:minAmount IS NULL OR e.amount >= :minAmount)"
+            + " AND (:maxAmount IS NULL OR e.amount <= :maxAmount)"
+            + " ORDER BY e.date DESC, e.id DESC")
+    List<ExpenseView> findPageAfter(@Param("user") User user, @Param("cursorDate") LocalDate cursorDate,
+                                    @Param("cursorId") Long cursorId, @Param("categoryId") Integer categoryId,
+                                    @Param("minAmount") Money minAmount, @Param("maxAmount") Money maxAmount,
+                                    Limit limit);
+
+    // Cursor over a user's whole history for exports; callers must consume it inside a transaction and close it
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(VIEW + " WHERE e.user = :user ORDER BY e.date, e.id")
+    Stream<ExpenseView> streamViewsByUser(@Param("user") User user);
+
+    // Rows of [id, date, amount cents, category id] in (date, id) order, for the in-memory analytics columns
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e.id, e.date, cast(e.amount as Long), e.category.id FROM Expense e WHERE e.user = :user ORDER BY e.date, e.id")
+    Stream<Object[]> streamColumnsByUser(@Param("user") User user);
+
+    // Rows of [id, date, category id, title] in (date, id) order, for the in-memory title search index
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT e.id, e.date, e.category.id, e.title FROM Expense e WHERE e.user = :user ORDER BY e.date, e.id")
+    Stream<Object[]> streamTitlesByUser(@Param("user") User user);
+
+    // Rows of [category id, date, sum(amount)] for every day with spending in the range
+    @Query("SELECT e.category.id, e.date, SUM(e.amount) FROM Expense e WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate GROUP BY e.category.id, e.date")
+    List<Object[]> sumByCategoryAndDate(@Param("user") User user, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Rows of [year, month, category id, sum(amount), count] used to rebuild/verify expense_rollups
+    @Query("SELECT extract(year from e.date), extract(month from e.date), e.category.id, SUM(e.amount), COUNT(e) FROM Expense e WHERE e.user = :user GROUP BY extract(year from e.date), extract(month from e.date), e.category.id")
+    List<Object[]> aggregateByMonthAndCategory(@Param("user") User user);
+
+    // Rows of [id, date, cents, category id, category name, title] dated before the cutoff, oldest first, for archiving
+    @Query("SELECT e.id, e.date, cast(e.amount as Long), c.id, c.name, e.title FROM Expense e JOIN e.category c"
+            + " WHERE e.user = :user AND e.date < :before ORDER BY e.date, e.id")
+    List<Object[]> findArchivable(@Param("user") User user, @Param("before") LocalDate before, Limit limit);
+
+    @Query("SELECT DISTINCT e.user.id FROM Expense e WHERE e.date < :before")
+    List<Long> findUserIdsWithExpensesBefore(@Param("before") LocalDate before);
+
+    @Modifying
+    @Query("DELETE FROM Expense e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
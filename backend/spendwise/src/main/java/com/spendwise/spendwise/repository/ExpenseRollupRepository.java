@@ -0,0 +1,30 @@
+package com.spendwise.spendwise.repository;
+
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.ExpenseRollup;
+import com.spendwise.spendwise.entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface ExpenseRollupRepository extends JpaRepository<ExpenseRollup, Long> {
+
+    List<ExpenseRollup> findByUser(User user);
+
+    List<ExpenseRollup> findByUserAndYear(User user, int year);
+
+    List<ExpenseRollup> findByUserAndYearAndMonth(User user, int year, int month);
+
+    List<ExpenseRollup> findByUserAndYearBetween(User user, int startYear, int endYear);
+
+    @Modifying
+    @Query("UPDATE ExpenseRollup r SET r.totalCents = r.totalCents + :amountCents, r.expenseCount = r.expenseCount + :count WHERE r.user = :user AND r.year = :year AND r.month = :month AND r.category = :category")
+    int increment(@Param("user") User user, @Param("year") int year, @Param("month") int month, @Param("category") Category category, @Param("amountCents") long amountCents, @Param("count") long count);
+
+    @Modifying
+    @Query("DELETE FROM ExpenseRollup r WHERE r.user = :user")
+    int deleteByUser(@Param("user") User user);
+}
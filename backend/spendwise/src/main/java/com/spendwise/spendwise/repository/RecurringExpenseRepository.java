@@ -0,0 +1,26 @@
+package com.spendwise.spendwise.repository;
+
+import com.spendwise.spendwise.entity.RecurringExpense;
+import com.spendwise.spendwise.entity.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RecurringExpenseRepository extends JpaRepository<RecurringExpense, Long> {
+
+    @Query("SELECT r FROM RecurringExpense r JOIN FETCH r.category WHERE r.user = :user ORDER BY r.id")
+    List<RecurringExpense> findByUser(@Param("user") User user);
+
+    // Rules with an occurrence on or before the given day, oldest first; a range scan of the next-due index
+    @Query("SELECT r FROM RecurringExpense r WHERE r.nextDueDate <= :day ORDER BY r.nextDueDate, r.id")
+    List<RecurringExpense> findDue(@Param("day") LocalDate day, Limit limit);
+
+    @Query("SELECT MIN(r.nextDueDate) FROM RecurringExpense r")
+    LocalDate findEarliestDueDate();
+}
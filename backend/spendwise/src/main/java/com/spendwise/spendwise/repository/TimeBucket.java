@@ -0,0 +1,53 @@
+package com.spendwise.spendwise.repository;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Bucket sizes for time series. Each bucket is identified by its first day;
+ * the HQL expression maps an expense date to that day inside the grouped
+ * query and start/next do the same on the Java side. Weeks start on Monday.
+ */
+public enum TimeBucket {
+    DAY("e.date"),
+    WEEK("truncate(e.date, week)"),
+    MONTH("truncate(e.date, month)"),
+    QUARTER("truncate(e.date, quarter)"),
+    YEAR("truncate(e.date, year)");
+
+    private final String startExpression;
+
+    TimeBucket(String startExpression) {
+        this.startExpression = startExpression;
+    }
+
+    // HQL for the first day of the bucket containing e.date
+    String startExpression() {
+        return startExpression;
+    }
+
+    public LocalDate start(LocalDate date) {
+        return switch (this) {
+            case DAY -> date;
+            case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> date.withDayOfMonth(1);
+            case QUARTER -> date.withDayOfMonth(1).withMonth((date.getMonthValue() - 1) / 3 * 3 + 1);
+            case YEAR -> date.withDayOfYear(1);
+        };
+    }
+
+    public LocalDate next(LocalDate bucketStart) {
+        return plus(bucketStart, 1);
+    }
+
+    public LocalDate plus(LocalDate bucketStart, long buckets) {
+        return switch (this) {
+            case DAY -> bucketStart.plusDays(buckets);
+            case WEEK -> bucketStart.plusWeeks(buckets);
+            case MONTH -> bucketStart.plusMonths(buckets);
+            case QUARTER -> bucketStart.plusMonths(3 * buckets);
+            case YEAR -> bucketStart.plusYears(buckets);
+        };
+    }
+}
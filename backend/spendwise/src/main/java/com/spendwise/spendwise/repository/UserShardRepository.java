@@ -0,0 +1,7 @@
+package com.spendwise.spendwise.repository;
+
+import com.spendwise.spendwise.entity.UserShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface UserShardRepository extends JpaRepository<UserShard, Long> {
+}
@@ -0,0 +1,16 @@
+package com.spendwise.spendwise.security;
+
+// Thrown when the password hashing pool and its queue are both full
+public class HashingCapacityExceededException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public HashingCapacityExceededException(int retryAfterSeconds) {
+        super("Too many concurrent authentication requests");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,63 @@
+package com.spendwise.spendwise.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Authenticates requests carrying "Authorization: Bearer &lt;token&gt;".
+ * Browsers cannot set headers on an EventSource, so the paths given as
+ * query-token paths also accept an access_token parameter holding a token
+ * issued for QUERY_TOKEN_SCOPE; session tokens are never taken from the URL.
+ * The API still takes the user as an email parameter; a request whose email
+ * parameter names a different user than its token is rejected.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    public static final String QUERY_TOKEN_SCOPE = "query";
+    public static final String QUERY_TOKEN_PARAMETER = "access_token";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenService tokenService;
+    private final Set<String> queryTokenPaths;
+
+    public TokenAuthenticationFilter(TokenService tokenService, Set<String> queryTokenPaths) {
+        this.tokenService = tokenService;
+        this.queryTokenPaths = queryTokenPaths;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        TokenService.TokenClaims claims = null;
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            claims = tokenService.verify(header.substring(BEARER_PREFIX.length()).trim());
+        } else if (request.getParameter(QUERY_TOKEN_PARAMETER) != null
+                && queryTokenPaths.contains(request.getRequestURI().substring(request.getContextPath().length()))) {
+            claims = tokenService.verifyScoped(request.getParameter(QUERY_TOKEN_PARAMETER), QUERY_TOKEN_SCOPE);
+        }
+        if (claims != null) {
+            String email = request.getParameter("email");
+            if (email != null && !email.equalsIgnoreCase(claims.email())) {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN, "Token does not belong to " + email);
+                return;
+            }
+            UsernamePasswordAuthenticationToken authentication =
+                    new UsernamePasswordAuthenticationToken(claims.email(), null, List.of());
+            authentication.setDetails(claims);
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,25 @@
+package com.spendwise.spendwise.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Signing keys for session tokens. Tokens are signed with activeKey and
+ * verified with whichever key id they name, so a key can be rotated by adding
+ * a new entry, switching activeKey to it and removing the old entry once the
+ * tokens it signed have expired.
+ *
+ * @param activeKey id of the key used to sign new tokens
+ * @param keys      key id to base64-encoded secret (at least 32 bytes)
+ * @param ttl       lifetime of issued tokens
+ */
+@ConfigurationProperties(prefix = "spendwise.auth.token")
+public record TokenProperties(String activeKey, Map<String, String> keys, Duration ttl) {
+
+    public TokenProperties {
+        keys = keys == null ? Map.of() : Map.copyOf(keys);
+        ttl = ttl == null ? Duration.ofHours(12) : ttl;
+    }
+}
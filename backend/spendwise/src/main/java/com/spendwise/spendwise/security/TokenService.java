@@ -0,0 +1,172 @@
+package com.spendwise.spendwise.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Issues and verifies compact HMAC-SHA256 session tokens of the form
+ * base64url(keyId|userId|email|expiresAtEpochSeconds).base64url(signature),
+ * each field itself base64url-encoded so an email may contain '|'. Scoped
+ * tokens carry a fifth field naming the one use they are good for; they are
+ * never accepted as session tokens, nor session tokens in their place.
+ * Verification is a single HMAC over a short payload, so requests are
+ * authenticated without BCrypt or a database lookup.
+ */
+@Service
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, SecretKeySpec> keys = new HashMap<>();
+    private final String activeKey;
+    private final TokenProperties properties;
+    private final Clock clock;
+
+    // Mac instances are not thread-safe and costly to create, so each thread keeps one per key
+    private final ThreadLocal<Map<String, Mac>> macs = ThreadLocal.withInitial(HashMap::new);
+
+    @Autowired
+    public TokenService(TokenProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    TokenService(TokenProperties properties, Clock clock) {
+        this.properties = properties;
+        this.clock = clock;
+        properties.keys().forEach((id, secret) -> {
+            byte[] bytes = Base64.getDecoder().decode(secret);
+            if (bytes.length < 32) {
+                throw new IllegalArgumentException("Token key '" + id + "' must be at least 32 bytes");
+            }
+            keys.put(id, new SecretKeySpec(bytes, ALGORITHM));
+        });
+
+        if (keys.isEmpty()) {
+            // Tokens signed with a random key do not survive a restart
+            byte[] bytes = new byte[32];
+            new SecureRandom().nextBytes(bytes);
+            keys.put("ephemeral", new SecretKeySpec(bytes, ALGORITHM));
+            this.activeKey = "ephemeral";
+            log.warn("No spendwise.auth.token.keys configured; using a random signing key");
+        } else if (properties.activeKey() == null || !keys.containsKey(properties.activeKey())) {
+            throw new IllegalArgumentException("spendwise.auth.token.active-key must name one of the configured keys");
+        } else {
+            this.activeKey = properties.activeKey();
+        }
+    }
+
+    public IssuedToken issue(Long userId, String email) {
+        return issue(userId, email, null, properties.ttl());
+    }
+
+    // A token only verifyScoped accepts, for credentials that cannot travel in a header
+    public IssuedToken issueScoped(Long userId, String email, String scope, Duration ttl) {
+        return issue(userId, email, scope, ttl);
+    }
+
+    private IssuedToken issue(Long userId, String email, String scope, Duration ttl) {
+        Instant expiresAt = clock.instant().plus(ttl);
+        String payload = String.join("|", encodeField(activeKey), encodeField(String.valueOf(userId)),
+                encodeField(email), encodeField(String.valueOf(expiresAt.getEpochSecond())));
+        if (scope != null) {
+            payload += "|" + encodeField(scope);
+        }
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        String token = ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(activeKey, payloadBytes));
+        return new IssuedToken(token, expiresAt);
+    }
+
+    // Returns null for malformed, forged, expired, scoped or unknown-key tokens
+    public TokenClaims verify(String token) {
+        return verify(token, null);
+    }
+
+    // Returns null unless the token was issued by issueScoped for this scope and is still valid
+    public TokenClaims verifyScoped(String token, String scope) {
+        return verify(token, scope);
+    }
+
+    private TokenClaims verify(String token, String scope) {
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return null;
+        }
+
+        byte[] payloadBytes;
+        byte[] signature;
+        try {
+            payloadBytes = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        String[] parts = new String(payloadBytes, StandardCharsets.UTF_8).split("\\|", -1);
+        if (parts.length != (scope == null ? 4 : 5)) {
+            return null;
+        }
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = new String(DECODER.decode(parts[i]), StandardCharsets.UTF_8);
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!keys.containsKey(parts[0]) || (scope != null && !scope.equals(parts[4]))) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(signature, sign(parts[0], payloadBytes))) {
+            return null;
+        }
+
+        try {
+            long expiresAt = Long.parseLong(parts[3]);
+            if (clock.instant().getEpochSecond() >= expiresAt) {
+                return null;
+            }
+            return new TokenClaims(Long.parseLong(parts[1]), parts[2], Instant.ofEpochSecond(expiresAt));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String encodeField(String value) {
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private byte[] sign(String keyId, byte[] payload) {
+        Mac mac = macs.get().computeIfAbsent(keyId, id -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(keys.get(id));
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+            }
+        });
+        return mac.doFinal(payload);
+    }
+
+    public record IssuedToken(String token, Instant expiresAt) {}
+
+    public record TokenClaims(Long userId, String email, Instant expiresAt) {}
+}
@@ -0,0 +1,408 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.BudgetStatus;
+import com.spendwise.spendwise.dto.BudgetView;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.BudgetRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.sharding.ShardContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes budget status changes to server-sent event subscribers. A
+ * subscription is an async request, so idle subscribers hold no thread.
+ * Writers only record what changed and hand off: each user's changes are
+ * coalesced and recomputed for the affected budgets alone on a small pool,
+ * and each subscriber has a bounded buffer of pending events, one per budget,
+ * drained on the same pool. A subscriber that falls a full buffer behind is
+ * disconnected and gets a fresh snapshot when it reconnects.
+ */
+@Service
+public class BudgetStatusBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(BudgetStatusBroadcaster.class);
+
+    private final BudgetStatusService budgetStatusService;
+    private final BudgetRepository budgetRepository;
+    private final UserRepository userRepository;
+    private final long timeoutMillis;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final ConcurrentMap<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService executor;
+    private final ScheduledExecutorService heartbeats;
+    private final Counter slowDisconnects;
+
+    public BudgetStatusBroadcaster(BudgetStatusService budgetStatusService,
+                                   BudgetRepository budgetRepository,
+                                   UserRepository userRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${spendwise.budget-stream.threads:2}") int threads,
+                                   @Value("${spendwise.budget-stream.buffer-size:1024}") int bufferSize,
+                                   @Value("${spendwise.budget-stream.max-subscribers:10000}") int maxSubscribers,
+                                   @Value("${spendwise.budget-stream.timeout:30m}") Duration timeout,
+                                   @Value("${spendwise.budget-stream.heartbeat:25s}") Duration heartbeat) {
+        this.budgetStatusService = budgetStatusService;
+        this.budgetRepository = budgetRepository;
+        this.userRepository = userRepository;
+        this.timeoutMillis = timeout.toMillis();
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "budget-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "budget-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+
+        Gauge.builder("spendwise.budget-stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open budget status streams")
+                .register(meterRegistry);
+        this.slowDisconnects = Counter.builder("spendwise.budget-stream.slow-disconnects")
+                .description("Budget status streams closed because their buffer filled up")
+                .register(meterRegistry);
+    }
+
+    // Opens a stream that starts with every budget's status; null when the node is at max-subscribers
+    public SseEmitter subscribe(User user) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(user.getId(), new SseEmitter(timeoutMillis));
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onError(e -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(subscriber.emitter::complete);
+
+        Channel channel = channels.compute(user.getId(), (userId, existing) -> {
+            Channel c = existing == null ? new Channel(userId) : existing;
+            c.subscribers.add(subscriber);
+            return c;
+        });
+        channel.joined(subscriber);
+        refresh(channel);
+        return subscriber.emitter;
+    }
+
+    @TransactionalEventListener
+    public void onExpenseAdded(ExpenseAddedEvent event) {
+        Channel channel = channels.get(event.userId());
+        if (channel != null) {
+            channel.expenseAdded(event.categoryId(), event.date());
+            refresh(channel);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onExpensesImported(ExpensesImportedEvent event) {
+        Channel channel = channels.get(event.userId());
+        if (channel != null) {
+            channel.changeAll();
+            refresh(channel);
+        }
+    }
+
+    // Call after a budget was created or updated
+    public void budgetChanged(Long userId, Long budgetId) {
+        Channel channel = channels.get(userId);
+        if (channel != null) {
+            channel.budgetChanged(budgetId);
+            refresh(channel);
+        }
+    }
+
+    // Call after a budget was deleted
+    public void budgetRemoved(Long userId, Long budgetId) {
+        Channel channel = channels.get(userId);
+        if (channel != null) {
+            for (Subscriber subscriber : channel.subscribers) {
+                offer(subscriber, budgetId, new Removed(budgetId));
+            }
+        }
+    }
+
+    private void refresh(Channel channel) {
+        if (channel.scheduled.compareAndSet(false, true)) {
+            executor.execute(ShardContext.wrap(() -> drain(channel)));
+        }
+    }
+
+    // Recomputes the budgets touched since the last run, until no more changes come in
+    private void drain(Channel channel) {
+        while (true) {
+            Changes changes = channel.takeChanges();
+            if (changes == null) {
+                channel.scheduled.set(false);
+                if (!channel.hasChanges() || !channel.scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                User user = userRepository.getReferenceById(channel.userId);
+                // New subscribers need every budget; the others only the ones that changed
+                List<BudgetView> budgets = new ArrayList<>();
+                for (BudgetView budget : budgetRepository.findViewsByUser(user)) {
+                    if (!changes.joined().isEmpty() || changes.affects(budget)) {
+                        budgets.add(budget);
+                    }
+                }
+                for (BudgetStatus status : budgetStatusService.statuses(user, budgets, LocalDate.now())) {
+                    boolean changed = changes.affects(status.budget);
+                    for (Subscriber subscriber : channel.subscribers) {
+                        if (changed || changes.joined().contains(subscriber)) {
+                            offer(subscriber, status.budget.id(), status);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not refresh budget statuses for user {}", channel.userId, e);
+            }
+        }
+    }
+
+    private void offer(Subscriber subscriber, Long budgetId, Object event) {
+        if (!subscriber.offer(budgetId, event, bufferSize)) {
+            slowDisconnects.increment();
+            subscriber.emitter.complete();
+            return;
+        }
+        flush(subscriber);
+    }
+
+    private void flush(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            executor.execute(() -> drain(subscriber));
+        }
+    }
+
+    // Writes the subscriber's pending events in batches; only one drain per subscriber runs at a time
+    private void drain(Subscriber subscriber) {
+        while (true) {
+            List<Object> events = subscriber.take();
+            if (events.isEmpty()) {
+                subscriber.scheduled.set(false);
+                if (!subscriber.hasPending() || !subscriber.scheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                for (Object event : events) {
+                    if (event instanceof BudgetStatus) {
+                        subscriber.emitter.send(SseEmitter.event().name("budget-status").data(event));
+                    } else if (event instanceof Removed) {
+                        subscriber.emitter.send(SseEmitter.event().name("budget-removed").data(event));
+                    } else {
+                        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client went away or the stream already completed
+                unsubscribe(subscriber);
+                subscriber.scheduled.set(false);
+                return;
+            }
+        }
+    }
+
+    // Keeps proxies from closing idle streams and detects clients that disconnected
+    private void heartbeat() {
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                if (subscriber.heartbeat()) {
+                    flush(subscriber);
+                }
+            }
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriberCount.decrementAndGet();
+        channels.computeIfPresent(subscriber.userId, (userId, channel) -> {
+            channel.subscribers.remove(subscriber);
+            return channel.subscribers.isEmpty() ? null : channel;
+        });
+    }
+
+    // Published before the web server stops, whose graceful shutdown would otherwise wait out every open stream
+    @EventListener(ContextClosedEvent.class)
+    public void closeStreams() {
+        for (Channel channel : channels.values()) {
+            for (Subscriber subscriber : channel.subscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        executor.shutdownNow();
+        closeStreams();
+    }
+
+    public record Removed(Long id) {}
+
+    // What changed for one user since its statuses were last recomputed
+    private record Changes(boolean all, Set<Long> budgetIds, Map<Integer, long[]> expenseDays, Set<Subscriber> joined) {
+
+        boolean affects(BudgetView budget) {
+            if (all || budgetIds.contains(budget.id())) {
+                return true;
+            }
+            long start = budget.startDate().toEpochDay();
+            long end = budget.endDate().toEpochDay();
+            for (Map.Entry<Integer, long[]> entry : expenseDays.entrySet()) {
+                long[] days = entry.getValue();
+                if ((budget.categoryId() == null || budget.categoryId().equals(entry.getKey()))
+                        && days[0] <= end && days[1] >= start) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // One user's subscribers and their pending changes
+    private static final class Channel {
+        private final Long userId;
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private boolean all;
+        private Set<Long> budgetIds = new HashSet<>();
+        // Range of expense days added per category, so a burst of expenses costs one recomputation
+        private Map<Integer, long[]> expenseDays = new HashMap<>();
+        private Set<Subscriber> joined = new HashSet<>();
+
+        Channel(Long userId) {
+            this.userId = userId;
+        }
+
+        synchronized void changeAll() {
+            all = true;
+        }
+
+        synchronized void joined(Subscriber subscriber) {
+            joined.add(subscriber);
+        }
+
+        synchronized void budgetChanged(Long budgetId) {
+            budgetIds.add(budgetId);
+        }
+
+        synchronized void expenseAdded(int categoryId, LocalDate date) {
+            long day = date.toEpochDay();
+            long[] days = expenseDays.computeIfAbsent(categoryId, c -> new long[]{day, day});
+            days[0] = Math.min(days[0], day);
+            days[1] = Math.max(days[1], day);
+        }
+
+        synchronized boolean hasChanges() {
+            return all || !budgetIds.isEmpty() || !expenseDays.isEmpty() || !joined.isEmpty();
+        }
+
+        synchronized Changes takeChanges() {
+            if (!hasChanges()) {
+                return null;
+            }
+            Changes changes = new Changes(all, budgetIds, expenseDays, joined);
+            all = false;
+            budgetIds = new HashSet<>();
+            expenseDays = new HashMap<>();
+            joined = new HashSet<>();
+            return changes;
+        }
+    }
+
+    private static final class Subscriber {
+        private static final Object HEARTBEAT = new Object();
+
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Latest event per budget id, in the order budgets first changed
+        private final Map<Long, Object> pending = new LinkedHashMap<>();
+        private boolean heartbeatDue;
+
+        Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        // False when the buffer is full
+        synchronized boolean offer(Long budgetId, Object event, int bufferSize) {
+            if (pending.size() >= bufferSize && !pending.containsKey(budgetId)) {
+                return false;
+            }
+            pending.put(budgetId, event);
+            return true;
+        }
+
+        // True when the heartbeat needs flushing; anything already pending serves as one
+        synchronized boolean heartbeat() {
+            if (!pending.isEmpty()) {
+                return false;
+            }
+            heartbeatDue = true;
+            return true;
+        }
+
+        synchronized boolean hasPending() {
+            return heartbeatDue || !pending.isEmpty();
+        }
+
+        synchronized List<Object> take() {
+            List<Object> events = new ArrayList<>(pending.values());
+            if (events.isEmpty() && heartbeatDue) {
+                events.add(HEARTBEAT);
+            }
+            pending.clear();
+            heartbeatDue = false;
+            return events;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.BudgetView;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the spent amount of all of a user's budgets with one grouped query.
+ * Expenses are summed per (category id, day) over the union of all budget windows
+ * and each daily sum is then credited to every budget whose window and
+ * category it falls into.
+ */
+@Service
+public class BudgetStatusCalculator {
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseArchiveService archiveService;
+
+    public BudgetStatusCalculator(ExpenseRepository expenseRepository, ExpenseArchiveService archiveService) {
+        this.expenseRepository = expenseRepository;
+        this.archiveService = archiveService;
+    }
+
+    // Spent cents per budget, in the same order as the given budgets
+    @Transactional(readOnly = true)
+    public long[] calculateSpent(User user, List<BudgetView> budgets) {
+        if (budgets.isEmpty()) {
+            return new long[0];
+        }
+
+        LocalDate start = budgets.get(0).startDate();
+        LocalDate end = budgets.get(0).endDate();
+        // Budgets without a category count every expense; the rest only their own category
+        List<Integer> overallBudgets = new ArrayList<>();
+        Map<Integer, List<Integer>> budgetsByCategory = new HashMap<>();
+        for (int i = 0; i < budgets.size(); i++) {
+            BudgetView budget = budgets.get(i);
+            if (budget.startDate().isBefore(start)) {
+                start = budget.startDate();
+            }
+            if (budget.endDate().isAfter(end)) {
+                end = budget.endDate();
+            }
+            if (budget.categoryId() == null) {
+                overallBudgets.add(i);
+            } else {
+                budgetsByCategory.computeIfAbsent(budget.categoryId(), c -> new ArrayList<>()).add(i);
+            }
+        }
+
+        long[] spent = new long[budgets.size()];
+        // Only budgets reaching back past the archive horizon read the archive
+        LocalDate from = start;
+        LocalDate to = end;
+        List<Object[]> rows = archiveService.readConsistently(user, () -> {
+            List<Object[]> sums = new ArrayList<>(expenseRepository.sumByCategoryAndDate(user, from, to));
+            sums.addAll(archiveService.sumByCategoryAndDate(user, from, to));
+            return sums;
+        });
+        for (Object[] row : rows) {
+            Integer categoryId = (Integer) row[0];
+            LocalDate date = (LocalDate) row[1];
+            long amount = ((Number) row[2]).longValue();
+            credit(spent, budgets, overallBudgets, date, amount);
+            credit(spent, budgets, budgetsByCategory.getOrDefault(categoryId, List.of()), date, amount);
+        }
+
+        return spent;
+    }
+
+    private static void credit(long[] spent, List<BudgetView> budgets, List<Integer> candidates, LocalDate date, long amount) {
+        for (int index : candidates) {
+            BudgetView budget = budgets.get(index);
+            if (!date.isBefore(budget.startDate()) && !date.isAfter(budget.endDate())) {
+                spent[index] += amount;
+            }
+        }
+    }
+}
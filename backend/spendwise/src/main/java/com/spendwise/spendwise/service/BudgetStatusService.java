@@ -0,0 +1,43 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.BudgetStatus;
+import com.spendwise.spendwise.dto.BudgetView;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.BudgetRepository;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Budget statuses as served by /api/budgets/status and pushed to its stream
+@Service
+public class BudgetStatusService {
+
+    private final BudgetRepository budgetRepository;
+    private final BudgetStatusCalculator budgetStatusCalculator;
+    private final SpendingInsightsService insightsService;
+
+    public BudgetStatusService(BudgetRepository budgetRepository, BudgetStatusCalculator budgetStatusCalculator,
+                               SpendingInsightsService insightsService) {
+        this.budgetRepository = budgetRepository;
+        this.budgetStatusCalculator = budgetStatusCalculator;
+        this.insightsService = insightsService;
+    }
+
+    public List<BudgetStatus> statuses(User user, LocalDate today) {
+        return statuses(user, budgetRepository.findViewsByUser(user), today);
+    }
+
+    public List<BudgetStatus> statuses(User user, List<BudgetView> budgets, LocalDate today) {
+        // Spent amounts for all budgets come from a single grouped query
+        long[] spentCents = budgetStatusCalculator.calculateSpent(user, budgets);
+        List<BudgetStatus> statuses = new ArrayList<>(budgets.size());
+        for (int i = 0; i < budgets.size(); i++) {
+            BudgetView budget = budgets.get(i);
+            statuses.add(new BudgetStatus(budget, spentCents[i],
+                    insightsService.projectedCents(user, budget, spentCents[i], today)));
+        }
+        return statuses;
+    }
+}
@@ -0,0 +1,123 @@
+package com.spendwise.spendwise.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spendwise.spendwise.config.CacheConfig;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.CategoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Translates between category names, which the API speaks, and the per-user
+ * category ids stored on expenses, budgets and rollups. Each active user's
+ * dictionary is cached in both directions; since categories are never renamed
+ * or deleted the cache only ever grows with new entries.
+ */
+@Service
+public class CategoryDictionary {
+
+    private final CategoryRepository categoryRepository;
+    private final TransactionTemplate newTransaction;
+    private final Cache<Long, UserCategories> dictionaries;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CategoryDictionary(CategoryRepository categoryRepository,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry) {
+        this.categoryRepository = categoryRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.dictionaries = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .recordStats()
+                .build();
+        CacheConfig.monitor(meterRegistry, dictionaries, "categoryDictionaries");
+    }
+
+    // The user's category with this name, created on first use. The result is detached and only meant as a foreign key.
+    public Category resolve(User user, String name) {
+        UserCategories categories = dictionary(user);
+        Integer id = categories.ids.get(name);
+        if (id == null) {
+            id = create(user, name, categories);
+        }
+        return new Category(id, user, name);
+    }
+
+    // Id of an existing category, or null if the user never used the name; names created elsewhere are looked up once
+    public Integer findId(User user, String name) {
+        UserCategories categories = dictionary(user);
+        Integer id = categories.ids.get(name);
+        if (id == null) {
+            id = categoryRepository.findByUserAndName(user, name).map(Category::getId).orElse(null);
+            if (id != null) {
+                categories.put(id, name);
+            }
+        }
+        return id;
+    }
+
+    // Name of one of the user's categories; ids created outside this dictionary are looked up once
+    public String name(User user, int id) {
+        UserCategories categories = dictionary(user);
+        String name = categories.names.get(id);
+        if (name == null) {
+            Category category = categoryRepository.findById(id).orElseThrow(
+                    () -> new IllegalStateException("Unknown category id " + id));
+            name = category.getName();
+            categories.put(id, name);
+        }
+        return name;
+    }
+
+    private UserCategories dictionary(User user) {
+        return dictionaries.get(user.getId(), userId -> {
+            UserCategories categories = new UserCategories();
+            categoryRepository.findByUser(user).forEach(c -> categories.put(c.getId(), c.getName()));
+            return categories;
+        });
+    }
+
+    /**
+     * Inserted in its own transaction so a lost race on the unique constraint
+     * does not roll back the caller. Saved through the repository, whose
+     * exception translation is what turns that violation into the
+     * DataIntegrityViolationException caught here.
+     */
+    private int create(User user, String name, UserCategories categories) {
+        Integer id;
+        try {
+            id = newTransaction.execute(status -> categoryRepository.save(
+                    new Category(entityManager.getReference(User.class, user.getId()), name)).getId());
+        } catch (DataIntegrityViolationException e) {
+            id = categoryRepository.findByUserAndName(user, name).orElseThrow(() -> e).getId();
+        }
+        categories.put(id, name);
+        return id;
+    }
+
+    private static class UserCategories {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+        void put(Integer id, String name) {
+            ids.put(name, id);
+            names.put(id, name);
+        }
+    }
+}
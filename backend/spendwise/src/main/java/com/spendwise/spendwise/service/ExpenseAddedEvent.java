@@ -0,0 +1,7 @@
+package com.spendwise.spendwise.service;
+
+import java.time.LocalDate;
+
+// Published by ExpenseService for every new expense; listeners that keep derived read models should react after commit
+public record ExpenseAddedEvent(Long userId, Long expenseId, LocalDate date, long amountCents, int categoryId,
+                                String title) {}
@@ -0,0 +1,149 @@
+package com.spendwise.spendwise.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spendwise.spendwise.config.CacheConfig;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Read-side engine that answers report queries from an in-memory columnar
+ * copy of each active user's expenses (see ExpenseColumns) instead of
+ * Hibernate entities. Histories are loaded on first use, kept in step with
+ * new expenses after commit, and evicted by size, idleness or GC pressure.
+ * Only used by the report endpoints when spendwise.analytics.enabled is set.
+ */
+@Service
+public class ExpenseAnalyticsEngine {
+
+    // Bytes held per row across the four columns
+    private static final int BYTES_PER_ROW = 8 + 4 + 8 + 4;
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseArchiveService archiveService;
+    private final CategoryDictionary categoryDictionary;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean enabled;
+    private final int parallelThreshold;
+    private final Cache<Long, ExpenseColumns> columns;
+
+    public ExpenseAnalyticsEngine(ExpenseRepository expenseRepository,
+                                  ExpenseArchiveService archiveService,
+                                  CategoryDictionary categoryDictionary,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${spendwise.analytics.enabled:false}") boolean enabled,
+                                  @Value("${spendwise.analytics.max-cached-rows:5000000}") long maxCachedRows,
+                                  @Value("${spendwise.analytics.idle-expiry:30m}") Duration idleExpiry,
+                                  @Value("${spendwise.analytics.parallel-threshold:250000}") int parallelThreshold) {
+        this.expenseRepository = expenseRepository;
+        this.archiveService = archiveService;
+        this.categoryDictionary = categoryDictionary;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.parallelThreshold = parallelThreshold;
+        // Soft values let the GC reclaim histories under memory pressure before the weight bound is reached
+        this.columns = Caffeine.newBuilder()
+                .maximumWeight(maxCachedRows)
+                .weigher((Long userId, ExpenseColumns history) -> history.size())
+                .expireAfterAccess(idleExpiry)
+                .softValues()
+                .recordStats()
+                .build();
+        CacheConfig.monitor(meterRegistry, columns, "expenseColumns");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Total, count and per-category cents of expenses dated within [start, end]; null bounds are open
+    public Totals totals(User user, LocalDate start, LocalDate end) {
+        ExpenseColumns history = history(user);
+        int from = start == null ? 0 : history.lowerBound((int) start.toEpochDay());
+        int to = end == null ? history.size() : history.lowerBound((int) end.toEpochDay() + 1);
+
+        long[] byCategory = history.sumByCategory(from, to, parallelThreshold);
+        long totalCents = 0;
+        Map<String, Long> categoryCents = new HashMap<>();
+        for (int index = 0; index < byCategory.length; index++) {
+            totalCents += byCategory[index];
+            if (byCategory[index] != 0) {
+                categoryCents.put(categoryDictionary.name(user, history.categoryId(index)), byCategory[index]);
+            }
+        }
+        return new Totals(totalCents, to - from, categoryCents);
+    }
+
+    // Cents spent in each month of the year, indexed 1..12
+    public long[] monthlyTotals(User user, int year) {
+        ExpenseColumns history = history(user);
+        long[] months = new long[13];
+        int from = history.lowerBound((int) LocalDate.of(year, 1, 1).toEpochDay());
+        for (int month = 1; month <= 12; month++) {
+            LocalDate next = month == 12 ? LocalDate.of(year + 1, 1, 1) : LocalDate.of(year, month + 1, 1);
+            int to = history.lowerBound((int) next.toEpochDay());
+            months[month] = history.sum(from, to);
+            from = to;
+        }
+        return months;
+    }
+
+    // Number of expenses dated within [start, end]
+    public long count(User user, LocalDate start, LocalDate end) {
+        ExpenseColumns history = history(user);
+        return history.lowerBound((int) end.toEpochDay() + 1) - history.lowerBound((int) start.toEpochDay());
+    }
+
+    @TransactionalEventListener
+    public void onExpenseAdded(ExpenseAddedEvent event) {
+        // Only histories already in memory are updated; others load with the expense included
+        columns.asMap().computeIfPresent(event.userId(), (userId, history) -> history.withExpense(
+                event.expenseId(), (int) event.date().toEpochDay(), event.amountCents(), event.categoryId()));
+    }
+
+    @TransactionalEventListener
+    public void onExpensesImported(ExpensesImportedEvent event) {
+        columns.invalidate(event.userId());
+    }
+
+    public void evict(User user) {
+        columns.invalidate(user.getId());
+    }
+
+    private ExpenseColumns history(User user) {
+        return columns.get(user.getId(), userId -> load(user));
+    }
+
+    // Archived expenses are merged into the (date, id) order of the table's rows; one seen in both is kept once
+    private ExpenseColumns load(User user) {
+        return readOnlyTransaction.execute(status -> {
+            ExpenseColumns.Builder builder = new ExpenseColumns.Builder();
+            Function<String, Integer> categoryIds = archiveService.categoryIds(user);
+            try (Stream<Object[]> rows = expenseRepository.streamColumnsByUser(user)) {
+                archiveService.forEachInOrder(user, rows, row -> (int) ((LocalDate) row[1]).toEpochDay(),
+                        row -> ((Number) row[0]).longValue(),
+                        row -> builder.add(((Number) row[0]).longValue(), (int) ((LocalDate) row[1]).toEpochDay(),
+                                ((Number) row[2]).longValue(), ((Number) row[3]).intValue()),
+                        row -> builder.add(row.id(), row.epochDay(), row.cents(), categoryIds.apply(row.category())));
+            }
+            return builder.build();
+        });
+    }
+
+    public record Totals(long totalCents, long count, Map<String, Long> categoryCents) {}
+}
@@ -0,0 +1,267 @@
+package com.spendwise.spendwise.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * One user's append-only archive of expenses. Each archival run appends a
+ * segment: a fixed header giving the row count, the day range and the
+ * lengths and checksum of a deflate-compressed block of rows. Readers find
+ * segments through the ExpenseArchiveSegment index, read each header by
+ * offset and map only the blocks whose day range a request needs, inflating
+ * them straight from the mapping. Category names rather than ids are stored,
+ * as ids are only meaningful within one database.
+ */
+final class ExpenseArchiveFile {
+
+    private static final int MAGIC = 0x53574131;
+    // magic, row count, oldest day, newest day, raw length, compressed length, CRC-32 of the compressed block
+    private static final int HEADER_BYTES = 7 * Integer.BYTES;
+
+    private ExpenseArchiveFile() {}
+
+    record Row(long id, int epochDay, long cents, String category, String title) {}
+
+    /**
+     * Writes rows, oldest first, as a new segment after committedBytes and
+     * forces it to disk; anything past committedBytes is left from a run that
+     * did not commit and is overwritten. Returns the new committed length.
+     */
+    static long append(Path file, long committedBytes, List<Row> rows) throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream(rows.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(raw)) {
+            for (Row row : rows) {
+                out.writeLong(row.id());
+                out.writeInt(row.epochDay());
+                out.writeLong(row.cents());
+                out.writeUTF(row.category());
+                out.writeUTF(row.title());
+            }
+        }
+        byte[] compressed = deflate(raw.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(compressed);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putInt(rows.size())
+                .putInt(rows.get(0).epochDay())
+                .putInt(rows.get(rows.size() - 1).epochDay())
+                .putInt(raw.size())
+                .putInt(compressed.length)
+                .putInt((int) crc.getValue())
+                .flip();
+
+        Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(committedBytes);
+            channel.position(committedBytes);
+            ByteBuffer body = ByteBuffer.wrap(compressed);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[]{header, body});
+            }
+            channel.force(false);
+            return committedBytes + HEADER_BYTES + compressed.length;
+        }
+    }
+
+    /**
+     * Reads the segment whose header starts at offset, checking that there is
+     * one and that its block, memory-mapped rather than copied onto the heap,
+     * matches the checksum. Rows are decoded as they are iterated.
+     */
+    static Segment readSegment(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, offset);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("No archive segment at " + offset);
+        }
+        int compressedLength = header.getInt(20);
+        if (offset + HEADER_BYTES + compressedLength > channel.size()) {
+            throw new IOException("Archive ends inside the segment at " + offset);
+        }
+        MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, offset + HEADER_BYTES, compressedLength);
+        CRC32 crc = new CRC32();
+        crc.update(block.duplicate());
+        if ((int) crc.getValue() != header.getInt(24)) {
+            throw new IOException("Checksum mismatch in archive segment at " + offset);
+        }
+        return new Segment(header.getInt(4), header.getInt(8), header.getInt(12), inflate(block, header.getInt(16)));
+    }
+
+    /**
+     * Rows of the segments merged into (day, id) order. Segments must be listed
+     * by oldest day; each is read only once the merge reaches that day, so
+     * segments appended in date order are held in memory one at a time.
+     */
+    static Iterator<Row> sortedRows(FileChannel channel, List<SegmentStart> segments) {
+        return new SortedRows(channel, segments);
+    }
+
+    // Where a segment starts in the file, and the oldest day it holds
+    record SegmentStart(long offset, int oldestDay) {}
+
+    // A segment's rows in the order they were appended, which for one archival run is (day, id) order
+    record Segment(int count, int oldestDay, int newestDay, byte[] raw) {
+
+        Iterator<Row> rows() {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+            return new Iterator<>() {
+                private int read;
+
+                @Override
+                public boolean hasNext() {
+                    return read < count;
+                }
+
+                @Override
+                public Row next() {
+                    if (read == count) {
+                        throw new NoSuchElementException();
+                    }
+                    read++;
+                    try {
+                        return new Row(in.readLong(), in.readInt(), in.readLong(), in.readUTF(), in.readUTF());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Corrupt row in archive segment", e);
+                    }
+                }
+            };
+        }
+    }
+
+    private static final class SortedRows implements Iterator<Row> {
+
+        private static final Comparator<OpenSegment> BY_HEAD = Comparator
+                .comparingInt((OpenSegment segment) -> segment.head.epochDay())
+                .thenComparingLong(segment -> segment.head.id());
+
+        private final FileChannel channel;
+        private final List<SegmentStart> segments;
+        private final PriorityQueue<OpenSegment> open = new PriorityQueue<>(BY_HEAD);
+        private int unread;
+
+        SortedRows(FileChannel channel, List<SegmentStart> segments) {
+            this.channel = channel;
+            this.segments = segments;
+        }
+
+        @Override
+        public boolean hasNext() {
+            openReached();
+            return !open.isEmpty();
+        }
+
+        @Override
+        public Row next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            OpenSegment segment = open.poll();
+            Row row = segment.head;
+            if (segment.advance()) {
+                open.add(segment);
+            }
+            return row;
+        }
+
+        // Reads every segment that may hold a row sorting before the current head
+        private void openReached() {
+            while (unread < segments.size()
+                    && (open.isEmpty() || segments.get(unread).oldestDay() <= open.peek().head.epochDay())) {
+                SegmentStart start = segments.get(unread++);
+                OpenSegment segment;
+                try {
+                    segment = new OpenSegment(readSegment(channel, start.offset()).rows());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read archive segment at " + start.offset(), e);
+                }
+                if (segment.advance()) {
+                    open.add(segment);
+                }
+            }
+        }
+    }
+
+    private static final class OpenSegment {
+        private final Iterator<Row> rows;
+        private Row head;
+
+        OpenSegment(Iterator<Row> rows) {
+            this.rows = rows;
+        }
+
+        boolean advance() {
+            head = rows.hasNext() ? rows.next() : null;
+            return head != null;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Archive ends inside the segment at " + position);
+            }
+        }
+        buffer.flip();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(ByteBuffer block, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new IOException("Archive segment inflated to " + length + " of " + rawLength + " bytes");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt archive segment", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.sharding.ShardDirectory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves expenses older than spendwise.archive.horizon into the archive, user
+ * by user and in batches of batch-size, each batch its own transaction. The
+ * archive files live on the local disk, so only one node may run this, with
+ * the directory on storage every node reads; it is off by default.
+ */
+@Service
+public class ExpenseArchiveScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseArchiveScheduler.class);
+
+    private final ExpenseArchiveService archiveService;
+    private final ExpenseRepository expenseRepository;
+    private final UserRepository userRepository;
+    private final ShardDirectory shardDirectory;
+    private final boolean enabled;
+    private final Duration interval;
+    private final Duration horizon;
+    private final int batchSize;
+    private final ScheduledExecutorService executor;
+    private final AtomicLong lastSuccess = new AtomicLong();
+    private final Timer runTimer;
+    private final Counter archived;
+
+    public ExpenseArchiveScheduler(ExpenseArchiveService archiveService,
+                                   ExpenseRepository expenseRepository,
+                                   UserRepository userRepository,
+                                   ShardDirectory shardDirectory,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${spendwise.archive.enabled:false}") boolean enabled,
+                                   @Value("${spendwise.archive.interval:1d}") Duration interval,
+                                   @Value("${spendwise.archive.horizon:730d}") Duration horizon,
+                                   @Value("${spendwise.archive.batch-size:10000}") int batchSize) {
+        this.archiveService = archiveService;
+        this.expenseRepository = expenseRepository;
+        this.userRepository = userRepository;
+        this.shardDirectory = shardDirectory;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.horizon = horizon;
+        this.batchSize = batchSize;
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expense-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("spendwise.archive.last-success", lastSuccess, AtomicLong::get)
+                .description("Epoch second of the last run that archived every expense past the horizon")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("spendwise.archive.run.duration")
+                .register(meterRegistry);
+        this.archived = Counter.builder("spendwise.archive.expenses")
+                .description("Expenses moved from the expenses table to the archive")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::run, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void run() {
+        try {
+            LocalDate before = LocalDate.now().minusDays(horizon.toDays());
+            runTimer.record(() -> shardDirectory.forEachShard(shard -> archiveBefore(before)));
+            lastSuccess.set(System.currentTimeMillis() / 1000);
+        } catch (RuntimeException e) {
+            // Batches already archived stay archived; the next run picks up from there
+            log.warn("Archiving expenses failed", e);
+        }
+    }
+
+    // Archives every expense on the current shard dated before the cutoff; returns how many were moved
+    public long archiveBefore(LocalDate before) {
+        long total = 0;
+        for (Long userId : expenseRepository.findUserIdsWithExpensesBefore(before)) {
+            int moved;
+            do {
+                moved = archiveService.archive(userRepository.getReferenceById(userId), before, batchSize);
+                archived.increment(moved);
+                total += moved;
+            } while (moved == batchSize);
+        }
+        if (total > 0) {
+            log.info("Archived {} expenses dated before {}", total, before);
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
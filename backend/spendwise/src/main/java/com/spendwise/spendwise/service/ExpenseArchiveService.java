@@ -0,0 +1,438 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.ExpenseView;
+import com.spendwise.spendwise.entity.ArchivedExpenseSummary;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.ExpenseArchive;
+import com.spendwise.spendwise.entity.ExpenseArchiveSegment;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ArchivedExpenseSummaryRepository;
+import com.spendwise.spendwise.repository.ExpenseArchiveRepository;
+import com.spendwise.spendwise.repository.ExpenseArchiveSegmentRepository;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.repository.TimeBucket;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the expenses table to recent history. archive moves a user's oldest
+ * expenses into their ExpenseArchiveFile under spendwise.archive.directory
+ * and adds them to ArchivedExpenseSummary rows, leaving expense_rollups as
+ * they were, so rollup-backed reports never notice. Every appended segment
+ * is indexed by date range in an ExpenseArchiveSegment row, so readers that
+ * need single expenses read only the segments their dates reach. Expenses
+ * keep their ids when archived, which is how merges drop the copy of an
+ * expense read twice while its archival commits; sums, which cannot, are
+ * read again instead (see readConsistently).
+ */
+@Service
+public class ExpenseArchiveService {
+
+    private static final Comparator<ExpenseView> OLDEST_FIRST = Comparator.comparing(ExpenseView::date)
+            .thenComparing(ExpenseView::id);
+    // Stand-ins for open date bounds in segment queries
+    private static final LocalDate EARLIEST = LocalDate.of(1, 1, 1);
+    private static final LocalDate LATEST = LocalDate.of(9999, 12, 31);
+    private static final int MAX_READ_ATTEMPTS = 5;
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseArchiveRepository archiveRepository;
+    private final ArchivedExpenseSummaryRepository summaryRepository;
+    private final ExpenseArchiveSegmentRepository segmentRepository;
+    private final CategoryDictionary categoryDictionary;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Path directory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExpenseArchiveService(ExpenseRepository expenseRepository,
+                                 ExpenseArchiveRepository archiveRepository,
+                                 ArchivedExpenseSummaryRepository summaryRepository,
+                                 ExpenseArchiveSegmentRepository segmentRepository,
+                                 CategoryDictionary categoryDictionary,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${spendwise.archive.directory:./data/archive}") Path directory) {
+        this.expenseRepository = expenseRepository;
+        this.archiveRepository = archiveRepository;
+        this.summaryRepository = summaryRepository;
+        this.segmentRepository = segmentRepository;
+        this.categoryDictionary = categoryDictionary;
+        this.eventPublisher = eventPublisher;
+        this.directory = directory;
+    }
+
+    /**
+     * Moves up to limit of the user's expenses dated before the cutoff, oldest
+     * first, to the archive; returns how many were moved. The segment is on
+     * disk before the transaction commits and only counts once it has, so a
+     * failed run leaves the expenses where they were.
+     */
+    @Transactional
+    public int archive(User user, LocalDate before, int limit) {
+        List<Object[]> found = expenseRepository.findArchivable(user, before, Limit.of(limit));
+        if (found.isEmpty()) {
+            return 0;
+        }
+        List<ExpenseArchiveFile.Row> rows = new ArrayList<>(found.size());
+        List<Long> ids = new ArrayList<>(found.size());
+        Map<SummaryKey, long[]> summaries = new HashMap<>();
+        for (Object[] row : found) {
+            long id = ((Number) row[0]).longValue();
+            LocalDate date = (LocalDate) row[1];
+            long cents = ((Number) row[2]).longValue();
+            rows.add(new ExpenseArchiveFile.Row(id, (int) date.toEpochDay(), cents, (String) row[4], (String) row[5]));
+            ids.add(id);
+            long[] bucket = summaries.computeIfAbsent(
+                    new SummaryKey(date.getYear(), date.getMonthValue(), (Integer) row[3]), key -> new long[2]);
+            bucket[0] += cents;
+            bucket[1]++;
+        }
+
+        ExpenseArchive archive = archiveRepository.findById(user.getId()).orElseGet(() -> new ExpenseArchive(user.getId()));
+        long offset = archive.getCommittedBytes();
+        long committedBytes;
+        try {
+            committedBytes = ExpenseArchiveFile.append(file(user), offset, rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the expense archive of user " + user.getId(), e);
+        }
+        summaries.forEach((key, bucket) -> {
+            Category category = entityManager.getReference(Category.class, key.categoryId());
+            if (summaryRepository.increment(user, key.year(), key.month(), category, bucket[0], bucket[1]) == 0) {
+                summaryRepository.save(new ArchivedExpenseSummary(user, key.year(), key.month(), category,
+                        bucket[0], bucket[1]));
+            }
+        });
+        LocalDate oldest = (LocalDate) found.get(0)[1];
+        LocalDate newest = (LocalDate) found.get(found.size() - 1)[1];
+        archive.appended(committedBytes, rows.size(), oldest, newest);
+        archiveRepository.save(archive);
+        segmentRepository.save(new ExpenseArchiveSegment(user.getId(), offset, rows.size(), oldest, newest));
+        expenseRepository.deleteByIdIn(ids);
+        eventPublisher.publishEvent(new ExpensesArchivedEvent(user.getId(), rows.size()));
+        return rows.size();
+    }
+
+    /**
+     * Runs a read that adds up the expenses table and the archive together,
+     * again if an archival run committed meanwhile: a sum cannot tell that it
+     * counted an expense on both sides, as a merge of single expenses can.
+     */
+    public <T> T readConsistently(User user, Supplier<T> read) {
+        for (int attempt = 1; ; attempt++) {
+            Optional<Long> before = archiveRepository.findCommittedBytes(user.getId());
+            T result = read.get();
+            if (before.equals(archiveRepository.findCommittedBytes(user.getId()))) {
+                return result;
+            }
+            if (attempt == MAX_READ_ATTEMPTS) {
+                throw new ConcurrencyFailureException("The archive of user " + user.getId()
+                        + " changed during " + MAX_READ_ATTEMPTS + " reads in a row");
+            }
+        }
+    }
+
+    // Archived expenses dated within [from, to], oldest first; null bounds are open
+    public List<ExpenseView> views(User user, LocalDate from, LocalDate to) {
+        List<ExpenseView> views = new ArrayList<>();
+        try (FileChannel channel = open(user)) {
+            for (ExpenseArchiveSegment segment : overlapping(user, from, to)) {
+                for (Iterator<ExpenseArchiveFile.Row> rows = rows(channel, segment); rows.hasNext(); ) {
+                    ExpenseArchiveFile.Row row = rows.next();
+                    if (within(row, from, to)) {
+                        views.add(view(row));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw unreadable(user, e);
+        }
+        views.sort(OLDEST_FIRST);
+        return views;
+    }
+
+    /**
+     * Merges archived expenses into expenses read from the table, oldest first.
+     * The table rows must already be in (date, id) order, as they are returned
+     * as they are when nothing is archived. Reads of the table should come
+     * first: an archival that commits in between then shows up as duplicates,
+     * which are dropped, rather than as a gap.
+     */
+    public List<ExpenseView> merge(User user, List<ExpenseView> hot, LocalDate from, LocalDate to) {
+        return merge(hot, views(user, from, to), OLDEST_FIRST);
+    }
+
+    /**
+     * Continues a newest-first page of the expenses table with archived
+     * expenses that sort after the cursor (date, id) and pass the same
+     * filters. Segments are read newest first, starting with those holding
+     * the cursor, and only until none left could place on the page.
+     */
+    public List<ExpenseView> mergePage(User user, List<ExpenseView> hot, int pageSize, LocalDate cursorDate,
+                                       Long cursorId, String category, Money min, Money max) {
+        List<ExpenseArchiveSegment> segments = segmentRepository.findNewestFirst(user.getId(),
+                cursorDate == null ? LATEST : cursorDate);
+        if (segments.isEmpty()
+                || hot.size() == pageSize && hot.get(hot.size() - 1).date().isAfter(segments.get(0).getNewestDate())) {
+            return hot;
+        }
+        // The page so far with its oldest expense on top, the next to drop
+        PriorityQueue<ExpenseView> page = new PriorityQueue<>(pageSize + 1, OLDEST_FIRST);
+        Set<Long> hotIds = new HashSet<>();
+        for (ExpenseView view : hot) {
+            hotIds.add(view.id());
+            page.add(view);
+        }
+        try (FileChannel channel = open(user)) {
+            for (ExpenseArchiveSegment segment : segments) {
+                if (page.size() == pageSize && segment.getNewestDate().isBefore(page.peek().date())) {
+                    break;
+                }
+                for (Iterator<ExpenseArchiveFile.Row> rows = rows(channel, segment); rows.hasNext(); ) {
+                    ExpenseArchiveFile.Row row = rows.next();
+                    boolean afterCursor = cursorDate == null || row.epochDay() < cursorDate.toEpochDay()
+                            || row.epochDay() == cursorDate.toEpochDay() && row.id() < cursorId;
+                    if (afterCursor && !hotIds.contains(row.id())
+                            && (category == null || category.equals(row.category()))
+                            && (min == null || row.cents() >= min.cents())
+                            && (max == null || row.cents() <= max.cents())) {
+                        page.add(view(row));
+                        if (page.size() > pageSize) {
+                            page.poll();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw unreadable(user, e);
+        }
+        List<ExpenseView> merged = new ArrayList<>(page);
+        merged.sort(OLDEST_FIRST.reversed());
+        return merged;
+    }
+
+    /**
+     * Walks rows read from the table, which must come in (date, id) order,
+     * and every archived expense together in that order, handing each to its
+     * action; an expense found on both sides goes to hotAction only. The
+     * table's query should have run before this is called, so an archival
+     * that commits in between is seen twice rather than missed. Archive
+     * segments are read one at a time as the walk reaches them.
+     */
+    public <T> void forEachInOrder(User user, Stream<T> hot, ToIntFunction<T> epochDay, ToLongFunction<T> id,
+                                   Consumer<T> hotAction, Consumer<ExpenseArchiveFile.Row> archivedAction) {
+        List<ExpenseArchiveFile.SegmentStart> starts = new ArrayList<>();
+        for (ExpenseArchiveSegment segment : segmentRepository.findByUserIdOrderByOldestDate(user.getId())) {
+            starts.add(new ExpenseArchiveFile.SegmentStart(segment.getOffset(),
+                    (int) segment.getOldestDate().toEpochDay()));
+        }
+        try (FileChannel channel = open(user)) {
+            if (channel == null && !starts.isEmpty()) {
+                throw new IOException("Archive segments have no archive file");
+            }
+            Iterator<ExpenseArchiveFile.Row> archived = starts.isEmpty() ? Collections.emptyIterator()
+                    : ExpenseArchiveFile.sortedRows(channel, starts);
+            ExpenseArchiveFile.Row next = archived.hasNext() ? archived.next() : null;
+            for (Iterator<T> rows = hot.iterator(); rows.hasNext(); ) {
+                T row = rows.next();
+                int day = epochDay.applyAsInt(row);
+                long rowId = id.applyAsLong(row);
+                while (next != null && (next.epochDay() < day || next.epochDay() == day && next.id() < rowId)) {
+                    archivedAction.accept(next);
+                    next = archived.hasNext() ? archived.next() : null;
+                }
+                if (next != null && next.epochDay() == day && next.id() == rowId) {
+                    next = archived.hasNext() ? archived.next() : null;
+                }
+                hotAction.accept(row);
+            }
+            for (; next != null; next = archived.hasNext() ? archived.next() : null) {
+                archivedAction.accept(next);
+            }
+        } catch (IOException e) {
+            throw unreadable(user, e);
+        }
+    }
+
+    /**
+     * Id of the user's category with the given name, for archived rows, which
+     * store names. Each distinct name is looked up once per returned function
+     * and nothing is created: an archived expense's category already exists.
+     */
+    Function<String, Integer> categoryIds(User user) {
+        Map<String, Integer> ids = new HashMap<>();
+        return name -> ids.computeIfAbsent(name, key -> {
+            Integer id = categoryDictionary.findId(user, key);
+            if (id == null) {
+                throw new IllegalStateException("Archived category " + key + " of user " + user.getId() + " does not exist");
+            }
+            return id;
+        });
+    }
+
+    // Rows of [category id, date, cents] for archived spending within [from, to], as sumByCategoryAndDate returns
+    public List<Object[]> sumByCategoryAndDate(User user, LocalDate from, LocalDate to) {
+        Function<String, Integer> categoryIds = categoryIds(user);
+        Map<DayKey, long[]> sums = new HashMap<>();
+        try (FileChannel channel = open(user)) {
+            for (ExpenseArchiveSegment segment : overlapping(user, from, to)) {
+                for (Iterator<ExpenseArchiveFile.Row> rows = rows(channel, segment); rows.hasNext(); ) {
+                    ExpenseArchiveFile.Row row = rows.next();
+                    if (within(row, from, to)) {
+                        sums.computeIfAbsent(new DayKey(categoryIds.apply(row.category()), row.epochDay()),
+                                key -> new long[1])[0] += row.cents();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw unreadable(user, e);
+        }
+        List<Object[]> result = new ArrayList<>(sums.size());
+        sums.forEach((key, cents) -> result.add(new Object[]{key.categoryId(), LocalDate.ofEpochDay(key.epochDay()), cents[0]}));
+        return result;
+    }
+
+    /**
+     * Rows of [bucket start, category id, cents, count] for archived spending
+     * within [from, to], as sumByBucketAndCategory returns. Whole months of
+     * month, quarter and year buckets come from the summaries; only the rest
+     * is read from the archive file.
+     */
+    public List<Object[]> sumByBucketAndCategory(User user, TimeBucket bucket, LocalDate from, LocalDate to) {
+        Map<List<Object>, long[]> sums = new HashMap<>();
+        if (bucket != TimeBucket.DAY && bucket != TimeBucket.WEEK) {
+            // from is a bucket start here, so only the last month can be partly in range
+            LocalDate wholeMonthsEnd = to.plusDays(1).getDayOfMonth() == 1 ? to : to.withDayOfMonth(1).minusDays(1);
+            if (!wholeMonthsEnd.isBefore(from)) {
+                for (Object[] summary : summaryRepository.sumByMonthAndCategoryBetween(user, from.getYear(),
+                        from.getMonthValue(), wholeMonthsEnd.getYear(), wholeMonthsEnd.getMonthValue())) {
+                    LocalDate start = bucket.start(LocalDate.of((Integer) summary[0], (Integer) summary[1], 1));
+                    long[] sum = sums.computeIfAbsent(List.of(start, summary[2]), key -> new long[2]);
+                    sum[0] += ((Number) summary[3]).longValue();
+                    sum[1] += ((Number) summary[4]).longValue();
+                }
+                from = wholeMonthsEnd.plusDays(1);
+            }
+        }
+        if (!from.isAfter(to)) {
+            Function<String, Integer> categoryIds = categoryIds(user);
+            try (FileChannel channel = open(user)) {
+                for (ExpenseArchiveSegment segment : overlapping(user, from, to)) {
+                    for (Iterator<ExpenseArchiveFile.Row> rows = rows(channel, segment); rows.hasNext(); ) {
+                        ExpenseArchiveFile.Row row = rows.next();
+                        if (within(row, from, to)) {
+                            LocalDate start = bucket.start(LocalDate.ofEpochDay(row.epochDay()));
+                            long[] sum = sums.computeIfAbsent(List.of(start, categoryIds.apply(row.category())),
+                                    key -> new long[2]);
+                            sum[0] += row.cents();
+                            sum[1]++;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw unreadable(user, e);
+            }
+        }
+        List<Object[]> result = new ArrayList<>(sums.size());
+        sums.forEach((key, sum) -> result.add(new Object[]{key.get(0), key.get(1), sum[0], sum[1]}));
+        return result;
+    }
+
+    // Rows of [year, month, category id, sum(cents), count] of everything archived, as aggregateByMonthAndCategory returns
+    public List<Object[]> aggregateByMonthAndCategory(User user) {
+        return summaryRepository.sumByMonthAndCategory(user);
+    }
+
+    private List<ExpenseArchiveSegment> overlapping(User user, LocalDate from, LocalDate to) {
+        return segmentRepository.findOverlapping(user.getId(), from == null ? EARLIEST : from, to == null ? LATEST : to);
+    }
+
+    // The user's archive file opened for reading, or null if nothing was ever archived
+    private FileChannel open(User user) throws IOException {
+        Path file = file(user);
+        return Files.exists(file) ? FileChannel.open(file, StandardOpenOption.READ) : null;
+    }
+
+    private static Iterator<ExpenseArchiveFile.Row> rows(FileChannel channel, ExpenseArchiveSegment segment)
+            throws IOException {
+        if (channel == null) {
+            throw new IOException("Archive segment at " + segment.getOffset() + " has no archive file");
+        }
+        return ExpenseArchiveFile.readSegment(channel, segment.getOffset()).rows();
+    }
+
+    private static boolean within(ExpenseArchiveFile.Row row, LocalDate from, LocalDate to) {
+        return (from == null || row.epochDay() >= from.toEpochDay()) && (to == null || row.epochDay() <= to.toEpochDay());
+    }
+
+    private static ExpenseView view(ExpenseArchiveFile.Row row) {
+        return new ExpenseView(row.id(), row.title(), Money.ofCents(row.cents()), row.category(),
+                LocalDate.ofEpochDay(row.epochDay()));
+    }
+
+    private static UncheckedIOException unreadable(User user, IOException e) {
+        return new UncheckedIOException("Could not read the expense archive of user " + user.getId(), e);
+    }
+
+    private Path file(User user) {
+        return directory.resolve("user-" + user.getId() + ".archive");
+    }
+
+    private static List<ExpenseView> merge(List<ExpenseView> hot, List<ExpenseView> archived,
+                                           Comparator<ExpenseView> order) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        Set<Long> ids = new HashSet<>();
+        List<ExpenseView> merged = new ArrayList<>(hot.size() + archived.size());
+        for (ExpenseView view : hot) {
+            if (ids.add(view.id())) {
+                merged.add(view);
+            }
+        }
+        for (ExpenseView view : archived) {
+            if (ids.add(view.id())) {
+                merged.add(view);
+            }
+        }
+        merged.sort(order);
+        return merged;
+    }
+
+    private record SummaryKey(int year, int month, int categoryId) {}
+
+    private record DayKey(Integer categoryId, int epochDay) {}
+}
@@ -0,0 +1,204 @@
+package com.spendwise.spendwise.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * One user's expense history as parallel primitive columns sorted by
+ * (epochDay, id): day, amount in cents and a dense index into the
+ * category ids the history uses.
+ *
+ * Instances are immutable snapshots. withExpense returns a new snapshot; when
+ * the expense sorts last and the arrays have spare capacity the new snapshot
+ * shares them and writes only the slot past this snapshot's size, which no
+ * reader of this snapshot ever looks at. Callers must serialize withExpense
+ * calls per user and always apply them to the latest snapshot.
+ */
+final class ExpenseColumns {
+
+    private final long[] ids;
+    private final int[] days;
+    private final long[] cents;
+    private final int[] categoryIds;
+    private final int size;
+    private final int[] categories;
+    private final Map<Integer, Integer> categoryIndex;
+
+    private ExpenseColumns(long[] ids, int[] days, long[] cents, int[] categoryIds, int size,
+                           int[] categories, Map<Integer, Integer> categoryIndex) {
+        this.ids = ids;
+        this.days = days;
+        this.cents = cents;
+        this.categoryIds = categoryIds;
+        this.size = size;
+        this.categories = categories;
+        this.categoryIndex = categoryIndex;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Category id behind a dense index
+    int categoryId(int index) {
+        return categories[index];
+    }
+
+    // Index of the first row on or after the given day
+    int lowerBound(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (days[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    long sum(int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            total += cents[i];
+        }
+        return total;
+    }
+
+    // Cents per dense category index over rows [from, to); ranges above parallelThreshold are split across the common fork-join pool
+    long[] sumByCategory(int from, int to, int parallelThreshold) {
+        if (to - from > parallelThreshold) {
+            return ForkJoinPool.commonPool().invoke(new CategorySums(from, to, parallelThreshold));
+        }
+        long[] totals = new long[categories.length];
+        for (int i = from; i < to; i++) {
+            totals[categoryIds[i]] += cents[i];
+        }
+        return totals;
+    }
+
+    ExpenseColumns withExpense(long id, int epochDay, long amountCents, int categoryId) {
+        // Insert after every row that sorts before (epochDay, id)
+        int position = lowerBound(epochDay);
+        while (position < size && days[position] == epochDay && ids[position] <= id) {
+            if (ids[position] == id) {
+                return this; // loaded after the expense was committed
+            }
+            position++;
+        }
+
+        int[] newCategories = categories;
+        Map<Integer, Integer> newIndex = categoryIndex;
+        Integer index = categoryIndex.get(categoryId);
+        if (index == null) {
+            index = categories.length;
+            newCategories = Arrays.copyOf(categories, categories.length + 1);
+            newCategories[index] = categoryId;
+            newIndex = new HashMap<>(categoryIndex);
+            newIndex.put(categoryId, index);
+        }
+
+        if (position == size && size < ids.length) {
+            ids[size] = id;
+            days[size] = epochDay;
+            cents[size] = amountCents;
+            categoryIds[size] = index;
+            return new ExpenseColumns(ids, days, cents, categoryIds, size + 1, newCategories, newIndex);
+        }
+
+        int capacity = Math.max(16, size + (size >> 3) + 1);
+        long[] newIds = new long[capacity];
+        int[] newDays = new int[capacity];
+        long[] newCents = new long[capacity];
+        int[] newCategoryIds = new int[capacity];
+        copyAround(position, newIds, newDays, newCents, newCategoryIds);
+        newIds[position] = id;
+        newDays[position] = epochDay;
+        newCents[position] = amountCents;
+        newCategoryIds[position] = index;
+        return new ExpenseColumns(newIds, newDays, newCents, newCategoryIds, size + 1, newCategories, newIndex);
+    }
+
+    private void copyAround(int position, long[] newIds, int[] newDays, long[] newCents, int[] newCategoryIds) {
+        System.arraycopy(ids, 0, newIds, 0, position);
+        System.arraycopy(days, 0, newDays, 0, position);
+        System.arraycopy(cents, 0, newCents, 0, position);
+        System.arraycopy(categoryIds, 0, newCategoryIds, 0, position);
+        int tail = size - position;
+        System.arraycopy(ids, position, newIds, position + 1, tail);
+        System.arraycopy(days, position, newDays, position + 1, tail);
+        System.arraycopy(cents, position, newCents, position + 1, tail);
+        System.arraycopy(categoryIds, position, newCategoryIds, position + 1, tail);
+    }
+
+    private class CategorySums extends RecursiveTask<long[]> {
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        CategorySums(int from, int to, int threshold) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= threshold) {
+                return sumByCategory(from, to, threshold);
+            }
+            int mid = (from + to) >>> 1;
+            CategorySums left = new CategorySums(from, mid, threshold);
+            left.fork();
+            long[] right = new CategorySums(mid, to, threshold).compute();
+            long[] totals = left.join();
+            for (int i = 0; i < totals.length; i++) {
+                totals[i] += right[i];
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Accumulates rows that arrive in (date, id) order, as read from the
+     * database, into a snapshot.
+     */
+    static final class Builder {
+        private long[] ids = new long[64];
+        private int[] days = new int[64];
+        private long[] cents = new long[64];
+        private int[] categoryIds = new int[64];
+        private int size;
+        private final Map<Integer, Integer> categoryIndex = new HashMap<>();
+
+        void add(long id, int epochDay, long amountCents, int categoryId) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                days = Arrays.copyOf(days, capacity);
+                cents = Arrays.copyOf(cents, capacity);
+                categoryIds = Arrays.copyOf(categoryIds, capacity);
+            }
+            ids[size] = id;
+            days[size] = epochDay;
+            cents[size] = amountCents;
+            categoryIds[size] = categoryIndex.computeIfAbsent(categoryId, c -> categoryIndex.size());
+            size++;
+        }
+
+        ExpenseColumns build() {
+            // Trim to the rows plus a little headroom for appended expenses
+            int capacity = size + (size >> 4) + 16;
+            int[] categories = new int[categoryIndex.size()];
+            categoryIndex.forEach((categoryId, index) -> categories[index] = categoryId);
+            return new ExpenseColumns(Arrays.copyOf(ids, capacity), Arrays.copyOf(days, capacity),
+                    Arrays.copyOf(cents, capacity), Arrays.copyOf(categoryIds, capacity), size,
+                    categories, categoryIndex);
+        }
+    }
+}
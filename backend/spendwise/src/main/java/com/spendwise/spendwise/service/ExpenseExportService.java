@@ -0,0 +1,126 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.ExpenseView;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.stream.Stream;
+
+/**
+ * Streams a user's complete expense history to an output stream.
+ * Rows are read through a database cursor straight into views, with no
+ * managed entities behind them, so heap use does not depend on how many expenses the user has.
+ * Archived expenses are merged in by (date, id), decompressed one archive segment at a time.
+ */
+@Service
+public class ExpenseExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() { return contentType; }
+        public String getExtension() { return extension; }
+    }
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseArchiveService archiveService;
+    private final ObjectMapper objectMapper;
+
+    public ExpenseExportService(ExpenseRepository expenseRepository, ExpenseArchiveService archiveService,
+                                ObjectMapper objectMapper) {
+        this.expenseRepository = expenseRepository;
+        this.archiveService = archiveService;
+        this.objectMapper = objectMapper;
+    }
+
+    // Returns the number of exported rows
+    @Transactional(readOnly = true)
+    public long export(User user, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+
+        if (format == Format.CSV) {
+            writer.write("id,date,title,category,amount\n");
+        }
+
+        // The query runs before the archive is read, so expenses archived in between are seen twice and written once
+        long[] rows = new long[1];
+        try (Stream<ExpenseView> expenses = expenseRepository.streamViewsByUser(user)) {
+            archiveService.forEachInOrder(user, expenses, expense -> (int) expense.date().toEpochDay(), ExpenseView::id,
+                    expense -> {
+                        write(writer, format, expense);
+                        rows[0]++;
+                    },
+                    row -> {
+                        write(writer, format, new ExpenseView(row.id(), row.title(), Money.ofCents(row.cents()),
+                                row.category(), LocalDate.ofEpochDay(row.epochDay())));
+                        rows[0]++;
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.flush();
+        return rows[0];
+    }
+
+    private void write(Writer writer, Format format, ExpenseView expense) {
+        try {
+            writeRow(writer, format, expense);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Archived and live expenses go through the same view, so both formats have one row shape
+    private void writeRow(Writer writer, Format format, ExpenseView expense) throws IOException {
+        if (format == Format.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(expense));
+            writer.write('\n');
+            return;
+        }
+        writer.write(String.valueOf(expense.id()));
+        writer.write(',');
+        writer.write(expense.date().toString());
+        writer.write(',');
+        writeCsvField(writer, expense.title());
+        writer.write(',');
+        writeCsvField(writer, expense.category());
+        writer.write(',');
+        writer.write(String.valueOf(expense.amount()));
+        writer.write('\n');
+    }
+
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
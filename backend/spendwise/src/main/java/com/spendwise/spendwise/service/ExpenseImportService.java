@@ -0,0 +1,233 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.ImportResult;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk expense import from CSV or a JSON array. Rows are validated up front,
+ * valid ones are inserted in JDBC batches within one transaction and the
+ * rollups are updated once per touched bucket rather than once per row.
+ */
+@Service
+public class ExpenseImportService {
+
+    private final ExpenseRollupService rollupService;
+    private final CategoryDictionary categoryDictionary;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExpenseImportService(ExpenseRollupService rollupService,
+                                CategoryDictionary categoryDictionary,
+                                ApplicationEventPublisher eventPublisher,
+                                ObjectMapper objectMapper,
+                                @Value("${spendwise.import.batch-size:500}") int batchSize,
+                                @Value("${spendwise.import.max-reported-errors:100}") int maxReportedErrors) {
+        this.rollupService = rollupService;
+        this.categoryDictionary = categoryDictionary;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    @Transactional
+    public ImportResult importCsv(User user, InputStream in) throws IOException {
+        long start = System.nanoTime();
+        Batch batch = new Batch(user);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            return batch.finish(start);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> header = parseCsvLine(headerLine);
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(), i);
+        }
+        for (String required : List.of("title", "amount", "category", "date")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header is missing column '" + required + "'");
+            }
+        }
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> fields = parseCsvLine(line);
+            batch.add(field(fields, columns.get("title")), field(fields, columns.get("amount")),
+                    field(fields, columns.get("category")), field(fields, columns.get("date")));
+        }
+        return batch.finish(start);
+    }
+
+    @Transactional
+    public ImportResult importJson(User user, InputStream in) {
+        long start = System.nanoTime();
+        Batch batch = new Batch(user);
+
+        JsonNode rows = objectMapper.readTree(in);
+        if (!rows.isArray()) {
+            throw new IllegalArgumentException("Expected a JSON array of expenses");
+        }
+        for (JsonNode row : rows) {
+            batch.add(text(row, "title"), text(row, "amount"), text(row, "category"), text(row, "date"));
+        }
+        return batch.finish(start);
+    }
+
+    // Validates, persists and tracks rollup deltas for one import
+    private class Batch {
+        private final User user;
+        private final Session session;
+        private final Map<RollupKey, long[]> rollupDeltas = new HashMap<>();
+        private final List<ImportResult.RowError> errors = new ArrayList<>();
+        private int received;
+        private int imported;
+        private int failed;
+
+        Batch(User user) {
+            this.user = entityManager.getReference(User.class, user.getId());
+            this.session = entityManager.unwrap(Session.class);
+            this.session.setJdbcBatchSize(batchSize);
+        }
+
+        void add(String title, String amountText, String category, String dateText) {
+            int row = ++received;
+            String error = null;
+            Money amount = null;
+            LocalDate date = null;
+
+            if (title == null || title.isBlank()) {
+                error = "title is required";
+            } else if (title.trim().length() > Expense.TITLE_MAX_LENGTH) {
+                error = "title is longer than " + Expense.TITLE_MAX_LENGTH + " characters";
+            } else if (category == null || category.isBlank()) {
+                error = "category is required";
+            } else if (category.trim().length() > Category.NAME_MAX_LENGTH) {
+                error = "category is longer than " + Category.NAME_MAX_LENGTH + " characters";
+            } else {
+                try {
+                    amount = Money.parse(amountText);
+                } catch (NullPointerException | NumberFormatException | ArithmeticException e) {
+                    error = "amount is not a number: " + amountText;
+                }
+                if (error == null) {
+                    try {
+                        date = LocalDate.parse(dateText.trim());
+                    } catch (NullPointerException | DateTimeParseException e) {
+                        error = "date must be yyyy-MM-dd: " + dateText;
+                    }
+                }
+            }
+
+            if (error != null) {
+                failed++;
+                if (errors.size() < maxReportedErrors) {
+                    errors.add(new ImportResult.RowError(row, error));
+                }
+                return;
+            }
+
+            Category resolved = categoryDictionary.resolve(user, category.trim());
+            entityManager.persist(new Expense(title.trim(), amount, resolved, date, user));
+            long[] delta = rollupDeltas.computeIfAbsent(
+                    new RollupKey(date.getYear(), date.getMonthValue(), resolved.getId()), k -> new long[2]);
+            delta[0] += amount.cents();
+            delta[1]++;
+
+            // Flush a full JDBC batch and drop it from the persistence context
+            if (++imported % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        ImportResult finish(long startNanos) {
+            entityManager.flush();
+            entityManager.clear();
+            User managedUser = entityManager.getReference(User.class, user.getId());
+            rollupDeltas.forEach((key, delta) -> rollupService.apply(managedUser,
+                    LocalDate.of(key.year(), key.month(), 1),
+                    entityManager.getReference(Category.class, key.categoryId()), delta[0], delta[1]));
+            if (imported > 0) {
+                eventPublisher.publishEvent(new ExpensesImportedEvent(user.getId(), imported));
+            }
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+            return new ImportResult(received, imported, errors, failed, elapsedMillis);
+        }
+    }
+
+    private record RollupKey(int year, int month, int categoryId) {}
+
+    private static String text(JsonNode row, String field) {
+        JsonNode value = row.get(field);
+        return value == null || value.isNull() ? null : value.asString();
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index) : null;
+    }
+
+    // Minimal RFC 4180 line parser: quoted fields with doubled quotes, no embedded newlines
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,174 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.RollupVerification;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.ExpenseRollup;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.CategoryRepository;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.repository.ExpenseRollupRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the (user, year-month, category) rollups that back the report endpoints.
+ */
+@Service
+public class ExpenseRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseRollupService.class);
+
+    private final ExpenseRollupRepository rollupRepository;
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseArchiveService archiveService;
+    private final UserRepository userRepository;
+    private final CategoryRepository categoryRepository;
+    private final TransactionTemplate newTransaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExpenseRollupService(ExpenseRollupRepository rollupRepository,
+                                ExpenseRepository expenseRepository,
+                                ExpenseArchiveService archiveService,
+                                UserRepository userRepository,
+                                CategoryRepository categoryRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.expenseRepository = expenseRepository;
+        this.archiveService = archiveService;
+        this.userRepository = userRepository;
+        this.categoryRepository = categoryRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Apply one expense to its bucket; must run inside the transaction that saves the expense
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Expense expense) {
+        apply(expense.getUser(), expense.getDate(), expense.getCategory(), expense.getAmount().cents(), 1);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(User user, LocalDate date, Category category, long amountCents, long count) {
+        int year = date.getYear();
+        int month = date.getMonthValue();
+        if (rollupRepository.increment(user, year, month, category, amountCents, count) == 0) {
+            createBucket(user, year, month, category);
+            if (rollupRepository.increment(user, year, month, category, amountCents, count) == 0) {
+                throw new IllegalStateException("Could not create rollup bucket " + bucketKey(year, month, category.getId()));
+            }
+        }
+    }
+
+    /**
+     * Inserts an empty bucket in its own transaction, so two writers opening
+     * the same bucket at once do not fail the caller on the unique constraint;
+     * the loser finds the winner's row. A bucket whose first expense rolls back
+     * stays behind empty, which verify and the reports ignore.
+     */
+    private void createBucket(User user, int year, int month, Category category) {
+        try {
+            newTransaction.executeWithoutResult(status -> rollupRepository.save(new ExpenseRollup(
+                    entityManager.getReference(User.class, user.getId()), year, month,
+                    entityManager.getReference(Category.class, category.getId()), 0, 0)));
+        } catch (DataIntegrityViolationException e) {
+            // Created by a concurrent transaction
+        }
+    }
+
+    // Drop and recompute all rollups of a user from the expenses table and the archive summaries
+    @Transactional
+    public int rebuild(User user) {
+        rollupRepository.deleteByUser(user);
+        List<ExpenseRollup> rollups = new ArrayList<>();
+        aggregate(user).forEach((bucket, sum) -> rollups.add(new ExpenseRollup(user, bucket.year(), bucket.month(),
+                categoryRepository.getReferenceById(bucket.categoryId()), sum[0], sum[1])));
+        rollupRepository.saveAll(rollups);
+        return rollups.size();
+    }
+
+    // Compare stored rollups against a fresh aggregation without modifying anything
+    @Transactional(readOnly = true)
+    public RollupVerification verify(User user) {
+        Map<String, long[]> expected = new HashMap<>();
+        aggregate(user).forEach((bucket, sum) ->
+                expected.put(bucketKey(bucket.year(), bucket.month(), bucket.categoryId()), sum));
+
+        List<String> mismatches = new ArrayList<>();
+        List<ExpenseRollup> stored = rollupRepository.findByUser(user);
+        for (ExpenseRollup rollup : stored) {
+            String key = bucketKey(rollup.getYear(), rollup.getMonth(), rollup.getCategory().getId());
+            long[] actual = expected.remove(key);
+            if (actual == null && rollup.getExpenseCount() == 0 && rollup.getTotalCents() == 0) {
+                continue;
+            }
+            if (actual == null) {
+                mismatches.add(key + ": rollup has no matching expenses");
+            } else if (actual[0] != rollup.getTotalCents() || actual[1] != rollup.getExpenseCount()) {
+                mismatches.add(key + ": expected total=" + Money.ofCents(actual[0]) + " count=" + actual[1]
+                        + " but rollup has total=" + Money.ofCents(rollup.getTotalCents()) + " count=" + rollup.getExpenseCount());
+            }
+        }
+        expected.keySet().forEach(key -> mismatches.add(key + ": missing rollup"));
+
+        return new RollupVerification(user.getId(), stored.size() + expected.size(), mismatches);
+    }
+
+    // Backfill rollups for data written before the rollup table existed
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (rollupRepository.count() > 0 || expenseRepository.count() == 0) {
+            return;
+        }
+        int buckets = 0;
+        for (User user : userRepository.findAll()) {
+            buckets += rebuild(user);
+        }
+        log.info("Backfilled {} expense rollup buckets", buckets);
+    }
+
+    // [sum(cents), count] per bucket over the expenses table plus the archived months
+    private Map<Bucket, long[]> aggregate(User user) {
+        Map<Bucket, long[]> sums = new HashMap<>();
+        List<Object[]> rows = archiveService.readConsistently(user, () -> {
+            List<Object[]> aggregates = new ArrayList<>(expenseRepository.aggregateByMonthAndCategory(user));
+            aggregates.addAll(archiveService.aggregateByMonthAndCategory(user));
+            return aggregates;
+        });
+        for (Object[] row : rows) {
+            long[] sum = sums.computeIfAbsent(new Bucket(((Number) row[0]).intValue(), ((Number) row[1]).intValue(),
+                    ((Number) row[2]).intValue()), bucket -> new long[2]);
+            sum[0] += ((Number) row[3]).longValue();
+            sum[1] += ((Number) row[4]).longValue();
+        }
+        return sums;
+    }
+
+    private static String bucketKey(int year, int month, int categoryId) {
+        return year + "-" + month + "/category " + categoryId;
+    }
+
+    private record Bucket(int year, int month, int categoryId) {}
+}
@@ -0,0 +1,174 @@
+package com.spendwise.spendwise.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spendwise.spendwise.config.CacheConfig;
+import com.spendwise.spendwise.dto.ExpenseView;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Full-text search and type-ahead over expense titles, answered from a
+ * per-user ExpenseTitleIndex. An index is built from the database on the
+ * user's first search from the table and the archive, extended as expenses
+ * are added after commit, and evicted by size or idleness; imports and
+ * archival runs drop it so it is rebuilt.
+ */
+@Service
+public class ExpenseSearchService {
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseArchiveService archiveService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Cache<Long, ExpenseTitleIndex> indexes;
+
+    public ExpenseSearchService(ExpenseRepository expenseRepository,
+                                ExpenseArchiveService archiveService,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${spendwise.search.max-indexed-rows:2000000}") long maxIndexedRows,
+                                @Value("${spendwise.search.idle-expiry:30m}") Duration idleExpiry) {
+        this.expenseRepository = expenseRepository;
+        this.archiveService = archiveService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Weighed when loaded or updated, so appended expenses count once the next one arrives
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(maxIndexedRows)
+                .weigher((Long userId, ExpenseTitleIndex index) -> index.size())
+                .expireAfterAccess(idleExpiry)
+                .recordStats()
+                .build();
+        CacheConfig.monitor(meterRegistry, indexes, "expenseTitleIndexes");
+    }
+
+    /**
+     * Expenses whose title contains every word of the query, newest first.
+     * The last word also matches longer words starting with it unless the
+     * query ends in a separator, so the results follow the user as they type.
+     * Null category id and dates leave that filter open.
+     */
+    public List<ExpenseView> search(User user, String query, Integer categoryId, LocalDate start, LocalDate end, int limit) {
+        List<String> tokens = ExpenseTitleIndex.tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        String prefix = null;
+        if (Character.isLetterOrDigit(query.charAt(query.length() - 1))) {
+            prefix = tokens.remove(tokens.size() - 1);
+        }
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(tokens));
+
+        List<ExpenseTitleIndex.Hit> hits = index(user).search(words, prefix, categoryId,
+                start == null ? Integer.MIN_VALUE : (int) start.toEpochDay(),
+                end == null ? Integer.MAX_VALUE : (int) end.toEpochDay(), limit);
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> idList = new ArrayList<>(hits.size());
+        for (ExpenseTitleIndex.Hit hit : hits) {
+            idList.add(hit.id());
+        }
+        Map<Long, ExpenseView> byId = new HashMap<>();
+        for (ExpenseView expense : expenseRepository.findViewsByIdIn(idList)) {
+            byId.put(expense.id(), expense);
+        }
+        // Hits missing from the table were archived; only the archive segments holding their days are read
+        Set<Long> archived = new HashSet<>();
+        int oldestArchived = Integer.MAX_VALUE;
+        int newestArchived = Integer.MIN_VALUE;
+        for (ExpenseTitleIndex.Hit hit : hits) {
+            if (!byId.containsKey(hit.id())) {
+                archived.add(hit.id());
+                oldestArchived = Math.min(oldestArchived, hit.epochDay());
+                newestArchived = Math.max(newestArchived, hit.epochDay());
+            }
+        }
+        if (!archived.isEmpty()) {
+            for (ExpenseView expense : archiveService.views(user, LocalDate.ofEpochDay(oldestArchived),
+                    LocalDate.ofEpochDay(newestArchived))) {
+                if (archived.contains(expense.id())) {
+                    byId.put(expense.id(), expense);
+                }
+            }
+        }
+        List<ExpenseView> results = new ArrayList<>(hits.size());
+        for (Long id : idList) {
+            ExpenseView expense = byId.get(id);
+            if (expense != null) {
+                results.add(expense);
+            }
+        }
+        return results;
+    }
+
+    // Title words starting with the prefix, most used first
+    public List<String> suggest(User user, String prefix, int limit) {
+        List<String> tokens = ExpenseTitleIndex.tokenize(prefix);
+        if (tokens.size() != 1) {
+            return List.of();
+        }
+        return index(user).suggest(tokens.get(0), limit);
+    }
+
+    @TransactionalEventListener
+    public void onExpenseAdded(ExpenseAddedEvent event) {
+        // Waits for an index that is still loading, which may or may not include the expense
+        indexes.asMap().computeIfPresent(event.userId(), (userId, index) -> {
+            index.addIfAbsent(event.expenseId(), (int) event.date().toEpochDay(), event.categoryId(), event.title());
+            return index;
+        });
+    }
+
+    @TransactionalEventListener
+    public void onExpensesImported(ExpensesImportedEvent event) {
+        indexes.invalidate(event.userId());
+    }
+
+    // Dropped so the next search rebuilds the index from the table and the archive as they now are
+    @TransactionalEventListener
+    public void onExpensesArchived(ExpensesArchivedEvent event) {
+        indexes.invalidate(event.userId());
+    }
+
+    private ExpenseTitleIndex index(User user) {
+        return indexes.get(user.getId(), userId -> load(user));
+    }
+
+    // Archived expenses are indexed too, merged in by (date, id) so one seen in both is indexed once
+    private ExpenseTitleIndex load(User user) {
+        return readOnlyTransaction.execute(status -> {
+            ExpenseTitleIndex index = new ExpenseTitleIndex();
+            Function<String, Integer> categoryIds = archiveService.categoryIds(user);
+            try (Stream<Object[]> rows = expenseRepository.streamTitlesByUser(user)) {
+                archiveService.forEachInOrder(user, rows, row -> (int) ((LocalDate) row[1]).toEpochDay(),
+                        row -> ((Number) row[0]).longValue(),
+                        row -> index.add(((Number) row[0]).longValue(),
+                                (int) ((LocalDate) row[1]).toEpochDay(),
+                                ((Number) row[2]).intValue(),
+                                (String) row[3]),
+                        row -> index.add(row.id(), row.epochDay(), categoryIds.apply(row.category()), row.title()));
+            }
+            return index;
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write path for expenses. Every change goes through here so derived data
+ * (rollups) is updated in the same transaction as the expense row, and
+ * in-memory read models hear about it through an ExpenseAddedEvent.
+ */
+@Service
+public class ExpenseService {
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseRollupService rollupService;
+    private final CategoryDictionary categoryDictionary;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ExpenseService(ExpenseRepository expenseRepository,
+                          ExpenseRollupService rollupService,
+                          CategoryDictionary categoryDictionary,
+                          ApplicationEventPublisher eventPublisher) {
+        this.expenseRepository = expenseRepository;
+        this.rollupService = rollupService;
+        this.categoryDictionary = categoryDictionary;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public Expense addExpense(User user, Expense expense) {
+        prepare(user, expense);
+        Expense savedExpense = expenseRepository.save(expense);
+        rollupService.record(savedExpense);
+        publishAdded(savedExpense);
+        return savedExpense;
+    }
+
+    /**
+     * Saves expenses already passed through prepare, possibly of different
+     * users, in one transaction. Inserts go out as JDBC batches and each
+     * rollup bucket is updated once for the whole list.
+     */
+    @Transactional
+    public List<Expense> addExpenses(List<Expense> expenses) {
+        List<Expense> savedExpenses = expenseRepository.saveAll(expenses);
+        Map<RollupKey, long[]> deltas = new LinkedHashMap<>();
+        Map<RollupKey, Expense> samples = new HashMap<>();
+        for (Expense expense : savedExpenses) {
+            RollupKey key = new RollupKey(expense.getUser().getId(), expense.getDate().getYear(),
+                    expense.getDate().getMonthValue(), expense.getCategory().getId());
+            long[] delta = deltas.computeIfAbsent(key, k -> new long[2]);
+            delta[0] += expense.getAmount().cents();
+            delta[1]++;
+            samples.putIfAbsent(key, expense);
+        }
+        deltas.forEach((key, delta) -> {
+            Expense sample = samples.get(key);
+            rollupService.apply(sample.getUser(), sample.getDate(), sample.getCategory(), delta[0], delta[1]);
+        });
+        savedExpenses.forEach(this::publishAdded);
+        return savedExpenses;
+    }
+
+    // Assigns the user and resolves the category by name; runs outside the saving transaction
+    public void prepare(User user, Expense expense) {
+        expense.setUser(user);
+        if (expense.getCategory() == null) {
+            if (expense.getCategoryName() == null || expense.getCategoryName().isBlank()) {
+                throw new IllegalArgumentException("category is required");
+            }
+            expense.setCategory(categoryDictionary.resolve(user, expense.getCategoryName().trim()));
+        }
+    }
+
+    private void publishAdded(Expense savedExpense) {
+        eventPublisher.publishEvent(new ExpenseAddedEvent(savedExpense.getUser().getId(), savedExpense.getId(),
+                savedExpense.getDate(), savedExpense.getAmount().cents(), savedExpense.getCategory().getId(),
+                savedExpense.getTitle()));
+    }
+
+    private record RollupKey(Long userId, int year, int month, Integer categoryId) {}
+}
@@ -0,0 +1,122 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.TimeSeries;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.repository.TimeBucket;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds bucketed spending series from a single grouped query. The range is
+ * snapped outwards to whole buckets at both ends, so every point, like every
+ * bucket its moving average and delta compare with, covers a full bucket.
+ * The query range is widened backwards by the buckets the moving average and
+ * deltas look at, so the first requested point already has a full window;
+ * empty buckets are filled with zero in Java. Archived expenses are added
+ * from their monthly summaries where whole months allow.
+ */
+@Service
+public class ExpenseTimeSeriesService {
+
+    public static final int MAX_POINTS = 5_000;
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseArchiveService archiveService;
+    private final CategoryDictionary categoryDictionary;
+
+    public ExpenseTimeSeriesService(ExpenseRepository expenseRepository, ExpenseArchiveService archiveService,
+                                    CategoryDictionary categoryDictionary) {
+        this.expenseRepository = expenseRepository;
+        this.archiveService = archiveService;
+        this.categoryDictionary = categoryDictionary;
+    }
+
+    // movingAverage is a window in buckets (0 for none); throws IllegalArgumentException for ranges over MAX_POINTS buckets
+    public TimeSeries series(User user, TimeBucket bucket, LocalDate startDate, LocalDate endDate,
+                             boolean byCategory, int movingAverage, boolean deltas) {
+        LocalDate first = bucket.start(startDate);
+        LocalDate last = bucket.start(endDate);
+        long points = bucketsBetween(bucket, first, last) + 1;
+        if (endDate.isBefore(startDate) || points > MAX_POINTS) {
+            throw new IllegalArgumentException("Range must run forwards and span at most " + MAX_POINTS + " buckets");
+        }
+        LocalDate lastDay = bucket.next(last).minusDays(1);
+
+        int lookback = Math.max(movingAverage - 1, deltas ? 1 : 0);
+        LocalDate queryStart = bucket.plus(first, -lookback);
+        int size = (int) points + lookback;
+
+        // Bucket position -> [cents, count], plus cents per category id when split
+        long[] cents = new long[size];
+        long[] counts = new long[size];
+        List<Map<Integer, long[]>> categoryCents = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            categoryCents.add(byCategory ? new HashMap<>() : null);
+        }
+        List<Object[]> rows = archiveService.readConsistently(user, () -> {
+            List<Object[]> sums = new ArrayList<>(expenseRepository.sumByBucketAndCategory(user, bucket, queryStart, lastDay));
+            sums.addAll(archiveService.sumByBucketAndCategory(user, bucket, queryStart, lastDay));
+            return sums;
+        });
+        for (Object[] row : rows) {
+            int index = (int) bucketsBetween(bucket, queryStart, (LocalDate) row[0]);
+            long amount = ((Number) row[2]).longValue();
+            cents[index] += amount;
+            counts[index] += ((Number) row[3]).longValue();
+            if (byCategory) {
+                categoryCents.get(index).computeIfAbsent((Integer) row[1], c -> new long[1])[0] += amount;
+            }
+        }
+
+        List<TimeSeries.Point> series = new ArrayList<>((int) points);
+        long windowCents = 0;
+        LocalDate start = queryStart;
+        for (int i = 0; i < size; i++, start = bucket.next(start)) {
+            windowCents += cents[i];
+            if (movingAverage > 0 && i >= movingAverage) {
+                windowCents -= cents[i - movingAverage];
+            }
+            if (i < lookback) {
+                continue;
+            }
+            Money average = movingAverage > 0 ? Money.ofCents(Math.round(windowCents / (double) movingAverage)) : null;
+            Money delta = null;
+            Double deltaPercent = null;
+            if (deltas) {
+                long previous = cents[i - 1];
+                delta = Money.ofCents(cents[i] - previous);
+                if (previous != 0) {
+                    deltaPercent = Math.round((cents[i] - previous) * 1000.0 / previous) / 10.0;
+                }
+            }
+            series.add(new TimeSeries.Point(start, Money.ofCents(cents[i]), counts[i], average, delta, deltaPercent,
+                    byCategory ? categoryTotals(user, categoryCents.get(i)) : null));
+        }
+        return new TimeSeries(bucket.name().toLowerCase(), first, lastDay, series);
+    }
+
+    private Map<String, Money> categoryTotals(User user, Map<Integer, long[]> cents) {
+        Map<String, Money> totals = new HashMap<>();
+        cents.forEach((categoryId, sum) -> totals.put(categoryDictionary.name(user, categoryId), Money.ofCents(sum[0])));
+        return totals;
+    }
+
+    // Whole buckets from one bucket start to another
+    private static long bucketsBetween(TimeBucket bucket, LocalDate from, LocalDate to) {
+        return switch (bucket) {
+            case DAY -> ChronoUnit.DAYS.between(from, to);
+            case WEEK -> ChronoUnit.WEEKS.between(from, to);
+            case MONTH -> ChronoUnit.MONTHS.between(from, to);
+            case QUARTER -> ChronoUnit.MONTHS.between(from, to) / 3;
+            case YEAR -> ChronoUnit.YEARS.between(from, to);
+        };
+    }
+}
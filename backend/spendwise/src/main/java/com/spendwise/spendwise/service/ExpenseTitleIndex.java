@@ -0,0 +1,230 @@
+package com.spendwise.spendwise.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over one user's expense titles. Each expense is a document
+ * numbered in the order it was added; the sorted term map doubles as the
+ * prefix tree for type-ahead, since every term starting with a prefix sits in
+ * one contiguous sub-map. Per document it keeps only the expense id, day and
+ * category id needed to filter and rank matches; the expenses themselves are
+ * loaded from the database by id.
+ *
+ * Documents are only ever appended. Reads and appends are guarded by a
+ * read-write lock.
+ */
+final class ExpenseTitleIndex {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    private long[] ids = new long[64];
+    private int[] days = new int[64];
+    private int[] categoryIds = new int[64];
+    private volatile int size;
+
+    // A matching expense and its day, which is enough to find it again in the table or the archive
+    record Hit(long id, int epochDay) {}
+
+    int size() {
+        return size;
+    }
+
+    // Appends without checking for duplicates; used while loading from the database
+    void add(long id, int epochDay, int categoryId, String title) {
+        lock.writeLock().lock();
+        try {
+            append(id, epochDay, categoryId, title);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Appends unless the expense is already indexed, e.g. because the index was loaded after it was committed
+    void addIfAbsent(long id, int epochDay, int categoryId, String title) {
+        lock.writeLock().lock();
+        try {
+            // A linear scan is cheap next to a write, and avoids a boxed id set per user
+            for (int doc = size - 1; doc >= 0; doc--) {
+                if (ids[doc] == id) {
+                    return;
+                }
+            }
+            append(id, epochDay, categoryId, title);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the expenses whose title contains every word and, when prefix is
+     * not null, some term starting with it; restricted to the category (if
+     * not null) and to days within [fromDay, toDay]. Newest first, at most
+     * limit of them.
+     */
+    List<Hit> search(List<String> words, String prefix, Integer categoryId, int fromDay, int toDay, int limit) {
+        lock.readLock().lock();
+        try {
+            Postings[] lists = new Postings[words.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = terms.get(words.get(i));
+                if (lists[i] == null) {
+                    return List.of();
+                }
+            }
+            // Drive the intersection from the rarest word
+            Arrays.sort(lists, Comparator.comparingInt(postings -> postings.size));
+
+            BitSet prefixDocs = null;
+            if (prefix != null) {
+                prefixDocs = new BitSet(size);
+                for (Postings postings : withPrefix(prefix).values()) {
+                    postings.addTo(prefixDocs);
+                }
+            }
+
+            // Keys sort by day, then by document number, which follows id order within a day
+            long[] keys = new long[16];
+            int matches = 0;
+            if (lists.length > 0) {
+                Postings driver = lists[0];
+                for (int i = 0; i < driver.size; i++) {
+                    int doc = driver.docs[i];
+                    if (matchesAll(lists, doc) && (prefixDocs == null || prefixDocs.get(doc))
+                            && accepts(doc, categoryId, fromDay, toDay)) {
+                        keys = addKey(keys, matches++, doc);
+                    }
+                }
+            } else if (prefixDocs != null) {
+                for (int doc = prefixDocs.nextSetBit(0); doc >= 0; doc = prefixDocs.nextSetBit(doc + 1)) {
+                    if (accepts(doc, categoryId, fromDay, toDay)) {
+                        keys = addKey(keys, matches++, doc);
+                    }
+                }
+            }
+
+            Arrays.sort(keys, 0, matches);
+            List<Hit> result = new ArrayList<>(Math.min(limit, matches));
+            for (int i = matches - 1; i >= 0 && result.size() < limit; i--) {
+                int doc = (int) keys[i];
+                result.add(new Hit(ids[doc], days[doc]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Terms starting with the prefix, most frequent first
+    List<String> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Map.Entry<String, Postings>> candidates = new ArrayList<>(withPrefix(prefix).entrySet());
+            candidates.sort(Comparator.comparingInt((Map.Entry<String, Postings> entry) -> entry.getValue().size).reversed()
+                    .thenComparing(Map.Entry::getKey));
+            List<String> suggestions = new ArrayList<>(Math.min(limit, candidates.size()));
+            for (int i = 0; i < candidates.size() && i < limit; i++) {
+                suggestions.add(candidates.get(i).getKey());
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Lower-cased runs of letters and digits, in order and with repeats
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private NavigableMap<String, Postings> withPrefix(String prefix) {
+        return terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private boolean matchesAll(Postings[] lists, int doc) {
+        for (int i = 1; i < lists.length; i++) {
+            if (!lists[i].contains(doc)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean accepts(int doc, Integer categoryId, int fromDay, int toDay) {
+        return days[doc] >= fromDay && days[doc] <= toDay && (categoryId == null || categoryIds[doc] == categoryId);
+    }
+
+    private long[] addKey(long[] keys, int index, int doc) {
+        if (index == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+        }
+        keys[index] = ((long) days[doc] << 32) | doc;
+        return keys;
+    }
+
+    private void append(long id, int epochDay, int categoryId, String title) {
+        int doc = size;
+        if (doc == ids.length) {
+            int capacity = doc * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            days = Arrays.copyOf(days, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+        }
+        ids[doc] = id;
+        days[doc] = epochDay;
+        categoryIds[doc] = categoryId;
+        for (String token : tokenize(title)) {
+            terms.computeIfAbsent(token, term -> new Postings()).add(doc);
+        }
+        size = doc + 1;
+    }
+
+    // Ascending document numbers containing one term
+    private static final class Postings {
+        private int[] docs = new int[2];
+        private int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return; // term repeated within one title
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        boolean contains(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+        }
+
+        void addTo(BitSet target) {
+            for (int i = 0; i < size; i++) {
+                target.set(docs[i]);
+            }
+        }
+    }
+}
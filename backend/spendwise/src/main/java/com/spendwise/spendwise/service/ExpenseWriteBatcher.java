@@ -0,0 +1,181 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.sharding.ShardContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for single expense inserts. With spendwise.write-batching
+ * enabled, callers enqueue their expense on a bounded queue and one writer
+ * thread saves whatever has arrived, up to max-batch-size or until linger
+ * has passed since the first, in a single transaction per shard, so a burst
+ * of posts shares one commit and its fsync. A caller that cannot enqueue within
+ * enqueue-timeout gets ExpenseWriteCapacityExceededException. When disabled,
+ * every expense is saved on the caller's thread in its own transaction.
+ */
+@Service
+public class ExpenseWriteBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseWriteBatcher.class);
+
+    private final ExpenseService expenseService;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final long enqueueTimeoutNanos;
+    private final int retryAfterSeconds;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Thread writer;
+    private final DistributionSummary batchSizes;
+    private final Counter rejected;
+    private volatile boolean running = true;
+
+    public ExpenseWriteBatcher(ExpenseService expenseService,
+                               MeterRegistry meterRegistry,
+                               @Value("${spendwise.write-batching.enabled:false}") boolean enabled,
+                               @Value("${spendwise.write-batching.max-batch-size:100}") int maxBatchSize,
+                               @Value("${spendwise.write-batching.linger:5ms}") Duration linger,
+                               @Value("${spendwise.write-batching.queue-capacity:1000}") int queueCapacity,
+                               @Value("${spendwise.write-batching.enqueue-timeout:500ms}") Duration enqueueTimeout,
+                               @Value("${spendwise.write-batching.retry-after-seconds:1}") int retryAfterSeconds) {
+        this.expenseService = expenseService;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = linger.toNanos();
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("spendwise.expenses.write-queue.depth", queue, BlockingQueue::size)
+                .description("Expense inserts waiting for the group-commit writer")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("spendwise.expenses.write-batch.size")
+                .description("Expenses committed per group-commit transaction")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("spendwise.expenses.write-queue.rejected")
+                .description("Expense inserts refused because the write queue stayed full")
+                .register(meterRegistry);
+
+        this.writer = new Thread(this::run, "expense-writer");
+        this.writer.setDaemon(true);
+        if (enabled) {
+            writer.start();
+        }
+    }
+
+    // Completes with the saved expense once its batch has committed
+    public CompletableFuture<Expense> add(User user, Expense expense) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(expenseService.addExpense(user, expense));
+        }
+        // Category lookups may create a category, which must not happen inside a shared batch
+        expenseService.prepare(user, expense);
+        PendingWrite write = new PendingWrite(expense, ShardContext.current(), new CompletableFuture<>());
+        boolean queued;
+        try {
+            queued = queue.offer(write, enqueueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            rejected.increment();
+            throw new ExpenseWriteCapacityExceededException(retryAfterSeconds);
+        }
+        return write.result();
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    PendingWrite next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+            write(batch);
+            batch.clear();
+        }
+        // Whatever is still queued at shutdown fails instead of hanging its caller
+        List<PendingWrite> abandoned = new ArrayList<>(batch);
+        queue.drainTo(abandoned);
+        abandoned.forEach(write -> write.result().completeExceptionally(new IllegalStateException("Shutting down")));
+    }
+
+    // One transaction per shard the batch touches
+    private void write(List<PendingWrite> batch) {
+        Map<Integer, List<PendingWrite>> byShard = new HashMap<>();
+        for (PendingWrite write : batch) {
+            byShard.computeIfAbsent(write.shard(), shard -> new ArrayList<>()).add(write);
+        }
+        byShard.forEach((shard, writes) -> ShardContext.run(shard, () -> writeShard(writes)));
+    }
+
+    private void writeShard(List<PendingWrite> batch) {
+        batchSizes.record(batch.size());
+        List<Expense> expenses = new ArrayList<>(batch.size());
+        for (PendingWrite write : batch) {
+            expenses.add(write.expense());
+        }
+        try {
+            List<Expense> saved = expenseService.addExpenses(expenses);
+            for (int i = 0; i < batch.size(); i++) {
+                complete(batch.get(i), saved.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Expense batch of {} failed, saving one by one", batch.size(), e);
+            // One bad expense must not fail the rest; the copies are unsaved, unlike the rolled-back originals
+            for (PendingWrite write : batch) {
+                Expense expense = write.expense();
+                Expense copy = new Expense(expense.getTitle(), expense.getAmount(), expense.getCategory(),
+                        expense.getDate(), expense.getUser());
+                try {
+                    complete(write, expenseService.addExpenses(List.of(copy)).get(0));
+                } catch (RuntimeException single) {
+                    write.result().completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    // Callers continue on the common pool, routed to their shard, so follow-up work never holds up the next batch
+    private static void complete(PendingWrite write, Expense saved) {
+        write.result().completeAsync(() -> saved, ShardContext.wrap(ForkJoinPool.commonPool()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+    }
+
+    private record PendingWrite(Expense expense, int shard, CompletableFuture<Expense> result) {}
+}
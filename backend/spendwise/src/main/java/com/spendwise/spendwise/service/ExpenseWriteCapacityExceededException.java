@@ -0,0 +1,16 @@
+package com.spendwise.spendwise.service;
+
+// Thrown when the group-commit queue stays full for longer than the enqueue timeout
+public class ExpenseWriteCapacityExceededException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public ExpenseWriteCapacityExceededException(int retryAfterSeconds) {
+        super("Too many expense writes queued");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
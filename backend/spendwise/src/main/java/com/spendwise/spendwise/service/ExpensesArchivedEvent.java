@@ -0,0 +1,4 @@
+package com.spendwise.spendwise.service;
+
+// Published by ExpenseArchiveService when an archival run moved expenses of a user out of the expenses table
+public record ExpensesArchivedEvent(Long userId, int archived) {}
@@ -0,0 +1,4 @@
+package com.spendwise.spendwise.service;
+
+// Published by ExpenseImportService when an import added expenses to a user's history
+public record ExpensesImportedEvent(Long userId, int imported) {}
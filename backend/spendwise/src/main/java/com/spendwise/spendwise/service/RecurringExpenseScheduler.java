@@ -0,0 +1,243 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.RecurringExpense;
+import com.spendwise.spendwise.repository.RecurringExpenseRepository;
+import com.spendwise.spendwise.sharding.ShardDirectory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns due recurring expense occurrences into expenses. Every rule carries
+ * the date of its next occurrence, so a run only reads the due rules off the
+ * next-due index, however many rules exist. Occurrences are added through
+ * ExpenseService.addExpenses in batches of rules, and each batch advances its
+ * rules in the same transaction, so a run that stops half way, or a node that
+ * was down for a while, simply continues from the first occurrence not yet
+ * added without duplicating any. A rule that cannot be added is skipped for
+ * the rest of the run rather than holding up its batch or the other shards.
+ */
+@Service
+public class RecurringExpenseScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(RecurringExpenseScheduler.class);
+
+    // Values of earliestDueDay besides an epoch day
+    private static final long NOT_MEASURED = Long.MIN_VALUE;
+    private static final long NONE_DUE = Long.MAX_VALUE;
+
+    private final RecurringExpenseRepository recurringExpenseRepository;
+    private final ExpenseService expenseService;
+    private final ShardDirectory shardDirectory;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final int maxExpensesPerBatch;
+    private final boolean enabled;
+    private final Duration interval;
+    private final ScheduledExecutorService executor;
+    private final AtomicLong lastSuccess = new AtomicLong();
+    // Epoch day of the oldest occurrence not yet added, over all shards, as of the last run
+    private final AtomicLong earliestDueDay = new AtomicLong(NOT_MEASURED);
+    private final Timer runTimer;
+    private final Counter materialized;
+
+    public RecurringExpenseScheduler(RecurringExpenseRepository recurringExpenseRepository,
+                                     ExpenseService expenseService,
+                                     ShardDirectory shardDirectory,
+                                     PlatformTransactionManager transactionManager,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${spendwise.recurring.enabled:true}") boolean enabled,
+                                     @Value("${spendwise.recurring.interval:1m}") Duration interval,
+                                     @Value("${spendwise.recurring.batch-size:500}") int batchSize,
+                                     @Value("${spendwise.recurring.max-expenses-per-batch:5000}") int maxExpensesPerBatch) {
+        this.recurringExpenseRepository = recurringExpenseRepository;
+        this.expenseService = expenseService;
+        this.shardDirectory = shardDirectory;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxExpensesPerBatch = maxExpensesPerBatch;
+        this.enabled = enabled;
+        this.interval = interval;
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "recurring-expenses");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("spendwise.recurring.lag.days", this, RecurringExpenseScheduler::lagDays)
+                .description("Days the oldest occurrence not yet added is overdue")
+                .register(meterRegistry);
+        Gauge.builder("spendwise.recurring.last-success", lastSuccess, AtomicLong::get)
+                .description("Epoch second of the last run that added every due occurrence")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("spendwise.recurring.run.duration")
+                .register(meterRegistry);
+        this.materialized = Counter.builder("spendwise.recurring.materialized")
+                .description("Expenses added from recurring expense rules")
+                .register(meterRegistry);
+    }
+
+    // The first run catches up on whatever came due while the application was down
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            executor.scheduleWithFixedDelay(this::run, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Schedules a run right away, e.g. for a new rule that is already due; runs never overlap
+    public void runSoon() {
+        if (enabled) {
+            executor.execute(this::run);
+        }
+    }
+
+    private void run() {
+        LocalDate today = LocalDate.now();
+        AtomicBoolean complete = new AtomicBoolean(true);
+        runTimer.record(() -> shardDirectory.forEachShard(shard -> {
+            // One shard failing leaves the others to be brought up to date
+            try {
+                Set<Long> failed = new HashSet<>();
+                materializeDue(today, failed);
+                if (!failed.isEmpty()) {
+                    complete.set(false);
+                }
+            } catch (RuntimeException e) {
+                // Nothing of the failed batch was kept, so the next run retries it
+                log.warn("Adding recurring expenses on shard {} failed", shard, e);
+                complete.set(false);
+            }
+        }));
+        if (complete.get()) {
+            lastSuccess.set(System.currentTimeMillis() / 1000);
+        }
+        measureEarliestDue();
+    }
+
+    // Queried once per run rather than on every scrape; the gauge ages the result itself
+    private void measureEarliestDue() {
+        try {
+            AtomicLong earliest = new AtomicLong(NONE_DUE);
+            shardDirectory.forEachShard(shard -> {
+                LocalDate due = recurringExpenseRepository.findEarliestDueDate();
+                if (due != null) {
+                    earliest.accumulateAndGet(due.toEpochDay(), Math::min);
+                }
+            });
+            earliestDueDay.set(earliest.get());
+        } catch (RuntimeException e) {
+            log.warn("Measuring the recurring expense lag failed", e);
+        }
+    }
+
+    // Adds every occurrence dated on or before the given day on the current shard; returns how many expenses were added
+    public long materializeDue(LocalDate today) {
+        return materializeDue(today, new HashSet<>());
+    }
+
+    /**
+     * Adds due occurrences batch by batch. A batch that fails is rolled back
+     * and redone one rule per transaction, so a rule that cannot be added
+     * holds up only itself: it goes into failed and is left out for the rest
+     * of the run, and the next run tries it again.
+     */
+    long materializeDue(LocalDate today, Set<Long> failed) {
+        long total = 0;
+        while (true) {
+            int added;
+            int failedBefore = failed.size();
+            try {
+                added = transaction.execute(status -> addOccurrences(due(today, failed), today));
+            } catch (RuntimeException e) {
+                added = addOneRuleAtATime(today, failed);
+            }
+            if (added == 0 && failed.size() == failedBefore) {
+                return total;
+            }
+            materialized.increment(added);
+            total += added;
+        }
+    }
+
+    private int addOneRuleAtATime(LocalDate today, Set<Long> failed) {
+        List<Long> ids = transaction.execute(status -> due(today, failed).stream().map(RecurringExpense::getId).toList());
+        int added = 0;
+        for (Long id : ids) {
+            try {
+                added += transaction.execute(status -> recurringExpenseRepository.findById(id)
+                        .map(rule -> addOccurrences(List.of(rule), today))
+                        .orElse(0));
+            } catch (RuntimeException e) {
+                log.warn("Adding occurrences of recurring expense {} failed; skipping it until the next run", id, e);
+                failed.add(id);
+            }
+        }
+        return added;
+    }
+
+    // Up to batchSize due rules, leaving out those that failed earlier in the run
+    private List<RecurringExpense> due(LocalDate today, Set<Long> failed) {
+        return recurringExpenseRepository.findDue(today, Limit.of(batchSize + failed.size())).stream()
+                .filter(rule -> !failed.contains(rule.getId()))
+                .limit(batchSize)
+                .toList();
+    }
+
+    // Adds the rules' due occurrences and advances them past those added, in the caller's transaction
+    private int addOccurrences(List<RecurringExpense> rules, LocalDate today) {
+        List<Expense> expenses = new ArrayList<>();
+        for (RecurringExpense rule : rules) {
+            // Long catch-ups are spread over several batches; a rule stays due until it is current
+            while (expenses.size() < maxExpensesPerBatch && rule.getNextDueDate() != null
+                    && !rule.getNextDueDate().isAfter(today)) {
+                expenses.add(new Expense(rule.getTitle(), rule.getAmount(), rule.getCategory(),
+                        rule.getNextDueDate(), rule.getUser()));
+                rule.advance();
+            }
+        }
+        expenseService.addExpenses(expenses);
+        return expenses.size();
+    }
+
+    // Keeps growing while runs stall, since the stored date stays put
+    private double lagDays() {
+        long earliest = earliestDueDay.get();
+        if (earliest == NOT_MEASURED) {
+            return Double.NaN;
+        }
+        if (earliest == NONE_DUE) {
+            return 0;
+        }
+        return Math.max(0, LocalDate.now().toEpochDay() - earliest);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,16 @@
+package com.spendwise.spendwise.service;
+
+// Thrown when the report job pool and its queue are both full
+public class ReportCapacityExceededException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public ReportCapacityExceededException(int retryAfterSeconds) {
+        super("Too many report jobs queued");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,213 @@
+package com.spendwise.spendwise.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spendwise.spendwise.config.CacheConfig;
+import com.spendwise.spendwise.dto.RangeReport;
+import com.spendwise.spendwise.dto.ReportJobStatus;
+import com.spendwise.spendwise.entity.ExpenseRollup;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRollupRepository;
+import com.spendwise.spendwise.sharding.ShardContext;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs long-range reports (many months, optionally split by category) as
+ * background jobs on a small bounded pool, so they never hold a Tomcat
+ * thread. Reports are computed from expense_rollups and cached under the
+ * user's data version: resubmitting an unchanged request returns the same
+ * job, and any expense or budget write makes the next submission compute a
+ * fresh one. When the pool and its queue are full, submissions are refused
+ * with ReportCapacityExceededException.
+ */
+@Service
+public class ReportJobService {
+
+    public static final int MAX_MONTHS = 20 * 12;
+
+    private final ExpenseRollupRepository rollupRepository;
+    private final CategoryDictionary categoryDictionary;
+    private final UserDataVersions dataVersions;
+    private final ThreadPoolExecutor executor;
+    private final int retryAfterSeconds;
+    private final Cache<ReportKey, Job> jobsByKey;
+    private final Cache<String, Job> jobsById;
+    private final Timer runTimer;
+    private final Counter rejected;
+
+    public ReportJobService(ExpenseRollupRepository rollupRepository,
+                            CategoryDictionary categoryDictionary,
+                            UserDataVersions dataVersions,
+                            MeterRegistry meterRegistry,
+                            @Value("${spendwise.reports.threads:2}") int threads,
+                            @Value("${spendwise.reports.queue-capacity:16}") int queueCapacity,
+                            @Value("${spendwise.reports.retry-after-seconds:5}") int retryAfterSeconds,
+                            @Value("${spendwise.reports.result-ttl:1h}") Duration resultTtl) {
+        this.rollupRepository = rollupRepository;
+        this.categoryDictionary = categoryDictionary;
+        this.dataVersions = dataVersions;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "report-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.jobsByKey = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(resultTtl)
+                .recordStats()
+                .build();
+        this.jobsById = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(resultTtl)
+                .build();
+        CacheConfig.monitor(meterRegistry, jobsByKey, "reportResults");
+
+        Gauge.builder("spendwise.reports.queue.depth", executor, e -> e.getQueue().size())
+                .description("Report jobs waiting for a worker")
+                .register(meterRegistry);
+        Gauge.builder("spendwise.reports.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Report jobs currently running")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("spendwise.reports.duration")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("spendwise.reports.rejected")
+                .description("Report jobs refused because the queue was full")
+                .register(meterRegistry);
+    }
+
+    // Returns the running or finished job for an identical request at the current data version, or starts one
+    public Job submit(User user, YearMonth from, YearMonth to, Grouping grouping, boolean byCategory) {
+        // Read before the rollups so a result is never cached under a newer version than its data
+        ReportKey key = new ReportKey(user.getId(), dataVersions.etag(user.getId()), from, to, grouping, byCategory);
+        Job job = jobsByKey.get(key, k -> start(user, k));
+        jobsById.put(job.id(), job);
+        return job;
+    }
+
+    // The job with this id if it belongs to the user and has not expired
+    public Job find(User user, String id) {
+        Job job = jobsById.getIfPresent(id);
+        return job != null && job.userId().equals(user.getId()) ? job : null;
+    }
+
+    private Job start(User user, ReportKey key) {
+        Job job = new Job(UUID.randomUUID().toString(), user.getId(), new CompletableFuture<>());
+        try {
+            executor.execute(ShardContext.wrap(() -> {
+                try {
+                    job.result().complete(runTimer.record(() -> run(user, key)));
+                } catch (RuntimeException e) {
+                    // Failures are not cached; the next submission tries again
+                    jobsByKey.asMap().remove(key, job);
+                    job.result().completeExceptionally(e);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ReportCapacityExceededException(retryAfterSeconds);
+        }
+        return job;
+    }
+
+    private RangeReport run(User user, ReportKey key) {
+        int fromIndex = monthIndex(key.from().getYear(), key.from().getMonthValue());
+        int toIndex = monthIndex(key.to().getYear(), key.to().getMonthValue());
+
+        // Buckets by period in chronological order, with cents and counts summed before converting to Money
+        TreeMap<String, long[]> totals = new TreeMap<>();
+        Map<String, Map<Integer, long[]>> categoryCents = new HashMap<>();
+        long totalCents = 0;
+        long expenseCount = 0;
+        for (ExpenseRollup rollup : rollupRepository.findByUserAndYearBetween(user, key.from().getYear(), key.to().getYear())) {
+            int index = monthIndex(rollup.getYear(), rollup.getMonth());
+            if (index < fromIndex || index > toIndex) {
+                continue;
+            }
+            String period = key.grouping() == Grouping.MONTH
+                    ? YearMonth.of(rollup.getYear(), rollup.getMonth()).toString()
+                    : String.valueOf(rollup.getYear());
+            long[] bucket = totals.computeIfAbsent(period, p -> new long[2]);
+            bucket[0] += rollup.getTotalCents();
+            bucket[1] += rollup.getExpenseCount();
+            if (key.byCategory()) {
+                categoryCents.computeIfAbsent(period, p -> new HashMap<>())
+                        .computeIfAbsent(rollup.getCategory().getId(), c -> new long[1])[0] += rollup.getTotalCents();
+            }
+            totalCents += rollup.getTotalCents();
+            expenseCount += rollup.getExpenseCount();
+        }
+
+        List<RangeReport.Bucket> buckets = new ArrayList<>(totals.size());
+        totals.forEach((period, bucket) -> {
+            Map<String, Money> categories = null;
+            if (key.byCategory()) {
+                categories = new HashMap<>();
+                for (Map.Entry<Integer, long[]> entry : categoryCents.get(period).entrySet()) {
+                    categories.put(categoryDictionary.name(user, entry.getKey()), Money.ofCents(entry.getValue()[0]));
+                }
+            }
+            buckets.add(new RangeReport.Bucket(period, Money.ofCents(bucket[0]), bucket[1], categories));
+        });
+        return new RangeReport(key.from(), key.to(), key.grouping().name().toLowerCase(),
+                Money.ofCents(totalCents), expenseCount, buckets);
+    }
+
+    private static int monthIndex(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public enum Grouping { MONTH, YEAR }
+
+    private record ReportKey(Long userId, String dataVersion, YearMonth from, YearMonth to,
+                             Grouping grouping, boolean byCategory) {}
+
+    public record Job(String id, Long userId, CompletableFuture<RangeReport> result) {
+
+        public ReportJobStatus status() {
+            if (!result.isDone()) {
+                return new ReportJobStatus(id, "PENDING", null, null);
+            }
+            try {
+                return new ReportJobStatus(id, "DONE", result.join(), null);
+            } catch (CompletionException e) {
+                return new ReportJobStatus(id, "FAILED", null, e.getCause().getMessage());
+            }
+        }
+    }
+}
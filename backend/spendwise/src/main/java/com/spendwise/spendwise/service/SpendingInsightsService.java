@@ -0,0 +1,137 @@
+package com.spendwise.spendwise.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spendwise.spendwise.config.CacheConfig;
+import com.spendwise.spendwise.dto.AnomalyScore;
+import com.spendwise.spendwise.dto.BudgetView;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Flags unusual expenses and projects budget spend from per-user
+ * SpendingStatistics. Statistics are built from one pass over the user's
+ * history, archive included, on first use and then only updated
+ * incrementally after each committed expense; imports and archival runs
+ * drop them so they are rebuilt.
+ */
+@Service
+public class SpendingInsightsService {
+
+    private final ExpenseRepository expenseRepository;
+    private final ExpenseArchiveService archiveService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final double anomalyThreshold;
+    private final long minSamples;
+    private final double timeConstantDays;
+    private final Cache<Long, SpendingStatistics> statistics;
+
+    public SpendingInsightsService(ExpenseRepository expenseRepository,
+                                   ExpenseArchiveService archiveService,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${spendwise.insights.anomaly-threshold:3.0}") double anomalyThreshold,
+                                   @Value("${spendwise.insights.min-samples:10}") long minSamples,
+                                   @Value("${spendwise.insights.rate-time-constant:30d}") Duration rateTimeConstant,
+                                   @Value("${spendwise.insights.idle-expiry:30m}") Duration idleExpiry) {
+        this.expenseRepository = expenseRepository;
+        this.archiveService = archiveService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.anomalyThreshold = anomalyThreshold;
+        this.minSamples = minSamples;
+        this.timeConstantDays = rateTimeConstant.toHours() / 24.0;
+        this.statistics = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterAccess(idleExpiry)
+                .recordStats()
+                .build();
+        CacheConfig.monitor(meterRegistry, statistics, "spendingStatistics");
+    }
+
+    // Scores a saved expense against the other expenses in its category; call after the expense has committed
+    public AnomalyScore score(User user, Expense expense) {
+        SpendingStatistics.Score score = statistics(user).score(expense.getCategory().getId(),
+                expense.getAmount().cents(), minSamples);
+        if (Double.isNaN(score.z())) {
+            return new AnomalyScore(false, null, null, score.sampleSize());
+        }
+        double z = Math.round(score.z() * 100) / 100.0;
+        return new AnomalyScore(Math.abs(score.z()) >= anomalyThreshold, z,
+                Money.ofCents(Math.round(score.typicalCents())), score.sampleSize());
+    }
+
+    /**
+     * Spent plus the recent daily rate of the budget's category (or of all
+     * spending for an overall budget) over the days left in the period
+     * after today. Past periods project to what was spent.
+     */
+    public long projectedCents(User user, BudgetView budget, long spentCents, LocalDate today) {
+        LocalDate from = today.plusDays(1).isAfter(budget.startDate()) ? today.plusDays(1) : budget.startDate();
+        long remainingDays = budget.endDate().toEpochDay() - from.toEpochDay() + 1;
+        if (remainingDays <= 0) {
+            return spentCents;
+        }
+        double rate = statistics(user).dailyRate(budget.categoryId(), (int) today.toEpochDay());
+        return spentCents + Math.round(rate * remainingDays);
+    }
+
+    // Runs before listeners that publish projections, such as BudgetStatusBroadcaster
+    @TransactionalEventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onExpenseAdded(ExpenseAddedEvent event) {
+        // Blocks while the user's statistics are loading; those may already include the expense
+        statistics.asMap().computeIfPresent(event.userId(), (userId, stats) -> {
+            stats.addIfAbsent(event.expenseId(), event.categoryId(), (int) event.date().toEpochDay(), event.amountCents());
+            return stats;
+        });
+    }
+
+    @TransactionalEventListener
+    public void onExpensesImported(ExpensesImportedEvent event) {
+        statistics.invalidate(event.userId());
+    }
+
+    // Dropped so the next use rebuilds the statistics from the table and the archive as they now are
+    @TransactionalEventListener
+    public void onExpensesArchived(ExpensesArchivedEvent event) {
+        statistics.invalidate(event.userId());
+    }
+
+    private SpendingStatistics statistics(User user) {
+        return statistics.get(user.getId(), userId -> load(user));
+    }
+
+    // Archived expenses count too, merged in by (date, id) so one seen in both is counted once
+    private SpendingStatistics load(User user) {
+        return readOnlyTransaction.execute(status -> {
+            SpendingStatistics.Loader loader = new SpendingStatistics.Loader(timeConstantDays);
+            Function<String, Integer> categoryIds = archiveService.categoryIds(user);
+            try (Stream<Object[]> rows = expenseRepository.streamColumnsByUser(user)) {
+                archiveService.forEachInOrder(user, rows, row -> (int) ((LocalDate) row[1]).toEpochDay(),
+                        row -> ((Number) row[0]).longValue(),
+                        row -> loader.add(((Number) row[0]).longValue(),
+                                ((Number) row[3]).intValue(),
+                                (int) ((LocalDate) row[1]).toEpochDay(),
+                                ((Number) row[2]).longValue()),
+                        row -> loader.add(row.id(), categoryIds.apply(row.category()), row.epochDay(), row.cents()));
+            }
+            return loader.build();
+        });
+    }
+}
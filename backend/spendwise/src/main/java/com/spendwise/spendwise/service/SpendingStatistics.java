@@ -0,0 +1,139 @@
+package com.spendwise.spendwise.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Running statistics over one user's expenses in constant memory per
+ * category: Welford mean and variance of log amounts, for scoring how
+ * unusual an amount is, and an exponentially decayed sum of cents, for the
+ * recent daily spending rate. The same decayed sum is kept over all
+ * categories for overall budgets. Methods are synchronized; updates are rare
+ * next to reads and each is O(1).
+ */
+final class SpendingStatistics {
+
+    // Ids of the newest expenses seen while loading, see addIfAbsent
+    private static final int RECENT_IDS = 256;
+
+    private final double timeConstantDays;
+    private final Map<Integer, Series> categories = new HashMap<>();
+    private final Series overall = new Series();
+    private Set<Long> loadedRecentIds = Set.of();
+
+    SpendingStatistics(double timeConstantDays) {
+        this.timeConstantDays = timeConstantDays;
+    }
+
+    synchronized void add(int categoryId, int epochDay, long cents) {
+        categories.computeIfAbsent(categoryId, c -> new Series()).add(epochDay, cents, timeConstantDays);
+        overall.addToRate(epochDay, cents, timeConstantDays);
+    }
+
+    // For after-commit updates: skips an expense the load already read, which can only be one of the newest ids
+    synchronized void addIfAbsent(long expenseId, int categoryId, int epochDay, long cents) {
+        if (!loadedRecentIds.contains(expenseId)) {
+            add(categoryId, epochDay, cents);
+        }
+    }
+
+    /**
+     * Z-score of an amount's log against the category's other expenses,
+     * leaving one instance of the amount out of the statistics because the
+     * expense being scored is already included. NaN with fewer than
+     * minSamples other expenses or no spread.
+     */
+    synchronized Score score(int categoryId, long cents, long minSamples) {
+        Series series = categories.get(categoryId);
+        if (series == null || series.count - 1 < minSamples) {
+            return new Score(Double.NaN, Double.NaN, series == null ? 0 : Math.max(0, series.count - 1));
+        }
+        double x = Math.log1p(cents);
+        long count = series.count - 1;
+        double mean = (series.mean * series.count - x) / count;
+        double m2 = series.m2 - (x - mean) * (x - series.mean);
+        double variance = count > 1 ? m2 / (count - 1) : 0;
+        double z = variance > 0 ? (x - mean) / Math.sqrt(variance) : Double.NaN;
+        return new Score(z, Math.expm1(mean), count);
+    }
+
+    // Recent spending rate in cents per day as of the given day; all categories when categoryId is null
+    synchronized double dailyRate(Integer categoryId, int epochDay) {
+        Series series = categoryId == null ? overall : categories.get(categoryId);
+        return series == null ? 0 : series.rate(epochDay, timeConstantDays);
+    }
+
+    private synchronized void setLoadedRecentIds(Set<Long> ids) {
+        this.loadedRecentIds = ids;
+    }
+
+    record Score(double z, double typicalCents, long sampleSize) {}
+
+    // One category's (or every expense's) running moments and decayed spending sum
+    private static final class Series {
+        private long count;
+        private double mean;
+        private double m2;
+        private double decayedCents;
+        private int lastDay = Integer.MIN_VALUE;
+
+        void add(int epochDay, long cents, double timeConstantDays) {
+            double x = Math.log1p(cents);
+            count++;
+            double delta = x - mean;
+            mean += delta / count;
+            m2 += delta * (x - mean);
+            addToRate(epochDay, cents, timeConstantDays);
+        }
+
+        void addToRate(int epochDay, long cents, double timeConstantDays) {
+            if (lastDay == Integer.MIN_VALUE) {
+                lastDay = epochDay;
+            }
+            if (epochDay >= lastDay) {
+                decayedCents = decayedCents * Math.exp(-(epochDay - lastDay) / timeConstantDays) + cents;
+                lastDay = epochDay;
+            } else {
+                // Back-dated expenses count with the weight they would have had
+                decayedCents += cents * Math.exp(-(lastDay - epochDay) / timeConstantDays);
+            }
+        }
+
+        // A steady rate r accumulates to about r * timeConstant in the decayed sum
+        double rate(int epochDay, double timeConstantDays) {
+            if (lastDay == Integer.MIN_VALUE) {
+                return 0;
+            }
+            return decayedCents * Math.exp(-Math.max(0, epochDay - lastDay) / timeConstantDays) / timeConstantDays;
+        }
+    }
+
+    /**
+     * Folds a user's history, read in any order, into statistics and
+     * remembers the newest ids it saw.
+     */
+    static final class Loader {
+        private final SpendingStatistics statistics;
+        private final PriorityQueue<Long> newestIds = new PriorityQueue<>();
+
+        Loader(double timeConstantDays) {
+            this.statistics = new SpendingStatistics(timeConstantDays);
+        }
+
+        void add(long expenseId, int categoryId, int epochDay, long cents) {
+            statistics.add(categoryId, epochDay, cents);
+            newestIds.add(expenseId);
+            if (newestIds.size() > RECENT_IDS) {
+                newestIds.poll();
+            }
+        }
+
+        SpendingStatistics build() {
+            statistics.setLoadedRecentIds(new HashSet<>(newestIds));
+            return statistics;
+        }
+    }
+}
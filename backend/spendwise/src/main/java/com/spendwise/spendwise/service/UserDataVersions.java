@@ -0,0 +1,68 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.entity.UserDataVersion;
+import com.spendwise.spendwise.repository.UserDataVersionRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Per-user data version that read endpoints turn into ETags. The version is
+ * a row of user_data_versions, so every instance serving the user sees the
+ * same one. Expense writes bump it in their own transaction, other writes
+ * right after they commit; a reader that takes the version before reading
+ * can therefore never tag newer data with an older version.
+ */
+@Service
+public class UserDataVersions {
+
+    private final UserDataVersionRepository versionRepository;
+    private final TransactionTemplate newTransaction;
+
+    public UserDataVersions(UserDataVersionRepository versionRepository, PlatformTransactionManager transactionManager) {
+        this.versionRepository = versionRepository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // Strong ETag value for everything the user can read right now
+    public String etag(Long userId) {
+        return "\"" + versionRepository.findVersion(userId).orElse(0L) + "\"";
+    }
+
+    // For responses that also depend on something besides the user's data, such as today's date
+    public String etag(Long userId, String qualifier) {
+        String etag = etag(userId);
+        return etag.substring(0, etag.length() - 1) + "-" + qualifier + "\"";
+    }
+
+    // Call within the write's transaction or after it has committed, never before
+    @Transactional
+    public void bump(Long userId) {
+        if (versionRepository.increment(userId) == 0) {
+            try {
+                newTransaction.executeWithoutResult(status -> versionRepository.save(new UserDataVersion(userId, 0)));
+            } catch (DataIntegrityViolationException e) {
+                // Created by a concurrent transaction
+            }
+            if (versionRepository.increment(userId) == 0) {
+                throw new IllegalStateException("Could not create the data version of user " + userId);
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onExpenseAdded(ExpenseAddedEvent event) {
+        bump(event.userId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onExpensesImported(ExpensesImportedEvent event) {
+        bump(event.userId());
+    }
+}
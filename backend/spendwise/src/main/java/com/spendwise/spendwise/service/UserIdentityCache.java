@@ -0,0 +1,34 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.config.CacheConfig;
+import com.spendwise.spendwise.dto.UserIdentity;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bounded, expiring email to user id cache in front of UserRepository.findByEmail.
+ * Unknown emails are not cached so a user who registers is visible immediately.
+ */
+@Service
+public class UserIdentityCache {
+
+    private final UserRepository userRepository;
+
+    public UserIdentityCache(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Cacheable(cacheNames = CacheConfig.USER_IDENTITIES, key = "#email", unless = "#result == null")
+    public UserIdentity find(String email) {
+        return userRepository.findByEmail(email)
+                .map(user -> new UserIdentity(user.getId(), user.getEmail()))
+                .orElse(null);
+    }
+
+    // Call whenever a user is created or an email address changes
+    @CacheEvict(cacheNames = CacheConfig.USER_IDENTITIES, key = "#email")
+    public void evict(String email) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.sharding.ShardDirectory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Creates accounts. The user row and its shard assignment are written in one
+ * transaction on shard 0, so a failed registration leaves neither behind; a
+ * duplicate email surfaces as DataIntegrityViolationException.
+ */
+@Service
+public class UserRegistrationService {
+
+    private final UserRepository userRepository;
+    private final ShardDirectory shardDirectory;
+    public UserRegistrationService(UserRepository userRepository, ShardDirectory shardDirectory) {
+        this.userRepository = userRepository;
+        this.shardDirectory = shardDirectory;
+    }
+
+    @Transactional
+    public User register(String email, String encodedPassword) {
+        // The email's local part doubles as the name, which registration does not ask for
+        User user = userRepository.saveAndFlush(new User(email.split("@")[0], email, encodedPassword));
+        shardDirectory.register(user);
+        return user;
+    }
+}
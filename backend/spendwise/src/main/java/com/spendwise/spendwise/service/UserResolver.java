@@ -0,0 +1,34 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.UserIdentity;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Resolves the email passed to the API to a User without a database round trip
+ * once the identity is cached. The returned User is an uninitialized reference,
+ * good for query parameters and associations; reading fields other than the id
+ * loads it.
+ */
+@Service
+public class UserResolver {
+
+    private final UserIdentityCache userIdentityCache;
+    private final UserRepository userRepository;
+
+    public UserResolver(UserIdentityCache userIdentityCache, UserRepository userRepository) {
+        this.userIdentityCache = userIdentityCache;
+        this.userRepository = userRepository;
+    }
+
+    public Optional<User> findByEmail(String email) {
+        UserIdentity identity = userIdentityCache.find(email);
+        if (identity == null) {
+            return Optional.empty();
+        }
+        return Optional.of(userRepository.getReferenceById(identity.id()));
+    }
+}
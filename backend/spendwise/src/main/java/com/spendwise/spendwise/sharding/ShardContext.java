@@ -0,0 +1,79 @@
+package com.spendwise.spendwise.sharding;
+
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread's connections are routed to. Request threads
+ * get it from ShardRoutingFilter; work handed to another thread must carry it
+ * over with wrap. Threads that never set it use shard 0, which is also the
+ * only shard when sharding is off.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {}
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard == null ? 0 : shard;
+    }
+
+    public static void run(int shard, Runnable action) {
+        Integer previous = enter(shard);
+        try {
+            action.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static <T> T call(int shard, Supplier<T> action) {
+        Integer previous = enter(shard);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static <E extends Exception> void runChecked(int shard, CheckedAction<E> action) throws E {
+        Integer previous = enter(shard);
+        try {
+            action.run();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    // The action bound to the calling thread's shard, for running on another thread
+    public static Runnable wrap(Runnable action) {
+        int shard = current();
+        return () -> run(shard, action);
+    }
+
+    // Runs tasks on the executor under the calling thread's shard
+    public static Executor wrap(Executor executor) {
+        return task -> executor.execute(wrap(task));
+    }
+
+    static Integer enter(int shard) {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    @FunctionalInterface
+    public interface CheckedAction<E extends Exception> {
+        void run() throws E;
+    }
+}
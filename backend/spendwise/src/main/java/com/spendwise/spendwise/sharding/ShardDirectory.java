@@ -0,0 +1,109 @@
+package com.spendwise.spendwise.sharding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.spendwise.spendwise.config.CacheConfig;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.entity.UserShard;
+import com.spendwise.spendwise.repository.UserShardRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Maps users to the shard holding their expenses, budgets, categories and
+ * rules. Accounts stay on shard 0, which also keeps the user_shards table;
+ * the user's row is copied to its shard so foreign keys hold there. New users
+ * go to their home shard, a hash of the id. Users missing from the table
+ * predate sharding and live on shard 0 until ShardRebalancer moves them.
+ */
+@Service
+public class ShardDirectory {
+
+    // Shard n's id sequences start at n times this, see ShardSchemas
+    public static final long SEQUENCE_RANGE = 1L << 40;
+
+    private final UserShardRepository userShardRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int shardCount;
+    private final Cache<Long, Integer> shards;
+    private final TransactionTemplate newTransaction;
+
+    public ShardDirectory(UserShardRepository userShardRepository,
+                          JdbcTemplate jdbcTemplate,
+                          MeterRegistry meterRegistry,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${spendwise.sharding.shards:1}") int shardCount) {
+        this.userShardRepository = userShardRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardCount = shardCount;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.shards = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .recordStats()
+                .build();
+        CacheConfig.monitor(meterRegistry, shards, "userShards");
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    public boolean isSharded() {
+        return shardCount > 1;
+    }
+
+    public int homeShard(Long userId) {
+        return Math.floorMod(Long.hashCode(userId), shardCount);
+    }
+
+    public int shardOf(Long userId) {
+        if (!isSharded()) {
+            return 0;
+        }
+        return shards.get(userId, id -> ShardContext.call(0,
+                () -> userShardRepository.findById(id).map(UserShard::getShard).orElse(0)));
+    }
+
+    // Call once a new user has been saved on shard 0, in the same transaction. The copy on the home
+    // shard needs a connection of its own and commits first; a copy left by a rolled-back
+    // registration is never referenced.
+    public void register(User user) {
+        if (!isSharded()) {
+            return;
+        }
+        int shard = homeShard(user.getId());
+        if (shard != 0) {
+            ShardContext.run(shard, () -> newTransaction.executeWithoutResult(status -> copyAccount(user)));
+        }
+        ShardContext.run(0, () -> userShardRepository.save(new UserShard(user.getId(), shard)));
+        shards.invalidate(user.getId());
+    }
+
+    // Points the user at another shard; the data must already be there
+    void move(Long userId, int shard) {
+        ShardContext.run(0, () -> userShardRepository.save(new UserShard(userId, shard)));
+        shards.invalidate(userId);
+    }
+
+    // Inserts the user's row on the current shard unless it is there already
+    void copyAccount(User user) {
+        jdbcTemplate.update("MERGE INTO users (id, name, email, password) KEY (id) VALUES (?, ?, ?, ?)",
+                user.getId(), user.getName(), user.getEmail(), user.getPassword());
+    }
+
+    // Runs the action once per shard with connections routed to it
+    public void forEachShard(IntConsumer action) {
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            ShardContext.run(shard, () -> action.accept(current));
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.spendwise.spendwise.sharding;
+
+import com.spendwise.spendwise.dto.BudgetView;
+import com.spendwise.spendwise.dto.ExpenseView;
+import com.spendwise.spendwise.entity.ArchivedExpenseSummary;
+import com.spendwise.spendwise.entity.Budget;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.ExpenseArchive;
+import com.spendwise.spendwise.entity.ExpenseArchiveSegment;
+import com.spendwise.spendwise.entity.RecurringExpense;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.entity.UserDataVersion;
+import com.spendwise.spendwise.repository.ArchivedExpenseSummaryRepository;
+import com.spendwise.spendwise.repository.BudgetRepository;
+import com.spendwise.spendwise.repository.CategoryRepository;
+import com.spendwise.spendwise.repository.ExpenseArchiveRepository;
+import com.spendwise.spendwise.repository.ExpenseArchiveSegmentRepository;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.repository.RecurringExpenseRepository;
+import com.spendwise.spendwise.repository.UserDataVersionRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.service.ExpenseRollupService;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Moves every user whose data is not on their home shard there, e.g. after
+ * sharding was turned on for an existing database or the shard count
+ * changed. A user is copied to the target shard, pointed at it in the
+ * directory and only then deleted from the source, so a move that stops
+ * half way leaves the source in charge and the next run starts that user
+ * over. Archive files are shared by all shards and stay where they are; only
+ * the user's archive row, its segment index and summaries move. Meant to run before requests are served, see
+ * spendwise.sharding.rebalance-on-startup; it takes no locks against
+ * concurrent writes.
+ */
+@Service
+public class ShardRebalancer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    // Child tables first; the account row itself stays on shard 0
+    private static final List<String> USER_TABLES = List.of(
+            "expenses", "budgets", "recurring_expenses", "expense_rollups", "archived_expense_summaries",
+            "expense_archive_segments", "expense_archives", "user_data_versions", "categories");
+
+    private final ShardDirectory shardDirectory;
+    private final UserRepository userRepository;
+    private final CategoryRepository categoryRepository;
+    private final ExpenseRepository expenseRepository;
+    private final BudgetRepository budgetRepository;
+    private final RecurringExpenseRepository recurringExpenseRepository;
+    private final ExpenseArchiveRepository archiveRepository;
+    private final ExpenseArchiveSegmentRepository segmentRepository;
+    private final ArchivedExpenseSummaryRepository summaryRepository;
+    private final UserDataVersionRepository versionRepository;
+    private final ExpenseRollupService rollupService;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+
+    public ShardRebalancer(ShardDirectory shardDirectory,
+                           UserRepository userRepository,
+                           CategoryRepository categoryRepository,
+                           ExpenseRepository expenseRepository,
+                           BudgetRepository budgetRepository,
+                           RecurringExpenseRepository recurringExpenseRepository,
+                           ExpenseArchiveRepository archiveRepository,
+                           ExpenseArchiveSegmentRepository segmentRepository,
+                           ArchivedExpenseSummaryRepository summaryRepository,
+                           UserDataVersionRepository versionRepository,
+                           ExpenseRollupService rollupService,
+                           EntityManager entityManager,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${spendwise.sharding.rebalance-batch-size:5000}") int batchSize) {
+        this.shardDirectory = shardDirectory;
+        this.userRepository = userRepository;
+        this.categoryRepository = categoryRepository;
+        this.expenseRepository = expenseRepository;
+        this.budgetRepository = budgetRepository;
+        this.recurringExpenseRepository = recurringExpenseRepository;
+        this.archiveRepository = archiveRepository;
+        this.segmentRepository = segmentRepository;
+        this.summaryRepository = summaryRepository;
+        this.versionRepository = versionRepository;
+        this.rollupService = rollupService;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    // Returns how many users were moved
+    public int rebalance() {
+        if (!shardDirectory.isSharded()) {
+            return 0;
+        }
+        List<User> users = ShardContext.call(0, userRepository::findAll);
+        int moved = 0;
+        for (User user : users) {
+            int source = shardDirectory.shardOf(user.getId());
+            int target = shardDirectory.homeShard(user.getId());
+            if (source != target) {
+                long started = System.nanoTime();
+                long expenses = move(user, source, target);
+                log.info("Moved user {} with {} expenses from shard {} to shard {} in {} ms", user.getId(),
+                        expenses, source, target, (System.nanoTime() - started) / 1_000_000);
+                moved++;
+            }
+        }
+        log.info("Rebalanced {} of {} users over {} shards", moved, users.size(), shardDirectory.shardCount());
+        return moved;
+    }
+
+    private long move(User user, int source, int target) {
+        ShardContext.run(target, () -> {
+            // Leftovers of an earlier attempt that did not finish
+            deleteData(user.getId(), target);
+            if (target != 0) {
+                shardDirectory.copyAccount(user);
+            }
+        });
+
+        Map<String, Category> categories = new HashMap<>();
+        List<Category> sourceCategories = ShardContext.call(source, () -> categoryRepository.findByUser(user));
+        ShardContext.run(target, () -> transaction.executeWithoutResult(status -> {
+            for (Category category : sourceCategories) {
+                Category copy = new Category(entityManager.getReference(User.class, user.getId()), category.getName());
+                entityManager.persist(copy);
+                categories.put(category.getName(), copy);
+            }
+        }));
+
+        long expenses = 0;
+        List<ExpenseView> page = ShardContext.call(source,
+                () -> expenseRepository.findPage(user, null, null, null, Limit.of(batchSize)));
+        while (!page.isEmpty()) {
+            List<ExpenseView> rows = page;
+            ShardContext.run(target, () -> transaction.executeWithoutResult(status -> {
+                User owner = entityManager.getReference(User.class, user.getId());
+                List<Expense> copies = new ArrayList<>(rows.size());
+                for (ExpenseView row : rows) {
+                    copies.add(new Expense(row.title(), row.amount(), reference(categories, row.category()),
+                            row.date(), owner));
+                }
+                expenseRepository.saveAll(copies);
+            }));
+            expenses += rows.size();
+            ExpenseView last = rows.get(rows.size() - 1);
+            page = rows.size() < batchSize ? List.of() : ShardContext.call(source,
+                    () -> expenseRepository.findPageAfter(user, last.date(), last.id(), null, null, null,
+                            Limit.of(batchSize)));
+        }
+
+        List<BudgetView> budgets = ShardContext.call(source, () -> budgetRepository.findViewsByUser(user));
+        List<RecurringExpense> rules = ShardContext.call(source, () -> recurringExpenseRepository.findByUser(user));
+        Optional<ExpenseArchive> archive = ShardContext.call(source, () -> archiveRepository.findById(user.getId()));
+        List<ExpenseArchiveSegment> segments = ShardContext.call(source,
+                () -> segmentRepository.findByUserIdOrderByOldestDate(user.getId()));
+        List<ArchivedExpenseSummary> summaries = ShardContext.call(source, () -> summaryRepository.findByUser(user));
+        long version = ShardContext.call(source, () -> versionRepository.findVersion(user.getId()).orElse(0L));
+        ShardContext.run(target, () -> transaction.executeWithoutResult(status -> {
+            User owner = entityManager.getReference(User.class, user.getId());
+            for (BudgetView budget : budgets) {
+                Category category = budget.category() == null ? null : reference(categories, budget.category());
+                budgetRepository.save(new Budget(owner, category, budget.amount(), budget.period(),
+                        budget.startDate(), budget.endDate()));
+            }
+            for (RecurringExpense rule : rules) {
+                recurringExpenseRepository.save(rule.copyTo(owner, reference(categories, rule.getCategoryName())));
+            }
+            archive.ifPresent(archiveRepository::save);
+            for (ExpenseArchiveSegment segment : segments) {
+                segmentRepository.save(new ExpenseArchiveSegment(user.getId(), segment.getOffset(),
+                        segment.getExpenseCount(), segment.getOldestDate(), segment.getNewestDate()));
+            }
+            for (ArchivedExpenseSummary summary : summaries) {
+                summaryRepository.save(new ArchivedExpenseSummary(owner, summary.getYear(), summary.getMonth(),
+                        reference(categories, summary.getCategory().getName()), summary.getTotalCents(),
+                        summary.getExpenseCount()));
+            }
+            // Continues past the source's version, so no ETag handed out there matches again
+            versionRepository.save(new UserDataVersion(user.getId(), version + 1));
+        }));
+        ShardContext.run(target, () -> rollupService.rebuild(entityManager.getReference(User.class, user.getId())));
+
+        shardDirectory.move(user.getId(), target);
+        ShardContext.run(source, () -> deleteData(user.getId(), source));
+        return expenses;
+    }
+
+    private Category reference(Map<String, Category> categories, String name) {
+        Category category = categories.get(name);
+        return entityManager.getReference(Category.class, category.getId());
+    }
+
+    // Removes the user's data from the current shard, and the account copy unless it is shard 0
+    private void deleteData(Long userId, int shard) {
+        transaction.executeWithoutResult(status -> {
+            for (String table : USER_TABLES) {
+                jdbcTemplate.update("DELETE FROM " + table + " WHERE user_id = ?", userId);
+            }
+            if (shard != 0) {
+                jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+            }
+        });
+    }
+}
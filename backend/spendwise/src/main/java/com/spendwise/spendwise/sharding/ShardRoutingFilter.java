@@ -0,0 +1,44 @@
+package com.spendwise.spendwise.sharding;
+
+import com.spendwise.spendwise.security.TokenService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Routes an authenticated request to its user's shard for the rest of the
+ * request thread's work. Runs after TokenAuthenticationFilter, which checks
+ * that the email parameter belongs to the token's user; anonymous requests,
+ * registration and login, stay on shard 0 with the accounts.
+ */
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    private final ShardDirectory shardDirectory;
+
+    public ShardRoutingFilter(ShardDirectory shardDirectory) {
+        this.shardDirectory = shardDirectory;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (!shardDirectory.isSharded() || authentication == null
+                || !(authentication.getDetails() instanceof TokenService.TokenClaims claims)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        Integer previous = ShardContext.enter(shardDirectory.shardOf(claims.userId()));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+}
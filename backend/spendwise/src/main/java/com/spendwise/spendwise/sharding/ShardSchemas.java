@@ -0,0 +1,69 @@
+package com.spendwise.spendwise.sharding;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Gives shards other than 0 the schema Hibernate built on shard 0, with the
+ * same ddl-auto setting, while the context starts. Also moves each shard's
+ * expenses_seq into its own range: Hibernate's pooled optimizer keeps one
+ * block of ids for the whole application and may fetch it from any shard,
+ * so the sequences must never hand out the same value.
+ */
+class ShardSchemas implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSchemas.class);
+
+    private static final List<String> SEQUENCES = List.of("expenses_seq");
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final Supplier<Metadata> metadata;
+    private final ShardDirectory shardDirectory;
+    private final JdbcTemplate jdbcTemplate;
+
+    ShardSchemas(EntityManagerFactory entityManagerFactory, Supplier<Metadata> metadata,
+                 ShardDirectory shardDirectory, JdbcTemplate jdbcTemplate) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.metadata = metadata;
+        this.shardDirectory = shardDirectory;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        Map<String, Object> settings = new HashMap<>(sessionFactory.getProperties());
+        shardDirectory.forEachShard(shard -> {
+            if (shard == 0) {
+                return;
+            }
+            log.info("Updating schema of shard {}", shard);
+            SchemaManagementToolCoordinator.process(metadata.get(), sessionFactory.getServiceRegistry(),
+                    settings, action -> { });
+            for (String sequence : SEQUENCES) {
+                moveIntoRange(sequence, shard * ShardDirectory.SEQUENCE_RANGE);
+            }
+        });
+    }
+
+    private void moveIntoRange(String sequence, long start) {
+        List<Long> baseValue = jdbcTemplate.queryForList(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = UPPER(?)",
+                Long.class, sequence);
+        if (!baseValue.isEmpty() && baseValue.get(0) < start) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + start);
+            log.info("Restarted {} on shard {} at {}", sequence, ShardContext.current(), start);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.spendwise.spendwise.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * With spendwise.sharding.shards above 1, the application DataSource becomes
+ * a ShardRoutingDataSource over one pool per shard: shard 0 is
+ * spring.datasource.url, the others url-template with {shard} replaced.
+ * Every pool takes the spring.datasource.hikari settings. Hibernate builds
+ * shard 0's schema as usual; the other shards get the same ddl-auto pass
+ * before the application starts, followed by ShardRebalancer when
+ * rebalance-on-startup is set.
+ */
+@Configuration
+@ConditionalOnExpression("${spendwise.sharding.shards:1} > 1")
+public class ShardingConfig {
+
+    // Hibernate only hands out the mapping model to integrators
+    private final AtomicReference<Metadata> metadata = new AtomicReference<>();
+
+    @Bean
+    @Primary
+    public ShardRoutingDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${spendwise.sharding.shards}") int shards,
+                                             @Value("${spendwise.sharding.url-template}") String urlTemplate) {
+        List<DataSource> pools = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            String url = shard == 0 ? properties.determineUrl()
+                    : urlTemplate.replace("{shard}", Integer.toString(shard));
+            HikariDataSource pool = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName("shard-" + shard);
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            pools.add(pool);
+        }
+        return new ShardRoutingDataSource(pools);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer shardMetadataCapture() {
+        Integrator capture = new Integrator() {
+            @Override
+            public void integrate(Metadata mapping, BootstrapContext bootstrapContext,
+                                  SessionFactoryImplementor sessionFactory) {
+                metadata.set(mapping);
+            }
+        };
+        return properties -> properties.put("hibernate.integrator_provider", (IntegratorProvider) () -> List.of(capture));
+    }
+
+    @Bean
+    ShardSchemas shardSchemas(EntityManagerFactory entityManagerFactory, ShardDirectory shardDirectory,
+                              JdbcTemplate jdbcTemplate) {
+        return new ShardSchemas(entityManagerFactory, metadata::get, shardDirectory, jdbcTemplate);
+    }
+
+    // Once every shard has its schema, before the web server accepts requests
+    @Bean
+    @ConditionalOnProperty(name = "spendwise.sharding.rebalance-on-startup", havingValue = "true")
+    public SmartInitializingSingleton shardRebalanceOnStartup(ShardSchemas shardSchemas,
+                                                              ShardRebalancer shardRebalancer) {
+        return shardRebalancer::rebalance;
+    }
+}
@@ -0,0 +1,161 @@
+package com.spendwise.spendwise;
+
+import com.spendwise.spendwise.entity.Budget;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.BudgetRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.security.TokenService;
+import com.spendwise.spendwise.service.CategoryDictionary;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares platform-thread and virtual-thread request handling under the same
+ * concurrent load against the expense and budget endpoints. Run with
+ * {@code mvn test -Pload-test}; the numbers are printed, not asserted, since
+ * they depend on the machine.
+ */
+@Tag("load")
+class ThreadModeLoadTests {
+
+	private static final int CLIENTS = 400;
+	private static final int REQUESTS_PER_CLIENT = 25;
+	private static final int EXPENSES = 20_000;
+
+	@Test
+	void compareThreadModes() throws Exception {
+		Result platform = run("platform", false);
+		Result virtual = run("virtual", true);
+
+		System.out.printf("%n%-10s %12s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "errors");
+		for (Result result : List.of(platform, virtual)) {
+			System.out.printf("%-10s %12.0f %10.1f %10.1f %8d%n",
+					result.mode, result.throughput, result.p50Millis, result.p99Millis, result.errors);
+		}
+
+		assertEquals(0, platform.errors);
+		assertEquals(0, virtual.errors);
+	}
+
+	private Result run(String mode, boolean virtualThreads) throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpendwiseApplication.class)
+				.properties(
+						"server.port=0",
+						"spring.datasource.url=jdbc:h2:mem:load-" + mode + ";DB_CLOSE_DELAY=-1",
+						"spring.jpa.show-sql=false",
+						"spring.threads.virtual.enabled=" + virtualThreads,
+						"spendwise.db.admission-timeout=30s")
+				.run()) {
+			int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+			String email = "load-" + mode + "@test.local";
+			String token = seed(context, email);
+
+			String base = "http://localhost:" + port;
+			List<URI> targets = List.of(
+					URI.create(base + "/api/expenses/page?limit=50&email=" + email),
+					URI.create(base + "/api/expenses/monthly-report?year=2025&month=6&email=" + email),
+					URI.create(base + "/api/budgets/status?email=" + email));
+
+			HttpClient client = HttpClient.newBuilder()
+					.executor(Executors.newVirtualThreadPerTaskExecutor())
+					.connectTimeout(Duration.ofSeconds(10))
+					.build();
+
+			// Warm up the JIT and the connection pool before measuring
+			load(client, token, targets, 50, 10);
+			return measure(mode, client, token, targets);
+		}
+	}
+
+	private String seed(ConfigurableApplicationContext context, String email) {
+		User user = context.getBean(UserRepository.class).save(new User("load", email, "unused"));
+		JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+		jdbcTemplate.update("INSERT INTO categories (user_id, name) SELECT ?, 'category-' || X FROM SYSTEM_RANGE(0, 7)",
+				user.getId());
+		jdbcTemplate.update(
+				"INSERT INTO expenses (id, title, amount_cents, category_id, date, user_id) "
+						+ "SELECT NEXT VALUE FOR expenses_seq, 'Expense ' || X, MOD(X, 500) * 100 + 50, "
+						+ "(SELECT c.id FROM categories c WHERE c.user_id = ? AND c.name = 'category-' || MOD(X, 8)), "
+						+ "DATEADD(DAY, MOD(X, 730), DATE '2024-01-01'), ? FROM SYSTEM_RANGE(1, ?)",
+				user.getId(), user.getId(), EXPENSES);
+		BudgetRepository budgets = context.getBean(BudgetRepository.class);
+		CategoryDictionary categories = context.getBean(CategoryDictionary.class);
+		for (int i = 0; i < 8; i++) {
+			budgets.save(new Budget(user, categories.resolve(user, "category-" + i), Money.of(BigDecimal.valueOf(1000)), "monthly",
+					LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 30)));
+		}
+		return context.getBean(TokenService.class).issue(user.getId(), email).token();
+	}
+
+	private Result measure(String mode, HttpClient client, String token, List<URI> targets) throws Exception {
+		long start = System.nanoTime();
+		Loaded loaded = load(client, token, targets, CLIENTS, REQUESTS_PER_CLIENT);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		long[] latencies = loaded.latencies;
+		Arrays.sort(latencies);
+		return new Result(mode, latencies.length / seconds,
+				latencies[(int) (latencies.length * 0.50)] / 1e6,
+				latencies[(int) (latencies.length * 0.99)] / 1e6,
+				loaded.errors);
+	}
+
+	private Loaded load(HttpClient client, String token, List<URI> targets, int clients, int requestsPerClient) throws Exception {
+		long[] latencies = new long[clients * requestsPerClient];
+		AtomicInteger errors = new AtomicInteger();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int c = 0; c < clients; c++) {
+				int clientIndex = c;
+				futures.add(executor.submit(() -> {
+					for (int r = 0; r < requestsPerClient; r++) {
+						HttpRequest request = HttpRequest.newBuilder(targets.get((clientIndex + r) % targets.size()))
+								.header("Authorization", "Bearer " + token)
+								.build();
+						long sent = System.nanoTime();
+						try {
+							HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+							if (response.statusCode() != 200) {
+								errors.incrementAndGet();
+							}
+						} catch (Exception e) {
+							errors.incrementAndGet();
+						}
+						latencies[clientIndex * requestsPerClient + r] = System.nanoTime() - sent;
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+		return new Loaded(latencies, errors.get());
+	}
+
+	private record Loaded(long[] latencies, int errors) {}
+
+	private record Result(String mode, double throughput, double p50Millis, double p99Millis, int errors) {}
+}
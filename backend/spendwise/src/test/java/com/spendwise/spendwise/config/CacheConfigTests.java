@@ -0,0 +1,31 @@
+package com.spendwise.spendwise.config;
+
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:cachemetrics;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false",
+		"spendwise.analytics.enabled=true"
+})
+class CacheConfigTests {
+
+	@Autowired
+	private PrometheusMeterRegistry prometheusMeterRegistry;
+
+	@Test
+	void managedAndServiceCachesAreAllScraped() {
+		String scrape = prometheusMeterRegistry.scrape();
+
+		for (String cache : new String[]{CacheConfig.USER_IDENTITIES, "categoryDictionaries", "expenseColumns",
+				"expenseTitleIndexes", "reportResults", "spendingStatistics"}) {
+			assertTrue(scrape.contains("cache_gets_total{cache=\"" + cache + "\""), cache);
+			assertTrue(scrape.contains("cache_size{cache=\"" + cache + "\""), cache);
+		}
+	}
+}
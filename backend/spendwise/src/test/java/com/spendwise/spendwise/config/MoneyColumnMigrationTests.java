@@ -0,0 +1,59 @@
+package com.spendwise.spendwise.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoneyColumnMigrationTests {
+
+	@Test
+	void legacyAmountsBecomeCents() {
+		JdbcTemplate jdbcTemplate = database("moneylegacy");
+		// The layout before amounts were stored as cents
+		jdbcTemplate.execute("CREATE TABLE expenses (id BIGINT PRIMARY KEY, title VARCHAR(255), amount DOUBLE)");
+		jdbcTemplate.execute("CREATE TABLE budgets (id BIGINT PRIMARY KEY, amount DECIMAL(19, 2))");
+		jdbcTemplate.execute("CREATE TABLE expense_rollups (id BIGINT PRIMARY KEY, total DOUBLE)");
+		jdbcTemplate.update("INSERT INTO expenses VALUES (1, 'Coffee', 0.1), (2, 'Lunch', 12.5), (3, 'Rent', 1234.56),"
+				+ " (4, 'Refund', -19.99), (5, 'Sum', 0.1 + 0.2)");
+		jdbcTemplate.update("INSERT INTO budgets VALUES (1, 500.00), (2, 0.05)");
+		jdbcTemplate.update("INSERT INTO expense_rollups VALUES (1, 1246.96)");
+
+		new MoneyColumnMigration(jdbcTemplate).afterPropertiesSet();
+
+		assertEquals(List.of(10L, 1_250L, 123_456L, -1_999L, 30L),
+				jdbcTemplate.queryForList("SELECT amount_cents FROM expenses ORDER BY id", Long.class));
+		assertEquals(List.of(50_000L, 5L), jdbcTemplate.queryForList("SELECT amount_cents FROM budgets ORDER BY id", Long.class));
+		assertFalse(SchemaMigrations.hasColumn(jdbcTemplate, "expenses", "amount"));
+		assertFalse(SchemaMigrations.hasColumn(jdbcTemplate, "budgets", "amount"));
+		assertFalse(SchemaMigrations.hasColumn(jdbcTemplate, "expense_rollups", "total"));
+		assertThrows(RuntimeException.class, () -> jdbcTemplate.update("INSERT INTO expenses VALUES (6, 'Null', NULL)"));
+
+		// Once converted, a restart leaves the columns alone
+		new MoneyColumnMigration(jdbcTemplate).afterPropertiesSet();
+		assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expenses", Integer.class));
+		assertEquals(123_456L, jdbcTemplate.queryForObject("SELECT amount_cents FROM expenses WHERE id = 3", Long.class));
+	}
+
+	@Test
+	void aSchemaWithoutLegacyColumnsIsLeftAlone() {
+		JdbcTemplate jdbcTemplate = database("moneycurrent");
+		jdbcTemplate.execute("CREATE TABLE expenses (id BIGINT PRIMARY KEY, amount_cents BIGINT NOT NULL)");
+
+		new MoneyColumnMigration(jdbcTemplate).afterPropertiesSet();
+
+		assertTrue(SchemaMigrations.hasColumn(jdbcTemplate, "expenses", "amount_cents"));
+		assertFalse(SchemaMigrations.hasColumn(jdbcTemplate, "budgets", "amount_cents"));
+	}
+
+	private static JdbcTemplate database(String name) {
+		return new JdbcTemplate(new SimpleDriverDataSource(new org.h2.Driver(),
+				"jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", ""));
+	}
+}
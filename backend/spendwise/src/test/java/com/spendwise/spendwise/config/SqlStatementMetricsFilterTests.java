@@ -0,0 +1,100 @@
+package com.spendwise.spendwise.config;
+
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.security.TokenService;
+import com.spendwise.spendwise.service.ExpenseService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:sqlstatements;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class SqlStatementMetricsFilterTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private TokenService tokenService;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void aListingRecordsTheSameStatementCountHoweverManyRowsItReturns() throws Exception {
+		User few = user("few", 2);
+		User many = user("many", 20);
+		// Warms the identity cache, so both measured requests find the user the same way
+		list(few);
+		list(many);
+
+		double fewStatements = statementsOf(() -> list(few));
+		double manyStatements = statementsOf(() -> list(many));
+
+		assertTrue(fewStatements > 0, String.valueOf(fewStatements));
+		assertEquals(fewStatements, manyStatements);
+	}
+
+	// Statements recorded for the one request made, waiting for the filter to record it after the response
+	private double statementsOf(Request request) throws Exception {
+		DistributionSummary summary = meterRegistry.get("spendwise.sql.statements")
+				.tag("uri", "/api/expenses").tag("method", "GET").summary();
+		long count = summary.count();
+		double total = summary.totalAmount();
+		request.send();
+		for (int i = 0; i < 100 && summary.count() == count; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(count + 1, summary.count());
+		return summary.totalAmount() - total;
+	}
+
+	private void list(User user) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+						+ "/api/expenses?email=" + user.getEmail()))
+				.header("Authorization", "Bearer " + tokenService.issue(user.getId(), user.getEmail()).token())
+				.build();
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode(), response.body());
+	}
+
+	private User user(String name, int expenses) {
+		User user = userRepository.save(new User(name, name + "@sqlstatements.test", "secret"));
+		for (int i = 0; i < expenses; i++) {
+			Expense expense = new Expense("Expense " + i, Money.ofCents(100), null, LocalDate.of(2025, 7, 1).plusDays(i), user);
+			expense.setCategoryName(i % 2 == 0 ? "Food" : "Fuel");
+			expenseService.addExpense(user, expense);
+		}
+		return user;
+	}
+
+	private interface Request {
+		void send() throws Exception;
+	}
+}
@@ -0,0 +1,88 @@
+package com.spendwise.spendwise.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:auth;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false",
+		"spendwise.security.bcrypt-strength=4"
+})
+class AuthControllerTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void registersAndLogsIn() throws Exception {
+		HttpResponse<String> registered = post("/api/auth/register", "new@auth.test", "secret");
+		assertEquals(200, registered.statusCode());
+		assertTrue(registered.body().contains("\"success\":true"));
+
+		HttpResponse<String> loggedIn = post("/api/auth/login", "new@auth.test", "secret");
+		assertEquals(200, loggedIn.statusCode());
+		assertTrue(loggedIn.body().contains("\"token\":"));
+	}
+
+	@Test
+	void racingRegistrationsOfOneEmailCreateOneUserAndConflict() throws Exception {
+		int clients = 8;
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<HttpResponse<String>>> futures = new ArrayList<>();
+		try (ExecutorService executor = Executors.newFixedThreadPool(clients)) {
+			for (int i = 0; i < clients; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return post("/api/auth/register", "race@auth.test", "secret");
+				}));
+			}
+			start.countDown();
+
+			int registered = 0;
+			for (Future<HttpResponse<String>> future : futures) {
+				HttpResponse<String> response = future.get();
+				if (response.body().contains("\"success\":true")) {
+					registered++;
+				} else {
+					// Refused by the cache check before hashing, or by the unique email index after it
+					assertTrue(response.statusCode() == 200 || response.statusCode() == 409, response.toString());
+					assertTrue(response.body().contains("User already exists"), response.body());
+				}
+			}
+			assertEquals(1, registered);
+		}
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE email = 'race@auth.test'", Integer.class));
+	}
+
+	private HttpResponse<String> post(String path, String email, String password) throws Exception {
+		String body = "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}";
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
@@ -0,0 +1,154 @@
+package com.spendwise.spendwise.controller;
+
+import com.spendwise.spendwise.entity.Budget;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.BudgetRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.security.TokenService;
+import com.spendwise.spendwise.service.ExpenseService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:budgets;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class BudgetControllerTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BudgetRepository budgetRepository;
+
+	@Autowired
+	private TokenService tokenService;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void anotherUsersBudgetCannotBeUpdatedOrDeleted() throws Exception {
+		User owner = userRepository.save(new User("owner", "owner@budgets.test", "secret"));
+		User other = userRepository.save(new User("other", "other@budgets.test", "secret"));
+		Budget budget = budgetRepository.save(new Budget(owner, null, Money.parse("100.00"), "monthly",
+				LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)));
+		String otherToken = tokenService.issue(other.getId(), other.getEmail()).token();
+
+		HttpResponse<String> update = send(otherToken, "PUT", "/api/budgets/" + budget.getId()
+				+ "?amount=1&startDate=2025-01-01&endDate=2025-01-31");
+		assertEquals(404, update.statusCode());
+		send(otherToken, "DELETE", "/api/budgets/" + budget.getId());
+
+		Budget unchanged = budgetRepository.findById(budget.getId()).orElseThrow();
+		assertEquals(10_000, unchanged.getAmount().cents());
+	}
+
+	@Test
+	void ownerCanUpdateAndDeleteTheirBudget() throws Exception {
+		User owner = userRepository.save(new User("self", "self@budgets.test", "secret"));
+		Budget budget = budgetRepository.save(new Budget(owner, null, Money.parse("100.00"), "monthly",
+				LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)));
+		String token = tokenService.issue(owner.getId(), owner.getEmail()).token();
+
+		HttpResponse<String> update = send(token, "PUT", "/api/budgets/" + budget.getId()
+				+ "?amount=250&startDate=2025-01-01&endDate=2025-01-31");
+		assertEquals(200, update.statusCode());
+		assertEquals(25_000, budgetRepository.findById(budget.getId()).orElseThrow().getAmount().cents());
+
+		assertEquals(200, send(token, "DELETE", "/api/budgets/" + budget.getId()).statusCode());
+		assertTrue(budgetRepository.findById(budget.getId()).isEmpty());
+	}
+
+	@Test
+	void browserStreamGetsASnapshotAndThenTheUpdateAfterAnExpense() throws Exception {
+		User user = userRepository.save(new User("stream", "stream@budgets.test", "secret"));
+		LocalDate today = LocalDate.now();
+		Budget budget = budgetRepository.save(new Budget(user, null, Money.parse("100.00"), "monthly",
+				today.withDayOfMonth(1), today.withDayOfMonth(today.lengthOfMonth())));
+		String session = tokenService.issue(user.getId(), user.getEmail()).token();
+
+		// A session token is never taken from the URL, and the stream token is good for the stream alone
+		assertEquals(401, get("/api/budgets/status/stream?email=" + user.getEmail() + "&access_token=" + session).statusCode());
+		HttpResponse<String> issued = send(session, "POST", "/api/budgets/status/stream-token?email=" + user.getEmail());
+		assertEquals(200, issued.statusCode());
+		String streamToken = issued.body().replaceAll(".*\"token\":\"([^\"]+)\".*", "$1");
+		assertEquals(401, get("/api/budgets?email=" + user.getEmail() + "&access_token=" + streamToken).statusCode());
+
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+						+ "/api/budgets/status/stream?email=" + user.getEmail() + "&access_token=" + streamToken))
+				.build();
+		HttpResponse<Stream<String>> stream = client.send(request, HttpResponse.BodyHandlers.ofLines());
+		assertEquals(200, stream.statusCode());
+		Iterator<String> lines = stream.body().iterator();
+		ExecutorService reader = Executors.newSingleThreadExecutor();
+		try {
+			String snapshot = nextStatus(reader, lines);
+			assertTrue(snapshot.contains("\"id\":" + budget.getId()), snapshot);
+			assertTrue(snapshot.contains("\"spent\":0"), snapshot);
+
+			Expense expense = new Expense("Groceries", Money.parse("25.00"), null, today, user);
+			expense.setCategoryName("Food");
+			expenseService.addExpense(user, expense);
+
+			String update = nextStatus(reader, lines);
+			assertTrue(update.contains("\"spent\":25"), update);
+		} finally {
+			reader.shutdownNow();
+			stream.body().close();
+		}
+	}
+
+	// Data of the next budget-status event, waiting at most a few seconds for it
+	private static String nextStatus(ExecutorService reader, Iterator<String> lines) throws Exception {
+		return reader.submit(() -> {
+			boolean status = false;
+			while (lines.hasNext()) {
+				String line = lines.next();
+				if (line.startsWith("event:")) {
+					status = line.substring(6).trim().equals("budget-status");
+				} else if (status && line.startsWith("data:")) {
+					return line.substring(5);
+				}
+			}
+			throw new IllegalStateException("Stream ended");
+		}).get(10, TimeUnit.SECONDS);
+	}
+
+	private HttpResponse<String> get(String path) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private HttpResponse<String> send(String token, String method, String path) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Authorization", "Bearer " + token)
+				.method(method, HttpRequest.BodyPublishers.noBody())
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
@@ -0,0 +1,145 @@
+package com.spendwise.spendwise.controller;
+
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.security.TokenService;
+import com.spendwise.spendwise.service.ExpenseService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:expenses;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false",
+		"spendwise.write-batching.enabled=true"
+})
+class ExpenseControllerTests {
+
+	private static final LocalDate DAY = LocalDate.of(2025, 5, 1);
+	private static final Pattern ID = Pattern.compile("\\{\"id\":(\\d+)");
+	private static final Pattern NEXT_CURSOR = Pattern.compile("\"nextCursor\":\"([^\"]+)\"");
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private TokenService tokenService;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void anExpenseWithoutACategoryIsABadRequest() throws Exception {
+		User user = user("nocategory");
+
+		HttpResponse<String> refused = post(user, "{\"title\":\"Lunch\",\"amount\":12.50,\"date\":\"2025-05-01\"}");
+
+		assertEquals(400, refused.statusCode(), refused.body());
+		assertTrue(refused.body().contains("category is required"), refused.body());
+		assertTrue(refused.body().contains("\"success\":false"), refused.body());
+		assertTrue(expenseRepository.findViewsByUser(user).isEmpty());
+
+		HttpResponse<String> added = post(user,
+				"{\"title\":\"Lunch\",\"amount\":12.50,\"category\":\"Food\",\"date\":\"2025-05-01\"}");
+		assertEquals(200, added.statusCode(), added.body());
+		assertEquals(1, expenseRepository.findViewsByUser(user).size());
+	}
+
+	@Test
+	void pagesWalkRowsSharingADateOnceEach() throws Exception {
+		User user = user("pages");
+		List<Expense> expenses = new ArrayList<>();
+		// Four expenses on each of three days, added out of date order
+		for (int i = 0; i < 12; i++) {
+			Expense expense = new Expense("Expense " + i, Money.ofCents(100L * (i + 1)), null, DAY.plusDays(i % 3), user);
+			expense.setCategoryName(i % 2 == 0 ? "Food" : "Fuel");
+			expenses.add(expenseService.addExpense(user, expense));
+		}
+		Comparator<Expense> newestFirst = Comparator.comparing(Expense::getDate).thenComparing(Expense::getId).reversed();
+
+		assertEquals(expenses.stream().sorted(newestFirst).map(Expense::getId).toList(), walk(user, 5, ""));
+		assertEquals(expenses.stream().filter(e -> e.getCategoryName().equals("Food")).sorted(newestFirst)
+				.map(Expense::getId).toList(), walk(user, 4, "&category=Food"));
+		// A page size dividing the rows exactly ends with an empty page
+		assertEquals(12, walk(user, 4, "").size());
+	}
+
+	@Test
+	void aMalformedCursorIsABadRequest() throws Exception {
+		User user = user("cursor");
+
+		for (String cursor : List.of("garbage", "2025-05-01_x", "05/01/2025_7", "_")) {
+			HttpResponse<String> refused = get(user, "/api/expenses/page?cursor=" + cursor);
+			assertEquals(400, refused.statusCode(), cursor);
+		}
+		assertEquals(200, get(user, "/api/expenses/page?cursor=2025-05-01_7").statusCode());
+	}
+
+	// Ids of every page in order, following nextCursor until it runs out
+	private List<Long> walk(User user, int limit, String filters) throws Exception {
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			HttpResponse<String> page = get(user, "/api/expenses/page?limit=" + limit + filters
+					+ (cursor == null ? "" : "&cursor=" + cursor));
+			assertEquals(200, page.statusCode(), page.body());
+			Matcher id = ID.matcher(page.body());
+			while (id.find()) {
+				ids.add(Long.parseLong(id.group(1)));
+			}
+			Matcher next = NEXT_CURSOR.matcher(page.body());
+			cursor = next.find() ? next.group(1) : null;
+		} while (cursor != null);
+		assertEquals(ids.size(), ids.stream().distinct().count(), ids.toString());
+		return ids;
+	}
+
+	private HttpResponse<String> get(User user, String path) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path
+						+ (path.contains("?") ? "&" : "?") + "email=" + user.getEmail()))
+				.header("Authorization", "Bearer " + tokenService.issue(user.getId(), user.getEmail()).token())
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private HttpResponse<String> post(User user, String body) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+						+ "/api/expenses?email=" + user.getEmail()))
+				.header("Authorization", "Bearer " + tokenService.issue(user.getId(), user.getEmail()).token())
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@expenses.test", "secret"));
+	}
+}
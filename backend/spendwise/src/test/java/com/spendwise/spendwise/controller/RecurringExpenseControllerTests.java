@@ -0,0 +1,69 @@
+package com.spendwise.spendwise.controller;
+
+import com.spendwise.spendwise.entity.RecurringExpense;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.RecurringExpenseRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.security.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:recurringrules;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class RecurringExpenseControllerTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private RecurringExpenseRepository recurringExpenseRepository;
+
+	@Autowired
+	private TokenService tokenService;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void rulesNeedAPositiveAmountInWholeCents() throws Exception {
+		User user = userRepository.save(new User("amounts", "amounts@recurringrules.test", "secret"));
+		String token = tokenService.issue(user.getId(), user.getEmail()).token();
+
+		for (String amount : List.of("0", "0.00", "-5", "12.345", "99999999999999999999")) {
+			HttpResponse<String> refused = create(token, user, amount);
+			assertEquals(400, refused.statusCode(), amount);
+		}
+		assertTrue(recurringExpenseRepository.findByUser(user).isEmpty());
+
+		assertEquals(200, create(token, user, "12.50").statusCode());
+		List<RecurringExpense> rules = recurringExpenseRepository.findByUser(user);
+		assertEquals(1, rules.size());
+		assertEquals(1_250, rules.get(0).getAmount().cents());
+	}
+
+	private HttpResponse<String> create(String token, User user, String amount) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port
+						+ "/api/recurring-expenses?email=" + user.getEmail() + "&title=Rent&amount=" + amount
+						+ "&category=Home&frequency=monthly&startDate=2099-01-01"))
+				.header("Authorization", "Bearer " + token)
+				.POST(HttpRequest.BodyPublishers.noBody())
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
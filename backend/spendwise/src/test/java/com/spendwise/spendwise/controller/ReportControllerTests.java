@@ -0,0 +1,74 @@
+package com.spendwise.spendwise.controller;
+
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.security.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:reportjobs;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class ReportControllerTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private TokenService tokenService;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void rejectsRangesAndGroupingsItCannotRun() throws Exception {
+		User user = userRepository.save(new User("invalid", "invalid@reportjobs.test", "secret"));
+		String token = tokenService.issue(user.getId(), user.getEmail()).token();
+		String jobs = "/api/reports/jobs?email=" + user.getEmail();
+
+		assertEquals(400, send(token, "POST", jobs + "&from=2024-05&to=2024-01").statusCode());
+		assertEquals(400, send(token, "POST", jobs + "&from=2000-01&to=2020-01").statusCode());
+		assertEquals(400, send(token, "POST", jobs + "&from=2024-01&to=2024-05&groupBy=week").statusCode());
+	}
+
+	@Test
+	void aJobIsPolledByItsOwnerAlone() throws Exception {
+		User owner = userRepository.save(new User("owner", "owner@reportjobs.test", "secret"));
+		User other = userRepository.save(new User("other", "other@reportjobs.test", "secret"));
+		String ownerToken = tokenService.issue(owner.getId(), owner.getEmail()).token();
+		String otherToken = tokenService.issue(other.getId(), other.getEmail()).token();
+
+		HttpResponse<String> submitted = send(ownerToken, "POST", "/api/reports/jobs?email=" + owner.getEmail()
+				+ "&from=2024-01&to=2024-12&groupBy=year");
+		assertTrue(submitted.statusCode() == 202 || submitted.statusCode() == 200, submitted.body());
+		String location = submitted.headers().firstValue("Location").orElseThrow();
+
+		HttpResponse<String> polled = send(ownerToken, "GET", location + "?email=" + owner.getEmail() + "&waitSeconds=10");
+		assertEquals(200, polled.statusCode());
+		assertTrue(polled.body().contains("\"status\":\"DONE\""), polled.body());
+		assertEquals(404, send(otherToken, "GET", location + "?email=" + other.getEmail()).statusCode());
+		assertEquals(404, send(ownerToken, "GET", "/api/reports/jobs/missing?email=" + owner.getEmail()).statusCode());
+	}
+
+	private HttpResponse<String> send(String token, String method, String path) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Authorization", "Bearer " + token)
+				.method(method, HttpRequest.BodyPublishers.noBody())
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
@@ -0,0 +1,62 @@
+package com.spendwise.spendwise.entity;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTests {
+
+	@Test
+	void amountsAreRoundedHalfUpToTheCent() {
+		assertEquals(1_250, Money.of(new BigDecimal("12.5")).cents());
+		assertEquals(1_235, Money.of(new BigDecimal("12.345")).cents());
+		assertEquals(1_234, Money.of(new BigDecimal("12.3449")).cents());
+		assertEquals(-1, Money.of(new BigDecimal("-0.005")).cents());
+		assertEquals(10_000, Money.of(new BigDecimal("1E+2")).cents());
+		assertEquals(1_999, Money.parse(" 19.99 ").cents());
+	}
+
+	@Test
+	void amountsThatAreNotNumbersOrDoNotFitAreRejected() {
+		assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("92233720368547758.08")));
+		assertThrows(NumberFormatException.class, () -> Money.parse("12,50"));
+		assertThrows(NumberFormatException.class, () -> Money.parse(""));
+		assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)));
+		assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MIN_VALUE).minus(Money.ofCents(1)));
+	}
+
+	@Test
+	void amountsAreWrittenWithTwoDecimals() {
+		assertEquals("12.50", Money.ofCents(1_250).toString());
+		assertEquals("-0.05", Money.ofCents(-5).toString());
+		assertEquals(new BigDecimal("0.00"), Money.ZERO.toBigDecimal());
+		assertEquals(1, Money.ofCents(1).compareTo(Money.ZERO));
+	}
+
+	@Test
+	void jsonCarriesAmountsAsPlainNumbers() {
+		JsonMapper mapper = JsonMapper.builder().build();
+
+		assertEquals("12.50", mapper.writeValueAsString(Money.ofCents(1_250)));
+		assertEquals(Money.ofCents(1_250), mapper.readValue("12.5", Money.class));
+		assertEquals(Money.ofCents(10), mapper.readValue("0.1", Money.class));
+	}
+
+	@Test
+	void theConverterStoresCentsBothWays() {
+		MoneyConverter converter = new MoneyConverter();
+
+		for (long cents : new long[]{0, 1, -1_250, 1_999, Long.MAX_VALUE, Long.MIN_VALUE}) {
+			Long column = converter.convertToDatabaseColumn(Money.ofCents(cents));
+			assertEquals(cents, column);
+			assertEquals(Money.ofCents(cents), converter.convertToEntityAttribute(column));
+		}
+		assertNull(converter.convertToDatabaseColumn(null));
+		assertNull(converter.convertToEntityAttribute(null));
+	}
+}
@@ -0,0 +1,77 @@
+package com.spendwise.spendwise.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RecurringExpenseTests {
+
+	private static final LocalDate JANUARY_31 = LocalDate.of(2025, 1, 31);
+
+	@Test
+	void monthlyOccurrencesKeepTheStartDayWhereTheMonthHasIt() {
+		RecurringExpense rule = rule(RecurringExpense.Frequency.MONTHLY, 1, JANUARY_31, null);
+
+		assertEquals(JANUARY_31, rule.occurrence(0));
+		assertEquals(LocalDate.of(2025, 2, 28), rule.occurrence(1));
+		assertEquals(LocalDate.of(2025, 3, 31), rule.occurrence(2));
+		assertEquals(LocalDate.of(2025, 4, 30), rule.occurrence(3));
+		assertEquals(LocalDate.of(2028, 2, 29), rule.occurrence(37));
+	}
+
+	@Test
+	void occurrencesAreIntervalUnitsApart() {
+		RecurringExpense months = rule(RecurringExpense.Frequency.MONTHLY, 2, JANUARY_31, null);
+		assertEquals(LocalDate.of(2025, 3, 31), months.occurrence(1));
+		assertEquals(LocalDate.of(2025, 5, 31), months.occurrence(2));
+		assertEquals(LocalDate.of(2025, 7, 31), months.occurrence(3));
+
+		RecurringExpense fortnights = rule(RecurringExpense.Frequency.WEEKLY, 2, LocalDate.of(2025, 1, 1), null);
+		assertEquals(LocalDate.of(2025, 1, 15), fortnights.occurrence(1));
+		assertEquals(LocalDate.of(2025, 1, 29), fortnights.occurrence(2));
+
+		RecurringExpense days = rule(RecurringExpense.Frequency.DAILY, 3, LocalDate.of(2025, 2, 27), null);
+		assertEquals(LocalDate.of(2025, 3, 2), days.occurrence(1));
+
+		RecurringExpense years = rule(RecurringExpense.Frequency.YEARLY, 1, LocalDate.of(2024, 2, 29), null);
+		assertEquals(LocalDate.of(2025, 2, 28), years.occurrence(1));
+		assertEquals(LocalDate.of(2028, 2, 29), years.occurrence(4));
+	}
+
+	@Test
+	void anOccurrenceOnTheEndDateIsTheLast() {
+		RecurringExpense inclusive = rule(RecurringExpense.Frequency.MONTHLY, 1, JANUARY_31, LocalDate.of(2025, 3, 31));
+		assertEquals(LocalDate.of(2025, 3, 31), inclusive.occurrence(2));
+		assertNull(inclusive.occurrence(3));
+
+		RecurringExpense exclusive = rule(RecurringExpense.Frequency.MONTHLY, 1, JANUARY_31, LocalDate.of(2025, 3, 30));
+		assertEquals(LocalDate.of(2025, 2, 28), exclusive.occurrence(1));
+		assertNull(exclusive.occurrence(2));
+	}
+
+	@Test
+	void advanceMovesNextDueDateOnUntilTheRuleEnds() {
+		RecurringExpense rule = rule(RecurringExpense.Frequency.MONTHLY, 2, JANUARY_31, LocalDate.of(2025, 5, 31));
+		assertEquals(JANUARY_31, rule.getNextDueDate());
+
+		rule.advance();
+		assertEquals(LocalDate.of(2025, 3, 31), rule.getNextDueDate());
+		rule.advance();
+		assertEquals(LocalDate.of(2025, 5, 31), rule.getNextDueDate());
+		rule.advance();
+		assertNull(rule.getNextDueDate());
+	}
+
+	@Test
+	void aRuleEndingBeforeItStartsIsNeverDue() {
+		assertNull(rule(RecurringExpense.Frequency.DAILY, 1, JANUARY_31, JANUARY_31.minusDays(1)).getNextDueDate());
+	}
+
+	private static RecurringExpense rule(RecurringExpense.Frequency frequency, int interval, LocalDate start,
+										 LocalDate end) {
+		return new RecurringExpense(null, "Rent", Money.ofCents(1_000), null, frequency, interval, start, end);
+	}
+}
@@ -0,0 +1,128 @@
+package com.spendwise.spendwise.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenServiceTests {
+
+	private static final String KEY_1 = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes());
+	private static final String KEY_2 = Base64.getEncoder().encodeToString("fedcba9876543210fedcba9876543210".getBytes());
+	private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+	private static TokenService service(String activeKey, Map<String, String> keys, Instant now) {
+		return new TokenService(new TokenProperties(activeKey, keys, Duration.ofHours(1)), Clock.fixed(now, ZoneOffset.UTC));
+	}
+
+	@Test
+	void verifiesIssuedToken() {
+		TokenService tokens = service("k1", Map.of("k1", KEY_1), NOW);
+
+		TokenService.TokenClaims claims = tokens.verify(tokens.issue(42L, "user@example.com").token());
+
+		assertNotNull(claims);
+		assertEquals(42L, claims.userId());
+		assertEquals("user@example.com", claims.email());
+		assertEquals(NOW.plus(Duration.ofHours(1)), claims.expiresAt());
+	}
+
+	@Test
+	void rejectsTamperedToken() {
+		TokenService tokens = service("k1", Map.of("k1", KEY_1), NOW);
+		String token = tokens.issue(42L, "user@example.com").token();
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		String forgedPayload = encoder.encodeToString(String.join("|",
+				encoder.encodeToString("k1".getBytes()), encoder.encodeToString("1".getBytes()),
+				encoder.encodeToString("admin@example.com".getBytes()), encoder.encodeToString("9999999999".getBytes()))
+				.getBytes());
+
+		assertNull(tokens.verify(forgedPayload + token.substring(token.indexOf('.'))));
+		assertNull(tokens.verify(token.substring(0, token.length() - 2)));
+		assertNull(tokens.verify("not-a-token"));
+	}
+
+	@Test
+	void verifiesTokenForEmailContainingTheFieldSeparator() {
+		TokenService tokens = service("k1", Map.of("k1", KEY_1), NOW);
+
+		TokenService.TokenClaims claims = tokens.verify(tokens.issue(42L, "a|b@example.com").token());
+
+		assertNotNull(claims);
+		assertEquals(42L, claims.userId());
+		assertEquals("a|b@example.com", claims.email());
+	}
+
+	@Test
+	void scopedTokensAndSessionTokensAreNotInterchangeable() {
+		TokenService tokens = service("k1", Map.of("k1", KEY_1), NOW);
+		String scoped = tokens.issueScoped(42L, "user@example.com", "query", Duration.ofMinutes(1)).token();
+		String session = tokens.issue(42L, "user@example.com").token();
+
+		TokenService.TokenClaims claims = tokens.verifyScoped(scoped, "query");
+		assertNotNull(claims);
+		assertEquals(NOW.plus(Duration.ofMinutes(1)), claims.expiresAt());
+		assertNull(tokens.verify(scoped));
+		assertNull(tokens.verifyScoped(scoped, "other"));
+		assertNull(tokens.verifyScoped(session, "query"));
+		assertNull(service("k1", Map.of("k1", KEY_1), NOW.plus(Duration.ofMinutes(2))).verifyScoped(scoped, "query"));
+	}
+
+	@Test
+	void rejectsExpiredToken() {
+		String token = service("k1", Map.of("k1", KEY_1), NOW).issue(42L, "user@example.com").token();
+
+		assertNull(service("k1", Map.of("k1", KEY_1), NOW.plus(Duration.ofHours(2))).verify(token));
+	}
+
+	@Test
+	void acceptsOldKeyDuringRotationAndRejectsItAfterRemoval() {
+		String oldToken = service("k1", Map.of("k1", KEY_1), NOW).issue(42L, "user@example.com").token();
+
+		TokenService rotated = service("k2", Map.of("k1", KEY_1, "k2", KEY_2), NOW);
+		assertNotNull(rotated.verify(oldToken));
+		assertNotNull(rotated.verify(rotated.issue(42L, "user@example.com").token()));
+
+		assertNull(service("k2", Map.of("k2", KEY_2), NOW).verify(oldToken));
+	}
+
+	// Per-request authentication cost: token verification versus re-checking the password with BCrypt
+	@Test
+	void tokenVerificationIsFarCheaperThanPasswordCheck() {
+		TokenService tokens = service("k1", Map.of("k1", KEY_1), NOW);
+		String token = tokens.issue(42L, "user@example.com").token();
+		BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+		String hash = encoder.encode("correct horse battery staple");
+
+		int tokenRounds = 20_000;
+		for (int i = 0; i < tokenRounds; i++) {
+			tokens.verify(token);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < tokenRounds; i++) {
+			assertNotNull(tokens.verify(token));
+		}
+		double tokenMicros = (System.nanoTime() - start) / 1_000.0 / tokenRounds;
+
+		int bcryptRounds = 10;
+		start = System.nanoTime();
+		for (int i = 0; i < bcryptRounds; i++) {
+			assertTrue(encoder.matches("correct horse battery staple", hash));
+		}
+		double bcryptMicros = (System.nanoTime() - start) / 1_000.0 / bcryptRounds;
+
+		System.out.printf("Auth cost per request: token verify %.2f us, BCrypt matches %.0f us (%.0fx)%n",
+				tokenMicros, bcryptMicros, bcryptMicros / tokenMicros);
+		assertTrue(tokenMicros * 100 < bcryptMicros);
+	}
+}
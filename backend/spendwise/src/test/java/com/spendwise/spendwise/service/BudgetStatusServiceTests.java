@@ -0,0 +1,119 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.BudgetStatus;
+import com.spendwise.spendwise.entity.Budget;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.BudgetRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:budgetstatus;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class BudgetStatusServiceTests {
+
+	// After every period below, so projections are what was spent
+	private static final LocalDate TODAY = LocalDate.of(2025, 6, 1);
+
+	@Autowired
+	private BudgetStatusService budgetStatusService;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private CategoryDictionary categoryDictionary;
+
+	@Autowired
+	private BudgetRepository budgetRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void creditsEachExpenseToEveryBudgetWhosePeriodAndCategoryItFalls() {
+		User user = user("credit");
+		User other = user("other");
+		add(user, "Food", "10.00", LocalDate.of(2025, 1, 1));
+		add(user, "Food", "20.00", LocalDate.of(2025, 1, 15));
+		add(user, "Fuel", "40.00", LocalDate.of(2025, 1, 31));
+		add(user, "Food", "80.00", LocalDate.of(2025, 2, 1));
+		add(other, "Food", "1000.00", LocalDate.of(2025, 1, 15));
+		budget(user, null, "100.00", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+		budget(user, "Food", "50.00", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+		budget(user, "Food", "10.00", LocalDate.of(2025, 1, 10), LocalDate.of(2025, 2, 28));
+		budget(user, "Fuel", "40.00", LocalDate.of(2025, 2, 1), LocalDate.of(2025, 2, 28));
+
+		List<BudgetStatus> statuses = inCreationOrder(budgetStatusService.statuses(user, TODAY));
+
+		assertEquals(List.of(7_000L, 3_000L, 10_000L, 0L), statuses.stream().map(s -> s.spent.cents()).toList());
+		assertEquals(List.of(3_000L, 2_000L, -9_000L, 4_000L), statuses.stream().map(s -> s.remaining.cents()).toList());
+		assertEquals(List.of(70.0, 60.0, 1000.0, 0.0), statuses.stream().map(s -> s.percentage).toList());
+		statuses.forEach(status -> assertEquals(status.spent, status.projected));
+	}
+
+	@Test
+	void aZeroBudgetIsFullyUsedByAnySpending() {
+		User user = user("zero");
+		add(user, "Food", "0.01", LocalDate.of(2025, 3, 3));
+		budget(user, "Food", "0.00", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+		budget(user, "Food", "0.00", LocalDate.of(2025, 4, 1), LocalDate.of(2025, 4, 30));
+
+		List<BudgetStatus> statuses = inCreationOrder(budgetStatusService.statuses(user, TODAY));
+
+		assertEquals(100.0, statuses.get(0).percentage);
+		assertEquals(0.0, statuses.get(1).percentage);
+	}
+
+	@Test
+	void aUserWithoutBudgetsHasNoStatuses() {
+		User user = user("none");
+		add(user, "Food", "5.00", LocalDate.of(2025, 3, 3));
+
+		assertTrue(budgetStatusService.statuses(user, TODAY).isEmpty());
+	}
+
+	@Test
+	void aBudgetForACategoryNeverSpentInStaysUntouched() {
+		User user = user("unused");
+		add(user, "Food", "5.00", LocalDate.of(2025, 3, 3));
+		budget(user, "Travel", "300.00", LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+
+		BudgetStatus status = budgetStatusService.statuses(user, TODAY).get(0);
+
+		assertEquals(0, status.spent.cents());
+		assertEquals(30_000, status.remaining.cents());
+	}
+
+	private static List<BudgetStatus> inCreationOrder(List<BudgetStatus> statuses) {
+		return statuses.stream().sorted(Comparator.comparing(status -> status.budget.id())).toList();
+	}
+
+	private void add(User user, String category, String amount, LocalDate date) {
+		Expense expense = new Expense(category + " expense", Money.parse(amount), null, date, user);
+		expense.setCategoryName(category);
+		expenseService.addExpense(user, expense);
+	}
+
+	private void budget(User user, String category, String amount, LocalDate start, LocalDate end) {
+		budgetRepository.save(new Budget(user, category == null ? null : categoryDictionary.resolve(user, category),
+				Money.parse(amount), "custom", start, end));
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@budgetstatus.test", "secret"));
+	}
+}
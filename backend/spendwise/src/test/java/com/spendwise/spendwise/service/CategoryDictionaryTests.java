@@ -0,0 +1,107 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.entity.Budget;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.BudgetRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:categories;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class CategoryDictionaryTests {
+
+	@Autowired
+	private CategoryDictionary categoryDictionary;
+
+	@Autowired
+	private AutowireCapableBeanFactory beanFactory;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private BudgetRepository budgetRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void givesEachUserOneIdPerName() {
+		User user = user("names");
+		User other = user("others");
+
+		Category food = categoryDictionary.resolve(user, "Food");
+
+		assertEquals(food.getId(), categoryDictionary.resolve(user, "Food").getId());
+		assertEquals(food.getId(), categoryDictionary.findId(user, "Food"));
+		assertEquals("Food", categoryDictionary.name(user, food.getId()));
+		assertNotEquals(food.getId(), categoryDictionary.resolve(other, "Food").getId());
+		assertNull(categoryDictionary.findId(user, "Travel"));
+	}
+
+	@Test
+	void aNodeThatLosesTheInsertRaceUsesTheWinnersCategory() {
+		User user = user("race");
+		// A second node, whose dictionary was loaded before the first node created the category
+		CategoryDictionary otherNode = beanFactory.createBean(CategoryDictionary.class);
+		otherNode.resolve(user, "Rent");
+		Integer winner = categoryDictionary.resolve(user, "Food").getId();
+
+		// The caller's transaction survives the failed insert and commits its own write
+		Category food = new TransactionTemplate(transactionManager).execute(status -> {
+			Category category = otherNode.resolve(user, "Food");
+			budgetRepository.save(new Budget(user, category, Money.parse("10.00"), "monthly",
+					LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31)));
+			return category;
+		});
+
+		assertEquals(winner, food.getId());
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM categories WHERE user_id = ? AND name = 'Food'",
+				Integer.class, user.getId()));
+		assertEquals(1, budgetRepository.findViewsByUser(user).size());
+	}
+
+	@Test
+	void findsCategoriesCreatedByAnotherNode() {
+		User user = user("elsewhere");
+		CategoryDictionary otherNode = beanFactory.createBean(CategoryDictionary.class);
+		otherNode.resolve(user, "Rent");
+
+		Integer id = categoryDictionary.resolve(user, "Fuel").getId();
+
+		assertEquals(id, otherNode.findId(user, "Fuel"));
+		assertEquals("Fuel", otherNode.name(user, id));
+	}
+
+	@Test
+	void rejectsAnUnknownId() {
+		User user = user("unknown");
+
+		assertThrows(IllegalStateException.class, () -> categoryDictionary.name(user, Integer.MAX_VALUE));
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@categories.test", "secret"));
+	}
+}
@@ -0,0 +1,108 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:analytics;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false",
+		"spendwise.analytics.enabled=true",
+		"spendwise.analytics.parallel-threshold=2"
+})
+class ExpenseAnalyticsEngineTests {
+
+	@Autowired
+	private ExpenseAnalyticsEngine analyticsEngine;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private ExpenseImportService importService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void answersTotalsMonthsAndCountsFromTheLoadedHistory() {
+		User user = user("reports");
+		add(user, "Food", "10.00", LocalDate.of(2024, 1, 5));
+		add(user, "Fuel", "20.00", LocalDate.of(2024, 1, 31));
+		add(user, "Food", "5.50", LocalDate.of(2024, 3, 1));
+		add(user, "Food", "99.00", LocalDate.of(2023, 12, 31));
+
+		ExpenseAnalyticsEngine.Totals year = analyticsEngine.totals(user, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+		assertEquals(3_550, year.totalCents());
+		assertEquals(3, year.count());
+		assertEquals(Map.of("Food", 1_550L, "Fuel", 2_000L), year.categoryCents());
+		assertEquals(13_450, analyticsEngine.totals(user, null, null).totalCents());
+		long[] months = analyticsEngine.monthlyTotals(user, 2024);
+		assertEquals(3_000, months[1]);
+		assertEquals(0, months[2]);
+		assertEquals(550, months[3]);
+		assertEquals(2, analyticsEngine.count(user, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31)));
+	}
+
+	@Test
+	void keepsALoadedHistoryInStepWithNewExpenses() {
+		User user = user("step");
+		add(user, "Food", "10.00", LocalDate.of(2024, 5, 10));
+		assertEquals(1_000, analyticsEngine.totals(user, null, null).totalCents());
+
+		add(user, "Travel", "2.00", LocalDate.of(2024, 5, 1));
+		add(user, "Food", "3.00", LocalDate.of(2024, 5, 20));
+
+		ExpenseAnalyticsEngine.Totals totals = analyticsEngine.totals(user, null, null);
+		assertEquals(1_500, totals.totalCents());
+		assertEquals(3, totals.count());
+		assertEquals(200L, totals.categoryCents().get("Travel"));
+	}
+
+	@Test
+	void reloadsAfterAnImport() throws Exception {
+		User user = user("import");
+		add(user, "Food", "1.00", LocalDate.of(2024, 2, 1));
+		assertEquals(100, analyticsEngine.totals(user, null, null).totalCents());
+
+		String csv = "title,amount,category,date\nRent,500.00,Home,2024-02-01\n";
+		importService.importCsv(user, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(50_100, analyticsEngine.totals(user, null, null).totalCents());
+	}
+
+	@Test
+	void aUserWithoutExpensesHasEmptyReports() {
+		User user = user("empty");
+
+		ExpenseAnalyticsEngine.Totals totals = analyticsEngine.totals(user, null, null);
+		assertEquals(0, totals.totalCents());
+		assertEquals(0, totals.count());
+		assertEquals(Map.of(), totals.categoryCents());
+		assertArrayEquals(new long[13], analyticsEngine.monthlyTotals(user, 2024));
+		assertEquals(0, analyticsEngine.count(user, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+	}
+
+	private void add(User user, String category, String amount, LocalDate date) {
+		Expense expense = new Expense(category + " expense", Money.parse(amount), null, date, user);
+		expense.setCategoryName(category);
+		expenseService.addExpense(user, expense);
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@analytics.test", "secret"));
+	}
+}
@@ -0,0 +1,122 @@
+package com.spendwise.spendwise.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseArchiveFileTests {
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	void readsBackEverySegmentItWrote() throws IOException {
+		Path file = directory.resolve("user-1.archive");
+		List<ExpenseArchiveFile.Row> first = List.of(row(1, 100, "Food", "Bread"), row(2, 101, "Fuel", "Diesel, 40l"));
+		List<ExpenseArchiveFile.Row> second = List.of(row(3, 102, "Food", "Crème brûlée"));
+
+		long firstEnd = ExpenseArchiveFile.append(file, 0, first);
+		long secondEnd = ExpenseArchiveFile.append(file, firstEnd, second);
+
+		assertEquals(secondEnd, Files.size(file));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ExpenseArchiveFile.Segment segment = ExpenseArchiveFile.readSegment(channel, 0);
+			assertEquals(2, segment.count());
+			assertEquals(100, segment.oldestDay());
+			assertEquals(101, segment.newestDay());
+			assertEquals(first, list(segment.rows()));
+			assertEquals(second, list(ExpenseArchiveFile.readSegment(channel, firstEnd).rows()));
+		}
+	}
+
+	@Test
+	void overwritesWhatAnUncommittedRunLeftBehind() throws IOException {
+		Path file = directory.resolve("user-2.archive");
+		long committed = ExpenseArchiveFile.append(file, 0, List.of(row(1, 100, "Food", "Kept")));
+		ExpenseArchiveFile.append(file, committed, List.of(row(2, 101, "Food", "Rolled back with a long title")));
+
+		long end = ExpenseArchiveFile.append(file, committed, List.of(row(3, 102, "Food", "Retried")));
+
+		assertEquals(end, Files.size(file));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			assertEquals(List.of(row(3, 102, "Food", "Retried")), list(ExpenseArchiveFile.readSegment(channel, committed).rows()));
+		}
+	}
+
+	@Test
+	void rejectsASegmentWhoseBlockNoLongerMatchesItsChecksum() throws IOException {
+		Path file = directory.resolve("user-3.archive");
+		long end = ExpenseArchiveFile.append(file, 0, List.of(row(1, 100, "Food", "Bread"), row(2, 100, "Food", "Milk")));
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer last = ByteBuffer.allocate(1);
+			channel.read(last, end - 1);
+			last.put(0, (byte) ~last.get(0)).rewind();
+			channel.write(last, end - 1);
+
+			IOException e = assertThrows(IOException.class, () -> ExpenseArchiveFile.readSegment(channel, 0));
+			assertTrue(e.getMessage().startsWith("Checksum mismatch"), e.getMessage());
+			// An offset that is not a segment start is refused too
+			assertThrows(IOException.class, () -> ExpenseArchiveFile.readSegment(channel, 4));
+		}
+	}
+
+	@Test
+	void mergesOverlappingSegmentsIntoDayAndIdOrder() throws IOException {
+		Path file = directory.resolve("user-4.archive");
+		// Runs archive oldest first, but an expense back-dated after a run lands in a later, overlapping segment
+		List<ExpenseArchiveFile.Row> first = List.of(row(10, 100, "Food", "a"), row(12, 102, "Food", "b"),
+				row(11, 104, "Food", "c"));
+		List<ExpenseArchiveFile.Row> second = List.of(row(30, 101, "Food", "d"), row(5, 104, "Food", "e"),
+				row(31, 105, "Food", "f"));
+		List<ExpenseArchiveFile.Row> third = List.of(row(40, 200, "Food", "g"));
+		long secondStart = ExpenseArchiveFile.append(file, 0, first);
+		long thirdStart = ExpenseArchiveFile.append(file, secondStart, second);
+		ExpenseArchiveFile.append(file, thirdStart, third);
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			Iterator<ExpenseArchiveFile.Row> rows = ExpenseArchiveFile.sortedRows(channel, List.of(
+					new ExpenseArchiveFile.SegmentStart(0, 100),
+					new ExpenseArchiveFile.SegmentStart(secondStart, 101),
+					new ExpenseArchiveFile.SegmentStart(thirdStart, 200)));
+
+			assertEquals(List.of(10L, 30L, 12L, 5L, 11L, 31L, 40L), list(rows).stream().map(ExpenseArchiveFile.Row::id).toList());
+		}
+	}
+
+	@Test
+	void failsTheMergeWhenASegmentCannotBeRead() throws IOException {
+		Path file = directory.resolve("user-5.archive");
+		long end = ExpenseArchiveFile.append(file, 0, List.of(row(1, 100, "Food", "a")));
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			Iterator<ExpenseArchiveFile.Row> rows = ExpenseArchiveFile.sortedRows(channel, List.of(
+					new ExpenseArchiveFile.SegmentStart(0, 100), new ExpenseArchiveFile.SegmentStart(end, 100)));
+
+			assertThrows(UncheckedIOException.class, rows::hasNext);
+		}
+	}
+
+	private static ExpenseArchiveFile.Row row(long id, int epochDay, String category, String title) {
+		return new ExpenseArchiveFile.Row(id, epochDay, id * 100, category, title);
+	}
+
+	private static List<ExpenseArchiveFile.Row> list(Iterator<ExpenseArchiveFile.Row> rows) {
+		List<ExpenseArchiveFile.Row> list = new ArrayList<>();
+		rows.forEachRemaining(list::add);
+		return list;
+	}
+}
@@ -0,0 +1,228 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.BudgetView;
+import com.spendwise.spendwise.dto.ExpenseView;
+import com.spendwise.spendwise.dto.TimeSeries;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.repository.TimeBucket;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:archive;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false",
+		"spendwise.archive.directory=./target/archive-tests"
+})
+class ExpenseArchiveServiceTests {
+
+	private static final LocalDate FIRST_DAY = LocalDate.of(2023, 1, 1);
+	private static final LocalDate ARCHIVED_BEFORE = LocalDate.of(2023, 3, 15);
+	private static final Comparator<ExpenseView> OLDEST_FIRST = Comparator.comparing(ExpenseView::date)
+			.thenComparing(ExpenseView::id);
+
+	@Autowired
+	private ExpenseArchiveService archiveService;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	@Autowired
+	private ExpenseExportService exportService;
+
+	@Autowired
+	private BudgetStatusCalculator budgetStatusCalculator;
+
+	@Autowired
+	private ExpenseTimeSeriesService timeSeriesService;
+
+	@Autowired
+	private ExpenseRollupService rollupService;
+
+	@Autowired
+	private ExpenseSearchService searchService;
+
+	@Autowired
+	private SpendingInsightsService insightsService;
+
+	@Autowired
+	private CategoryDictionary categoryDictionary;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void pagesRunFromTheTableIntoTheArchiveOnceEach() {
+		User user = user("pages");
+		List<ExpenseView> expenses = history(user);
+		archive(user);
+
+		assertEquals(newestFirst(expenses), page(user, 7, null));
+		assertEquals(newestFirst(expenses.stream().filter(e -> e.category().equals("Food")).toList()),
+				page(user, 4, "Food"));
+	}
+
+	@Test
+	void fullListingsAreOldestFirstWithOrWithoutAnArchive() {
+		User user = user("listing");
+		List<ExpenseView> expenses = history(user);
+		List<ExpenseView> oldestFirst = expenses.stream().sorted(OLDEST_FIRST).toList();
+
+		// Nothing archived yet, so the table rows are returned as read
+		assertEquals(oldestFirst, archiveService.merge(user, expenseRepository.findViewsByUser(user), null, null));
+		archive(user);
+		assertEquals(oldestFirst, archiveService.merge(user, expenseRepository.findViewsByUser(user), null, null));
+	}
+
+	@Test
+	void exportWritesEveryExpenseOnceOldestFirst() throws Exception {
+		User user = user("export");
+		List<ExpenseView> expenses = history(user);
+		archive(user);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long exported = exportService.export(user, ExpenseExportService.Format.CSV, out);
+
+		List<Long> ids = out.toString(StandardCharsets.UTF_8).lines().skip(1)
+				.map(line -> Long.parseLong(line.substring(0, line.indexOf(',')))).toList();
+		assertEquals(expenses.size(), exported);
+		assertEquals(ids(expenses.stream().sorted(OLDEST_FIRST).toList()), ids);
+	}
+
+	@Test
+	void sumsCountArchivedExpensesOnce() {
+		User user = user("sums");
+		List<ExpenseView> expenses = history(user);
+		archive(user);
+		long total = expenses.stream().mapToLong(e -> e.amount().cents()).sum();
+		LocalDate lastDay = expenses.stream().map(ExpenseView::date).max(Comparator.naturalOrder()).orElseThrow();
+
+		long[] spent = budgetStatusCalculator.calculateSpent(user, List.of(new BudgetView(1L, null, null,
+				Money.ofCents(1), "custom", FIRST_DAY, lastDay)));
+		assertEquals(total, spent[0]);
+		TimeSeries weeks = timeSeriesService.series(user, TimeBucket.WEEK, FIRST_DAY, lastDay, false, 0, false);
+		assertEquals(total, weeks.points().stream().mapToLong(point -> point.total().cents()).sum());
+		TimeSeries months = timeSeriesService.series(user, TimeBucket.MONTH, FIRST_DAY, lastDay, false, 0, false);
+		assertEquals(total, months.points().stream().mapToLong(point -> point.total().cents()).sum());
+		assertTrue(rollupService.verify(user).isConsistent());
+	}
+
+	@Test
+	void aSumIsReadAgainWhenAnArchivalCommitsDuringIt() {
+		User user = user("retry");
+		history(user);
+		AtomicInteger reads = new AtomicInteger();
+
+		long count = archiveService.readConsistently(user, () -> {
+			long hot = expenseRepository.findViewsByUser(user).size();
+			if (reads.incrementAndGet() == 1) {
+				// Moves expenses after the table was read, so this read would count them twice
+				archiveService.archive(user, ARCHIVED_BEFORE, 5);
+			}
+			return hot + archiveService.views(user, null, null).size();
+		});
+
+		assertEquals(2, reads.get());
+		assertEquals(41, count);
+	}
+
+	@Test
+	void searchAndInsightsKeepArchivedExpenses() {
+		User user = user("search");
+		List<ExpenseView> expenses = history(user);
+		List<ExpenseView> groceries = expenses.stream().filter(e -> e.title().startsWith("Groceries")).toList();
+		// Loaded from the table alone, then dropped by the archival runs
+		assertEquals(groceries.size(), searchService.search(user, "groceries", null, null, null, 100).size());
+
+		archive(user);
+
+		List<ExpenseView> found = searchService.search(user, "groceries", null, null, null, 100);
+		assertEquals(newestFirst(groceries), found);
+		assertEquals("Groceries 0", found.get(found.size() - 1).title());
+		Expense late = add(user, "Groceries extra", "Food", 1_000, LocalDate.of(2023, 6, 1));
+		assertEquals(groceries.size(), insightsService.score(user, late).sampleSize());
+	}
+
+	// Forty expenses three days apart, alternating categories, plus one added back-dated among them
+	private List<ExpenseView> history(User user) {
+		List<ExpenseView> expenses = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			boolean food = i % 2 == 0;
+			expenses.add(view(add(user, (food ? "Groceries " : "Taxi ") + i, food ? "Food" : "Fuel", (i + 1) * 100L,
+					FIRST_DAY.plusDays(i * 3L))));
+		}
+		expenses.add(view(add(user, "Groceries late", "Food", 4_200, FIRST_DAY.plusDays(10))));
+		return expenses;
+	}
+
+	// Archives in small runs, so the archive has several segments
+	private void archive(User user) {
+		int moved;
+		do {
+			moved = archiveService.archive(user, ARCHIVED_BEFORE, 5);
+		} while (moved > 0);
+		assertTrue(expenseRepository.findViewsByUser(user).size() < 41);
+	}
+
+	// Walks every page as ExpenseController does
+	private List<ExpenseView> page(User user, int pageSize, String category) {
+		Integer categoryId = category == null ? null : categoryDictionary.findId(user, category);
+		List<ExpenseView> all = new ArrayList<>();
+		ExpenseView last = null;
+		while (true) {
+			List<ExpenseView> page = last == null
+					? expenseRepository.findPage(user, categoryId, null, null, Limit.of(pageSize))
+					: expenseRepository.findPageAfter(user, last.date(), last.id(), categoryId, null, null, Limit.of(pageSize));
+			page = archiveService.mergePage(user, page, pageSize, last == null ? null : last.date(),
+					last == null ? null : last.id(), category, null, null);
+			all.addAll(page);
+			if (page.size() < pageSize) {
+				return all;
+			}
+			last = page.get(page.size() - 1);
+		}
+	}
+
+	private Expense add(User user, String title, String category, long cents, LocalDate date) {
+		Expense expense = new Expense(title, Money.ofCents(cents), null, date, user);
+		expense.setCategoryName(category);
+		return expenseService.addExpense(user, expense);
+	}
+
+	private static ExpenseView view(Expense expense) {
+		return new ExpenseView(expense.getId(), expense.getTitle(), expense.getAmount(), expense.getCategory().getName(),
+				expense.getDate());
+	}
+
+	private static List<ExpenseView> newestFirst(List<ExpenseView> expenses) {
+		return expenses.stream().sorted(OLDEST_FIRST.reversed()).toList();
+	}
+
+	private static List<Long> ids(List<ExpenseView> expenses) {
+		return expenses.stream().map(ExpenseView::id).toList();
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@archive.test", "secret"));
+	}
+}
@@ -0,0 +1,88 @@
+package com.spendwise.spendwise.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ExpenseColumnsTests {
+
+	@Test
+	void answersRangesByDay() {
+		ExpenseColumns columns = columns(new long[][]{{1, 10, 100, 7}, {2, 10, 200, 8}, {3, 12, 400, 7}, {4, 15, 800, 9}});
+
+		assertEquals(0, columns.lowerBound(9));
+		assertEquals(0, columns.lowerBound(10));
+		assertEquals(2, columns.lowerBound(11));
+		assertEquals(4, columns.lowerBound(16));
+		assertEquals(700, columns.sum(columns.lowerBound(10), columns.lowerBound(13)));
+		assertEquals(0, columns.sum(2, 2));
+		long[] byCategory = columns.sumByCategory(0, columns.size(), Integer.MAX_VALUE);
+		assertEquals(7, columns.categoryId(0));
+		assertArrayEquals(new long[]{500, 200, 800}, byCategory);
+	}
+
+	@Test
+	void splitsLargeRangesWithoutChangingTheSums() {
+		ExpenseColumns.Builder builder = new ExpenseColumns.Builder();
+		for (int i = 0; i < 10_000; i++) {
+			builder.add(i, i / 10, i, i % 5);
+		}
+		ExpenseColumns columns = builder.build();
+
+		assertArrayEquals(columns.sumByCategory(17, 9_983, Integer.MAX_VALUE), columns.sumByCategory(17, 9_983, 100));
+	}
+
+	@Test
+	void insertsAnExpenseInDayAndIdOrderAndLeavesEarlierSnapshotsAlone() {
+		ExpenseColumns columns = columns(new long[][]{{1, 10, 100, 7}, {5, 12, 400, 7}});
+
+		ExpenseColumns inserted = columns.withExpense(3, 12, 50, 8);
+
+		assertEquals(2, columns.size());
+		assertEquals(500, columns.sum(0, columns.size()));
+		assertEquals(3, inserted.size());
+		assertEquals(1, inserted.lowerBound(11));
+		assertEquals(50, inserted.sum(1, 2));
+		assertArrayEquals(new long[]{500, 50}, inserted.sumByCategory(0, 3, Integer.MAX_VALUE));
+	}
+
+	@Test
+	void appendsAnExpenseThatSortsLastWithoutDisturbingTheSnapshotItExtends() {
+		ExpenseColumns columns = columns(new long[][]{{1, 10, 100, 7}});
+
+		ExpenseColumns appended = columns.withExpense(2, 20, 300, 7);
+
+		assertEquals(1, columns.size());
+		assertEquals(100, columns.sum(0, columns.size()));
+		assertEquals(400, appended.sum(0, appended.size()));
+		assertEquals(1, appended.lowerBound(11));
+	}
+
+	@Test
+	void ignoresAnExpenseItAlreadyHolds() {
+		ExpenseColumns columns = columns(new long[][]{{1, 10, 100, 7}, {2, 10, 200, 7}});
+
+		assertSame(columns, columns.withExpense(2, 10, 200, 7));
+	}
+
+	@Test
+	void anEmptyHistorySumsToNothing() {
+		ExpenseColumns columns = new ExpenseColumns.Builder().build();
+
+		assertEquals(0, columns.size());
+		assertEquals(0, columns.lowerBound(100));
+		assertArrayEquals(new long[0], columns.sumByCategory(0, 0, 1));
+		assertEquals(1, columns.withExpense(1, 5, 10, 3).size());
+	}
+
+	// Rows of {id, epochDay, cents, categoryId} in (day, id) order
+	private static ExpenseColumns columns(long[][] rows) {
+		ExpenseColumns.Builder builder = new ExpenseColumns.Builder();
+		for (long[] row : rows) {
+			builder.add(row[0], (int) row[1], row[2], (int) row[3]);
+		}
+		return builder.build();
+	}
+}
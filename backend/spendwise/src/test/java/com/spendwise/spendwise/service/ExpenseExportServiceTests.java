@@ -0,0 +1,120 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.h2.tools.DeleteDbFiles;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exports a generated history of {@value #ROWS} expenses, the oldest two
+ * years of them archived. The surefire "export-heap" execution runs this
+ * class under a heap far smaller than the materialized list of entities
+ * would need, so it only passes if the export really streams, archive
+ * included.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:file:" + ExpenseExportServiceTests.DIRECTORY + "/" + ExpenseExportServiceTests.DATABASE,
+		// Dropped with its files after the tests instead, see deleteDatabase
+		"spring.jpa.hibernate.ddl-auto=create",
+		"spring.jpa.show-sql=false",
+		"spendwise.archive.directory=" + ExpenseExportServiceTests.DIRECTORY + "/archive"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ExpenseExportServiceTests {
+
+	static final String DIRECTORY = "./target/export-test";
+	static final String DATABASE = "spendwise";
+	private static final int ROWS = 1_000_000;
+	private static final LocalDate ARCHIVED_BEFORE = LocalDate.of(2017, 1, 1);
+
+	@Autowired
+	private ExpenseExportService exportService;
+
+	@Autowired
+	private ExpenseArchiveService archiveService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private User user;
+
+	@BeforeAll
+	void generateExpenses() {
+		user = userRepository.save(new User("export", "export@test.local", "secret"));
+		jdbcTemplate.update("INSERT INTO categories (user_id, name) SELECT ?, 'category-' || X FROM SYSTEM_RANGE(0, 11)",
+				user.getId());
+		jdbcTemplate.update(
+				"INSERT INTO expenses (id, title, amount_cents, category_id, date, user_id) "
+						+ "SELECT NEXT VALUE FOR expenses_seq, 'Expense, #' || X, MOD(X, 1000) * 100 + 25, "
+						+ "(SELECT c.id FROM categories c WHERE c.user_id = ? AND c.name = 'category-' || MOD(X, 12)), "
+						+ "DATEADD(DAY, MOD(X, 3650), DATE '2015-01-01'), ? FROM SYSTEM_RANGE(1, ?)",
+				user.getId(), user.getId(), ROWS);
+		long archived = 0;
+		for (int moved; (moved = archiveService.archive(user, ARCHIVED_BEFORE, 10_000)) > 0; ) {
+			archived += moved;
+		}
+		assertTrue(archived > ROWS / 10, "archived " + archived);
+	}
+
+	// Closing or dropping a million rows from a shutdown hook under this heap outlasts the 30 seconds surefire gives a fork to exit
+	@AfterAll
+	void deleteDatabase() {
+		jdbcTemplate.execute("SHUTDOWN IMMEDIATELY");
+		DeleteDbFiles.execute(DIRECTORY, DATABASE, true);
+	}
+
+	@Test
+	void exportsCsvWithoutMaterializingHistory() throws Exception {
+		LineCountingOutputStream out = new LineCountingOutputStream();
+
+		long exported = exportService.export(user, ExpenseExportService.Format.CSV, out);
+
+		assertEquals(ROWS, exported);
+		assertEquals(ROWS + 1, out.lines); // header row
+	}
+
+	@Test
+	void exportsNdjsonWithoutMaterializingHistory() throws Exception {
+		LineCountingOutputStream out = new LineCountingOutputStream();
+
+		long exported = exportService.export(user, ExpenseExportService.Format.NDJSON, out);
+
+		assertEquals(ROWS, exported);
+		assertEquals(ROWS, out.lines);
+	}
+
+	private static class LineCountingOutputStream extends OutputStream {
+		long lines;
+
+		@Override
+		public void write(int b) {
+			if (b == '\n') {
+				lines++;
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				if (b[i] == '\n') {
+					lines++;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.ImportResult;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:imports;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class ExpenseImportServiceTests {
+
+	@Autowired
+	private ExpenseImportService importService;
+
+	@Autowired
+	private ExpenseRollupService rollupService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void reportsOverlongFieldsPerRowAndImportsTheRest() throws Exception {
+		User user = userRepository.save(new User("import", "import@imports.test", "secret"));
+		String csv = "title,amount,category,date\n"
+				+ "Coffee,3.50,Food,2024-05-01\n"
+				+ "x".repeat(256) + ",1.00,Food,2024-05-02\n"
+				+ "Taxi,12.00," + "c".repeat(256) + ",2024-05-03\n"
+				+ "\"Bread, rye\",2.25,Food,2024-05-04\n";
+
+		ImportResult result = importService.importCsv(user, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(4, result.getReceived());
+		assertEquals(2, result.getImported());
+		assertEquals(2, result.getFailed());
+		assertEquals(2, result.getErrors().get(0).row());
+		assertTrue(result.getErrors().get(0).message().startsWith("title is longer than 255"));
+		assertEquals(3, result.getErrors().get(1).row());
+		assertTrue(result.getErrors().get(1).message().startsWith("category is longer than 255"));
+		assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM expenses WHERE user_id = ?", Integer.class, user.getId()));
+		assertTrue(rollupService.verify(user).isConsistent());
+	}
+
+	@Test
+	void reportsInvalidJsonRows() throws Exception {
+		User user = userRepository.save(new User("json", "json@imports.test", "secret"));
+		String json = "[{\"title\":\"Coffee\",\"amount\":\"3.50\",\"category\":\"Food\",\"date\":\"2024-05-01\"},"
+				+ "{\"title\":\"Bad amount\",\"amount\":\"three\",\"category\":\"Food\",\"date\":\"2024-05-01\"},"
+				+ "{\"title\":\"Bad date\",\"amount\":\"1\",\"category\":\"Food\",\"date\":\"05/01/2024\"},"
+				+ "{\"amount\":\"1\",\"category\":\"Food\",\"date\":\"2024-05-01\"}]";
+
+		ImportResult result = importService.importJson(user, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(1, result.getImported());
+		assertEquals(3, result.getFailed());
+		assertTrue(result.getErrors().get(0).message().startsWith("amount is not a number"));
+		assertTrue(result.getErrors().get(1).message().startsWith("date must be yyyy-MM-dd"));
+		assertEquals("title is required", result.getErrors().get(2).message());
+	}
+}
@@ -0,0 +1,151 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.RollupVerification;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.ExpenseRollup;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRollupRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:rollups;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class ExpenseRollupServiceTests {
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private ExpenseRollupService rollupService;
+
+	@Autowired
+	private ExpenseRollupRepository rollupRepository;
+
+	@Autowired
+	private CategoryDictionary categoryDictionary;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void recordsEachExpenseInItsBucket() {
+		User user = user("record");
+		add(user, "Food", "12.50", LocalDate.of(2024, 3, 1));
+		add(user, "Food", "7.25", LocalDate.of(2024, 3, 31));
+		add(user, "Fuel", "40.00", LocalDate.of(2024, 4, 2));
+
+		List<ExpenseRollup> march = rollupRepository.findByUserAndYearAndMonth(user, 2024, 3);
+		assertEquals(1, march.size());
+		assertEquals(1975, march.get(0).getTotalCents());
+		assertEquals(2, march.get(0).getExpenseCount());
+		assertTrue(rollupService.verify(user).isConsistent());
+	}
+
+	@Test
+	void verifyReportsDriftAndRebuildRepairsIt() {
+		User user = user("drift");
+		add(user, "Food", "10.00", LocalDate.of(2024, 1, 5));
+		add(user, "Fuel", "20.00", LocalDate.of(2024, 2, 5));
+		jdbcTemplate.update("UPDATE expense_rollups SET total_cents = total_cents + 1 WHERE user_id = ? AND period_month = 1",
+				user.getId());
+		jdbcTemplate.update("DELETE FROM expense_rollups WHERE user_id = ? AND period_month = 2", user.getId());
+		jdbcTemplate.update("INSERT INTO expense_rollups (user_id, period_year, period_month, category_id, total_cents, expense_count)"
+				+ " VALUES (?, 2023, 12, ?, 500, 1)", user.getId(), categoryDictionary.resolve(user, "Food").getId());
+
+		RollupVerification drifted = rollupService.verify(user);
+		assertFalse(drifted.isConsistent());
+		assertEquals(3, drifted.getMismatches().size());
+		assertTrue(drifted.getMismatches().stream().anyMatch(m -> m.contains("missing rollup")));
+		assertTrue(drifted.getMismatches().stream().anyMatch(m -> m.contains("rollup has no matching expenses")));
+
+		assertEquals(2, rollupService.rebuild(user));
+		assertTrue(rollupService.verify(user).isConsistent());
+	}
+
+	@Test
+	void concurrentFirstExpensesOfABucketAreAllCounted() throws Exception {
+		User user = user("race");
+		Category food = categoryDictionary.resolve(user, "Food");
+		int writers = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try {
+			for (int month = 1; month <= 6; month++) {
+				LocalDate date = LocalDate.of(2025, month, 10);
+				CountDownLatch start = new CountDownLatch(1);
+				List<Future<?>> futures = new ArrayList<>();
+				for (int i = 0; i < writers; i++) {
+					futures.add(executor.submit(() -> {
+						start.await();
+						return expenseService.addExpense(user, new Expense("Lunch", Money.ofCents(100), food, date, user));
+					}));
+				}
+				start.countDown();
+				for (Future<?> future : futures) {
+					future.get();
+				}
+
+				List<ExpenseRollup> bucket = rollupRepository.findByUserAndYearAndMonth(user, 2025, month);
+				assertEquals(1, bucket.size());
+				assertEquals(writers, bucket.get(0).getExpenseCount());
+				assertEquals(writers * 100L, bucket.get(0).getTotalCents());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertTrue(rollupService.verify(user).isConsistent());
+	}
+
+	@Test
+	void emptyBucketLeftByARolledBackExpenseIsIgnored() {
+		User user = user("rollback");
+		Category food = categoryDictionary.resolve(user, "Food");
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.executeWithoutResult(status -> {
+			expenseService.addExpense(user, new Expense("Refunded", Money.ofCents(999), food, LocalDate.of(2024, 6, 1), user));
+			status.setRollbackOnly();
+		});
+
+		List<ExpenseRollup> bucket = rollupRepository.findByUserAndYearAndMonth(user, 2024, 6);
+		assertEquals(1, bucket.size());
+		assertEquals(0, bucket.get(0).getExpenseCount());
+		assertTrue(rollupService.verify(user).isConsistent());
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@rollups.test", "secret"));
+	}
+
+	private void add(User user, String category, String amount, LocalDate date) {
+		Expense expense = new Expense(category + " expense", Money.parse(amount), null, date, user);
+		expense.setCategoryName(category);
+		expenseService.addExpense(user, expense);
+	}
+}
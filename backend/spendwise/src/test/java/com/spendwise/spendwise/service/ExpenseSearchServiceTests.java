@@ -0,0 +1,103 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.ExpenseView;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:search;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class ExpenseSearchServiceTests {
+
+	private static final LocalDate DAY = LocalDate.of(2025, 6, 1);
+
+	@Autowired
+	private ExpenseSearchService searchService;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private ExpenseImportService importService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void queriesMatchWholeWordsAndATypedPrefix() {
+		User user = user("query");
+		add(user, "Coffee beans", DAY);
+		add(user, "Coffee with Sam", DAY.plusDays(1));
+		add(user, "Cola", DAY.plusDays(2));
+
+		assertEquals(List.of("Cola", "Coffee with Sam", "Coffee beans"), titles(searchService.search(user, "co", null, null, null, 10)));
+		// A trailing separator makes the last word whole
+		assertTrue(searchService.search(user, "co ", null, null, null, 10).isEmpty());
+		assertEquals(List.of("Coffee beans"), titles(searchService.search(user, "COFFEE bea", null, null, null, 10)));
+		assertEquals(List.of("Coffee with Sam"), titles(searchService.search(user, "coffee", null, DAY.plusDays(1), null, 10)));
+		assertEquals(List.of("coffee", "cola"), searchService.suggest(user, "Co", 10));
+		assertTrue(searchService.search(user, "?!", null, null, null, 10).isEmpty());
+	}
+
+	@Test
+	void aCommittedExpenseIsFoundWithoutARebuild() {
+		User user = user("committed");
+		add(user, "Groceries", DAY);
+		assertEquals(1, searchService.search(user, "groceries", null, null, null, 10).size());
+
+		add(user, "Groceries again", DAY.plusDays(1));
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.executeWithoutResult(status -> {
+			add(user, "Groceries rolled back", DAY.plusDays(2));
+			status.setRollbackOnly();
+		});
+
+		assertEquals(List.of("Groceries again", "Groceries"), titles(searchService.search(user, "groceries", null, null, null, 10)));
+	}
+
+	@Test
+	void anImportIsFoundOnceTheIndexIsRebuilt() throws Exception {
+		User user = user("imported");
+		add(user, "Taxi", DAY);
+		assertEquals(1, searchService.search(user, "taxi", null, null, null, 10).size());
+
+		String csv = "title,amount,category,date\nTaxi home,20.00,Travel,2025-06-02\nTaxi out,15.00,Travel,2025-06-03\n";
+		importService.importCsv(user, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals(List.of("Taxi out", "Taxi home", "Taxi"), titles(searchService.search(user, "taxi", null, null, null, 10)));
+	}
+
+	private void add(User user, String title, LocalDate date) {
+		Expense expense = new Expense(title, Money.ofCents(500), null, date, user);
+		expense.setCategoryName("Misc");
+		expenseService.addExpense(user, expense);
+	}
+
+	private static List<String> titles(List<ExpenseView> expenses) {
+		return expenses.stream().map(ExpenseView::title).toList();
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@search.test", "secret"));
+	}
+}
@@ -0,0 +1,119 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.TimeSeries;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.TimeBucket;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:timeseries;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class ExpenseTimeSeriesServiceTests {
+
+	@Autowired
+	private ExpenseTimeSeriesService timeSeriesService;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void snapsBothEndsOfTheRangeToWholeBuckets() {
+		User user = user("align");
+		// Wednesday 2024-05-01 is in the week starting Monday 2024-04-29
+		add(user, "Food", "1.00", LocalDate.of(2024, 4, 29));
+		add(user, "Food", "2.00", LocalDate.of(2024, 5, 1));
+		add(user, "Food", "4.00", LocalDate.of(2024, 5, 14));
+		add(user, "Food", "8.00", LocalDate.of(2024, 5, 19));
+		add(user, "Food", "16.00", LocalDate.of(2024, 5, 20));
+
+		TimeSeries series = timeSeriesService.series(user, TimeBucket.WEEK, LocalDate.of(2024, 5, 1),
+				LocalDate.of(2024, 5, 14), false, 0, false);
+
+		assertEquals(LocalDate.of(2024, 4, 29), series.startDate());
+		assertEquals(LocalDate.of(2024, 5, 19), series.endDate());
+		assertEquals(List.of(LocalDate.of(2024, 4, 29), LocalDate.of(2024, 5, 6), LocalDate.of(2024, 5, 13)),
+				series.points().stream().map(TimeSeries.Point::start).toList());
+		assertEquals(List.of(300L, 0L, 1200L), cents(series));
+		assertEquals(List.of(2L, 0L, 2L), series.points().stream().map(TimeSeries.Point::expenseCount).toList());
+	}
+
+	@Test
+	void movingAverageAndDeltasLookBeforeTheFirstBucket() {
+		User user = user("window");
+		add(user, "Food", "10.00", LocalDate.of(2024, 1, 15));
+		add(user, "Food", "20.00", LocalDate.of(2024, 2, 15));
+		add(user, "Fuel", "30.00", LocalDate.of(2024, 3, 15));
+		add(user, "Food", "15.00", LocalDate.of(2024, 3, 20));
+
+		TimeSeries series = timeSeriesService.series(user, TimeBucket.MONTH, LocalDate.of(2024, 2, 1),
+				LocalDate.of(2024, 4, 30), true, 3, true);
+
+		assertEquals(List.of(2000L, 4500L, 0L), cents(series));
+		TimeSeries.Point february = series.points().get(0);
+		assertEquals(Money.ofCents(1000), february.movingAverage());
+		assertEquals(Money.ofCents(1000), february.delta());
+		assertEquals(100.0, february.deltaPercent());
+		TimeSeries.Point march = series.points().get(1);
+		assertEquals(Money.ofCents(2500), march.movingAverage());
+		assertEquals(Money.ofCents(2500), march.delta());
+		assertEquals(125.0, march.deltaPercent());
+		assertEquals(Money.ofCents(3000), march.categoryTotals().get("Fuel"));
+		assertEquals(Money.ofCents(1500), march.categoryTotals().get("Food"));
+		TimeSeries.Point april = series.points().get(2);
+		assertEquals(Money.ofCents(2167), april.movingAverage());
+		assertEquals(Money.ofCents(-4500), april.delta());
+		assertEquals(-100.0, april.deltaPercent());
+	}
+
+	@Test
+	void deltaPercentIsAbsentAfterAnEmptyBucket() {
+		User user = user("empty");
+		add(user, "Food", "5.00", LocalDate.of(2024, 7, 3));
+
+		TimeSeries series = timeSeriesService.series(user, TimeBucket.DAY, LocalDate.of(2024, 7, 3),
+				LocalDate.of(2024, 7, 3), false, 0, true);
+
+		assertEquals(Money.ofCents(500), series.points().get(0).delta());
+		assertNull(series.points().get(0).deltaPercent());
+	}
+
+	@Test
+	void rejectsBackwardsAndOversizedRanges() {
+		User user = user("invalid");
+		assertThrows(IllegalArgumentException.class, () -> timeSeriesService.series(user, TimeBucket.DAY,
+				LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1), false, 0, false));
+		assertThrows(IllegalArgumentException.class, () -> timeSeriesService.series(user, TimeBucket.DAY,
+				LocalDate.of(2000, 1, 1), LocalDate.of(2024, 1, 1), false, 0, false));
+	}
+
+	private static List<Long> cents(TimeSeries series) {
+		return series.points().stream().map(point -> point.total().cents()).toList();
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@timeseries.test", "secret"));
+	}
+
+	private void add(User user, String category, String amount, LocalDate date) {
+		Expense expense = new Expense(category + " expense", Money.parse(amount), null, date, user);
+		expense.setCategoryName(category);
+		expenseService.addExpense(user, expense);
+	}
+}
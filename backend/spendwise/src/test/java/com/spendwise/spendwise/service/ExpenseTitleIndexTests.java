@@ -0,0 +1,83 @@
+package com.spendwise.spendwise.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseTitleIndexTests {
+
+	private static final int ANY_DAY_FROM = Integer.MIN_VALUE;
+	private static final int ANY_DAY_TO = Integer.MAX_VALUE;
+
+	@Test
+	void tokensAreLowerCasedRunsOfLettersAndDigits() {
+		assertEquals(List.of("coffee", "bagel", "2x", "café"), ExpenseTitleIndex.tokenize("Coffee & Bagel, 2x!  Café"));
+		assertEquals(List.of("tea", "tea"), ExpenseTitleIndex.tokenize("tea-TEA"));
+		assertTrue(ExpenseTitleIndex.tokenize(" -- ").isEmpty());
+		assertTrue(ExpenseTitleIndex.tokenize(null).isEmpty());
+	}
+
+	@Test
+	void everyWordMustMatchAndTheLastMayBeAPrefix() {
+		ExpenseTitleIndex index = index();
+
+		assertEquals(List.of(4L, 1L), ids(index.search(List.of("coffee"), null, null, ANY_DAY_FROM, ANY_DAY_TO, 10)));
+		assertEquals(List.of(4L), ids(index.search(List.of("coffee", "bagel"), null, null, ANY_DAY_FROM, ANY_DAY_TO, 10)));
+		assertEquals(List.of(4L, 2L, 1L), ids(index.search(List.of(), "co", null, ANY_DAY_FROM, ANY_DAY_TO, 10)));
+		assertEquals(List.of(4L), ids(index.search(List.of("coffee"), "ba", null, ANY_DAY_FROM, ANY_DAY_TO, 10)));
+		// A prefix is not matched inside a word
+		assertTrue(index.search(List.of(), "offee", null, ANY_DAY_FROM, ANY_DAY_TO, 10).isEmpty());
+		assertTrue(index.search(List.of("coffee", "rent"), null, null, ANY_DAY_FROM, ANY_DAY_TO, 10).isEmpty());
+	}
+
+	@Test
+	void hitsAreFilteredAndNewestFirst() {
+		ExpenseTitleIndex index = index();
+
+		assertEquals(List.of(4L, 2L, 1L), ids(index.search(List.of(), "c", null, ANY_DAY_FROM, ANY_DAY_TO, 10)));
+		assertEquals(List.of(4L, 2L), ids(index.search(List.of(), "c", null, ANY_DAY_FROM, ANY_DAY_TO, 2)));
+		assertEquals(List.of(2L, 1L), ids(index.search(List.of(), "c", null, 10, 11, 10)));
+		assertEquals(List.of(4L, 1L), ids(index.search(List.of(), "c", 7, ANY_DAY_FROM, ANY_DAY_TO, 10)));
+		// Same day, so the later id comes first
+		assertEquals(List.of(5L, 3L), ids(index.search(List.of("rent"), null, null, ANY_DAY_FROM, ANY_DAY_TO, 10)));
+	}
+
+	@Test
+	void anExpenseIsIndexedOnce() {
+		ExpenseTitleIndex index = index();
+
+		index.addIfAbsent(4, 12, 7, "Coffee and bagel");
+		index.addIfAbsent(6, 13, 7, "Coffee again");
+
+		assertEquals(6, index.size());
+		assertEquals(List.of(6L, 4L, 1L), ids(index.search(List.of("coffee"), null, null, ANY_DAY_FROM, ANY_DAY_TO, 10)));
+	}
+
+	@Test
+	void suggestionsAreTheMostUsedTermsWithThePrefix() {
+		ExpenseTitleIndex index = index();
+
+		assertEquals(List.of("coffee", "cinema", "cola"), index.suggest("c", 10));
+		assertEquals(List.of("coffee"), index.suggest("c", 1));
+		assertEquals(List.of("coffee", "cola"), index.suggest("co", 10));
+		assertTrue(index.suggest("x", 10).isEmpty());
+	}
+
+	// Coffee twice in category 7, cinema and cola in category 8, rent twice on day 12
+	private static ExpenseTitleIndex index() {
+		ExpenseTitleIndex index = new ExpenseTitleIndex();
+		index.add(1, 10, 7, "Coffee");
+		index.add(2, 11, 8, "Cinema, cola");
+		index.add(3, 12, 8, "Rent");
+		index.add(4, 12, 7, "Coffee and bagel");
+		index.add(5, 12, 8, "Rent (late)");
+		return index;
+	}
+
+	private static List<Long> ids(List<ExpenseTitleIndex.Hit> hits) {
+		return hits.stream().map(ExpenseTitleIndex.Hit::id).toList();
+	}
+}
@@ -0,0 +1,131 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:writebatches;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false",
+		"spendwise.write-batching.enabled=true",
+		// Three writes make a batch long before the linger runs out
+		"spendwise.write-batching.max-batch-size=3",
+		"spendwise.write-batching.linger=5s"
+})
+class ExpenseWriteBatcherTests {
+
+	private static final LocalDate DAY = LocalDate.of(2025, 4, 1);
+
+	@Autowired
+	private ExpenseWriteBatcher writeBatcher;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	@Autowired
+	private ExpenseRollupService rollupService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void savesABatchInOneGo() throws Exception {
+		User user = user("batch");
+
+		List<CompletableFuture<Expense>> writes = List.of(
+				writeBatcher.add(user, expense("Coffee", 350)),
+				writeBatcher.add(user, expense("Lunch", 1_200)),
+				writeBatcher.add(user, expense("Dinner", 2_500)));
+
+		for (CompletableFuture<Expense> write : writes) {
+			assertNotNull(write.get(10, TimeUnit.SECONDS).getId());
+		}
+		assertEquals(3, expenseRepository.findViewsByUser(user).size());
+		assertTrue(rollupService.verify(user).isConsistent());
+	}
+
+	@Test
+	void aBadExpenseFailsAloneAndTheRestOfItsBatchIsSavedOnce() throws Exception {
+		User user = user("fallback");
+		User other = user("neighbour");
+
+		CompletableFuture<Expense> good = writeBatcher.add(user, expense("Coffee", 350));
+		CompletableFuture<Expense> bad = writeBatcher.add(user, expense("x".repeat(Expense.TITLE_MAX_LENGTH + 1), 100));
+		CompletableFuture<Expense> neighbour = writeBatcher.add(other, expense("Lunch", 1_200));
+
+		ExecutionException failure = assertThrows(ExecutionException.class, () -> bad.get(10, TimeUnit.SECONDS));
+		assertTrue(failure.getCause() instanceof RuntimeException, failure.getCause().toString());
+		Expense saved = good.get(10, TimeUnit.SECONDS);
+		assertEquals("Coffee", expenseRepository.findById(saved.getId()).orElseThrow().getTitle());
+		assertNotNull(neighbour.get(10, TimeUnit.SECONDS).getId());
+		assertEquals(1, expenseRepository.findViewsByUser(user).size());
+		assertEquals(1, expenseRepository.findViewsByUser(other).size());
+		assertTrue(rollupService.verify(user).isConsistent());
+		assertTrue(rollupService.verify(other).isConsistent());
+	}
+
+	@Test
+	void aFullQueueRefusesWritesWithARetryHint() throws Exception {
+		User user = user("full");
+		CountDownLatch writing = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExpenseService slow = mock(ExpenseService.class);
+		when(slow.addExpenses(anyList())).thenAnswer(invocation -> {
+			writing.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return invocation.getArgument(0);
+		});
+		// One write at a time and room for one more
+		ExpenseWriteBatcher batcher = new ExpenseWriteBatcher(slow, new SimpleMeterRegistry(), true, 1,
+				Duration.ZERO, 1, Duration.ofMillis(50), 3);
+		try {
+			CompletableFuture<Expense> first = batcher.add(user, expense("First", 100));
+			assertTrue(writing.await(10, TimeUnit.SECONDS));
+			CompletableFuture<Expense> queued = batcher.add(user, expense("Queued", 100));
+
+			ExpenseWriteCapacityExceededException refused = assertThrows(ExpenseWriteCapacityExceededException.class,
+					() -> batcher.add(user, expense("Refused", 100)));
+			assertEquals(3, refused.getRetryAfterSeconds());
+
+			release.countDown();
+			assertEquals("First", first.get(10, TimeUnit.SECONDS).getTitle());
+			assertEquals("Queued", queued.get(10, TimeUnit.SECONDS).getTitle());
+		} finally {
+			release.countDown();
+			batcher.shutdown();
+		}
+	}
+
+	private static Expense expense(String title, long cents) {
+		Expense expense = new Expense(title, Money.ofCents(cents), null, DAY, null);
+		expense.setCategoryName("Food");
+		return expense;
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@writebatches.test", "secret"));
+	}
+}
@@ -0,0 +1,152 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.ExpenseView;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.RecurringExpense;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.CategoryRepository;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.repository.RecurringExpenseRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.sharding.ShardDirectory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:recurring;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false",
+		// Catch-ups take several batches of few rules
+		"spendwise.recurring.batch-size=2",
+		"spendwise.recurring.max-expenses-per-batch=5"
+})
+class RecurringExpenseSchedulerTests {
+
+	private static final LocalDate TODAY = LocalDate.of(2025, 3, 10);
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private ShardDirectory shardDirectory;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private RecurringExpenseRepository recurringExpenseRepository;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@AfterEach
+	void removeRules() {
+		recurringExpenseRepository.deleteAll();
+	}
+
+	@Autowired
+	private RecurringExpenseScheduler scheduler;
+
+	@Autowired
+	private ExpenseRollupService rollupService;
+
+	@Test
+	void catchesUpOverSeveralBatchesAndAddsNothingTwice() {
+		User user = user("catchup");
+		Category home = categoryRepository.save(new Category(user, "Home"));
+		// Twenty-one occurrences against five expenses per batch
+		RecurringExpense daily = recurringExpenseRepository.save(new RecurringExpense(user, "Coffee",
+				Money.ofCents(350), home, RecurringExpense.Frequency.DAILY, 1, TODAY.minusDays(20), null));
+		RecurringExpense ended = recurringExpenseRepository.save(new RecurringExpense(user, "Gym",
+				Money.ofCents(2_000), home, RecurringExpense.Frequency.WEEKLY, 1, TODAY.minusWeeks(8), TODAY.minusWeeks(6)));
+		RecurringExpense future = recurringExpenseRepository.save(new RecurringExpense(user, "Rent",
+				Money.ofCents(10_000), home, RecurringExpense.Frequency.MONTHLY, 1, TODAY.plusDays(1), null));
+
+		assertEquals(24, scheduler.materializeDue(TODAY));
+
+		List<ExpenseView> expenses = expenseRepository.findViewsByUser(user);
+		assertEquals(24, expenses.size());
+		List<LocalDate> coffees = expenses.stream().filter(e -> e.title().equals("Coffee")).map(ExpenseView::date).toList();
+		assertEquals(TODAY.minusDays(20).datesUntil(TODAY.plusDays(1)).toList(), coffees);
+		assertEquals(TODAY.plusDays(1), nextDue(daily));
+		assertNull(nextDue(ended));
+		assertEquals(TODAY.plusDays(1), nextDue(future));
+		assertTrue(rollupService.verify(user).isConsistent());
+
+		assertEquals(0, scheduler.materializeDue(TODAY));
+		assertEquals(24, expenseRepository.findViewsByUser(user).size());
+		// The next day adds only that day's occurrence
+		assertEquals(2, scheduler.materializeDue(TODAY.plusDays(1)));
+	}
+
+	@Test
+	void aRuleThatCannotBeAddedHoldsUpOnlyItself() {
+		User user = user("failing");
+		RecurringExpense rent = rule(user, "Rent");
+		RecurringExpense broken = rule(user, "Broken");
+		RecurringExpense gym = rule(user, "Gym");
+		ExpenseService failing = mock(ExpenseService.class);
+		when(failing.addExpenses(anyList())).thenAnswer(invocation -> {
+			List<Expense> expenses = invocation.getArgument(0);
+			if (expenses.stream().anyMatch(expense -> expense.getTitle().equals("Broken"))) {
+				throw new IllegalStateException("Broken");
+			}
+			return expenseService.addExpenses(expenses);
+		});
+		// Rent and Broken share the first batch
+		RecurringExpenseScheduler scheduler = new RecurringExpenseScheduler(recurringExpenseRepository, failing,
+				shardDirectory, transactionManager, new SimpleMeterRegistry(), false, Duration.ofMinutes(1), 2, 5);
+		try {
+			assertEquals(6, scheduler.materializeDue(TODAY));
+		} finally {
+			scheduler.shutdown();
+		}
+
+		assertEquals(TODAY.plusMonths(1), nextDue(rent));
+		assertEquals(TODAY.minusMonths(2), nextDue(broken));
+		assertEquals(TODAY.plusMonths(1), nextDue(gym));
+		assertEquals(List.of("Gym", "Gym", "Gym", "Rent", "Rent", "Rent"), titles(user));
+	}
+
+	// A monthly rule with three occurrences due by TODAY
+	private RecurringExpense rule(User user, String title) {
+		Category category = categoryRepository.save(new Category(user, title));
+		return recurringExpenseRepository.save(new RecurringExpense(user, title, Money.ofCents(1_000), category,
+				RecurringExpense.Frequency.MONTHLY, 1, TODAY.minusMonths(2), null));
+	}
+
+	private LocalDate nextDue(RecurringExpense rule) {
+		return recurringExpenseRepository.findById(rule.getId()).orElseThrow().getNextDueDate();
+	}
+
+	private List<String> titles(User user) {
+		return expenseRepository.findViewsByUser(user).stream().map(ExpenseView::title).sorted().toList();
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@recurring.test", "secret"));
+	}
+}
@@ -0,0 +1,179 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.RangeReport;
+import com.spendwise.spendwise.dto.ReportJobStatus;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.ExpenseRollupRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:reports;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class ReportJobServiceTests {
+
+	private static final YearMonth JANUARY = YearMonth.of(2024, 1);
+	private static final YearMonth APRIL = YearMonth.of(2024, 4);
+
+	@Autowired
+	private ReportJobService reportJobService;
+
+	@Autowired
+	private ExpenseRollupRepository rollupRepository;
+
+	@Autowired
+	private CategoryDictionary categoryDictionary;
+
+	@Autowired
+	private UserDataVersions dataVersions;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void reportsMonthsAndCategoriesAndReusesTheJobUntilTheDataChanges() throws Exception {
+		User user = user("months");
+		add(user, "Food", "10.00", LocalDate.of(2024, 1, 5));
+		add(user, "Fuel", "20.00", LocalDate.of(2024, 1, 20));
+		add(user, "Food", "5.00", LocalDate.of(2024, 3, 1));
+		add(user, "Food", "99.00", LocalDate.of(2023, 12, 31));
+		add(user, "Food", "7.00", LocalDate.of(2024, 5, 1));
+
+		ReportJobService.Job job = reportJobService.submit(user, JANUARY, APRIL, ReportJobService.Grouping.MONTH, true);
+		RangeReport report = job.result().get(10, TimeUnit.SECONDS);
+
+		assertEquals(3_500, report.total().cents());
+		assertEquals(3, report.expenseCount());
+		assertEquals(List.of("2024-01", "2024-03"), report.buckets().stream().map(RangeReport.Bucket::period).toList());
+		assertEquals(Map.of("Food", Money.ofCents(1_000), "Fuel", Money.ofCents(2_000)),
+				report.buckets().get(0).categoryTotals());
+		assertEquals("DONE", job.status().status());
+		assertSame(job, reportJobService.submit(user, JANUARY, APRIL, ReportJobService.Grouping.MONTH, true));
+
+		RangeReport years = reportJobService.submit(user, JANUARY, APRIL, ReportJobService.Grouping.YEAR, false)
+				.result().get(10, TimeUnit.SECONDS);
+		assertEquals(1, years.buckets().size());
+		assertNull(years.buckets().get(0).categoryTotals());
+
+		add(user, "Fuel", "1.00", LocalDate.of(2024, 4, 30));
+		ReportJobService.Job fresh = reportJobService.submit(user, JANUARY, APRIL, ReportJobService.Grouping.MONTH, true);
+		assertNotEquals(job.id(), fresh.id());
+		assertEquals(3_600, fresh.result().get(10, TimeUnit.SECONDS).total().cents());
+	}
+
+	@Test
+	void aFailedJobReportsItsErrorAndIsNotReused() throws Exception {
+		User user = user("failed");
+		add(user, "Food", "10.00", LocalDate.of(2024, 2, 1));
+		ExpenseRollupRepository failingOnce = mock(ExpenseRollupRepository.class);
+		when(failingOnce.findByUserAndYearBetween(any(), anyInt(), anyInt()))
+				.thenThrow(new IllegalStateException("Rollups unavailable"))
+				.thenAnswer(invocation -> rollupRepository.findByUserAndYearBetween(user, 2024, 2024));
+		ReportJobService service = service(failingOnce, 2, 16);
+		try {
+			ReportJobService.Job failed = service.submit(user, JANUARY, APRIL, ReportJobService.Grouping.MONTH, false);
+			failed.result().handle((result, failure) -> null).get(10, TimeUnit.SECONDS);
+
+			ReportJobStatus status = failed.status();
+			assertEquals("FAILED", status.status());
+			assertEquals("Rollups unavailable", status.error());
+			assertNull(status.result());
+
+			ReportJobService.Job retried = service.submit(user, JANUARY, APRIL, ReportJobService.Grouping.MONTH, false);
+			assertNotEquals(failed.id(), retried.id());
+			assertEquals(1_000, retried.result().get(10, TimeUnit.SECONDS).total().cents());
+		} finally {
+			service.shutdown();
+		}
+	}
+
+	@Test
+	void aFullQueueRefusesJobsWithARetryHint() throws Exception {
+		User user = user("busy");
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExpenseRollupRepository slow = mock(ExpenseRollupRepository.class);
+		when(slow.findByUserAndYearBetween(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+			running.countDown();
+			release.await(10, TimeUnit.SECONDS);
+			return List.of();
+		});
+		// One worker and one queued job
+		ReportJobService service = service(slow, 1, 1);
+		try {
+			ReportJobService.Job first = service.submit(user, JANUARY, APRIL, ReportJobService.Grouping.MONTH, false);
+			assertTrue(running.await(10, TimeUnit.SECONDS));
+			ReportJobService.Job queued = service.submit(user, JANUARY, APRIL, ReportJobService.Grouping.YEAR, false);
+			assertEquals("PENDING", queued.status().status());
+
+			ReportCapacityExceededException refused = assertThrows(ReportCapacityExceededException.class,
+					() -> service.submit(user, JANUARY, JANUARY, ReportJobService.Grouping.MONTH, false));
+			assertEquals(7, refused.getRetryAfterSeconds());
+
+			release.countDown();
+			first.result().get(10, TimeUnit.SECONDS);
+			queued.result().get(10, TimeUnit.SECONDS);
+			assertEquals(0, service.submit(user, JANUARY, JANUARY, ReportJobService.Grouping.MONTH, false)
+					.result().get(10, TimeUnit.SECONDS).expenseCount());
+		} finally {
+			release.countDown();
+			service.shutdown();
+		}
+	}
+
+	@Test
+	void aJobIsOnlyFoundByItsOwner() throws Exception {
+		User owner = user("owner");
+		User other = user("other");
+		ReportJobService.Job job = reportJobService.submit(owner, JANUARY, APRIL, ReportJobService.Grouping.MONTH, false);
+		job.result().get(10, TimeUnit.SECONDS);
+
+		assertSame(job, reportJobService.find(owner, job.id()));
+		assertNull(reportJobService.find(other, job.id()));
+		assertNull(reportJobService.find(owner, "missing"));
+	}
+
+	private ReportJobService service(ExpenseRollupRepository repository, int threads, int queueCapacity) {
+		return new ReportJobService(repository, categoryDictionary, dataVersions, new SimpleMeterRegistry(),
+				threads, queueCapacity, 7, Duration.ofHours(1));
+	}
+
+	private void add(User user, String category, String amount, LocalDate date) {
+		Expense expense = new Expense(category + " expense", Money.parse(amount), null, date, user);
+		expense.setCategoryName(category);
+		expenseService.addExpense(user, expense);
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@reports.test", "secret"));
+	}
+}
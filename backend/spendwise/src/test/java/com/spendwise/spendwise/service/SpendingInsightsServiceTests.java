@@ -0,0 +1,133 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.dto.AnomalyScore;
+import com.spendwise.spendwise.dto.BudgetView;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:insights;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false",
+		"spendwise.insights.anomaly-threshold=3.0",
+		"spendwise.insights.min-samples=10"
+})
+class SpendingInsightsServiceTests {
+
+	private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+
+	@Autowired
+	private SpendingInsightsService insightsService;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private ExpenseImportService importService;
+
+	@Autowired
+	private CategoryDictionary categoryDictionary;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void flagsAnAmountFarOutsideTheCategorysHistory() {
+		User user = user("unusual");
+		for (int i = 0; i < 12; i++) {
+			add(user, "Food", 1_000 + (i % 4) * 100, FIRST_DAY.plusDays(i));
+		}
+
+		AnomalyScore usual = insightsService.score(user, add(user, "Food", 1_100, FIRST_DAY.plusDays(12)));
+		assertFalse(usual.unusual());
+		assertEquals(12, usual.sampleSize());
+
+		AnomalyScore unusual = insightsService.score(user, add(user, "Food", 50_000, FIRST_DAY.plusDays(13)));
+		assertTrue(unusual.unusual());
+		assertTrue(unusual.zScore() > 3, String.valueOf(unusual.zScore()));
+		assertEquals(13, unusual.sampleSize());
+		long typical = unusual.typicalAmount().cents();
+		assertTrue(typical > 1_000 && typical < 1_300, String.valueOf(typical));
+	}
+
+	@Test
+	void leavesAThinCategoryUnscored() {
+		User user = user("thin");
+		for (int i = 0; i < 12; i++) {
+			add(user, "Food", 1_000 + i, FIRST_DAY.plusDays(i));
+		}
+		add(user, "Travel", 20_000, FIRST_DAY);
+
+		AnomalyScore score = insightsService.score(user, add(user, "Travel", 900_000, FIRST_DAY.plusDays(1)));
+
+		assertFalse(score.unusual());
+		assertNull(score.zScore());
+		assertNull(score.typicalAmount());
+		assertEquals(1, score.sampleSize());
+	}
+
+	@Test
+	void scoresAgainstImportedHistory() throws Exception {
+		User user = user("imported");
+		add(user, "Food", 1_000, FIRST_DAY);
+		// Loads statistics that the import then replaces
+		assertEquals(1, insightsService.score(user, add(user, "Food", 1_000, FIRST_DAY)).sampleSize());
+
+		StringBuilder csv = new StringBuilder("title,amount,category,date\n");
+		for (int i = 0; i < 12; i++) {
+			csv.append("Lunch,").append(10 + i % 3).append(".00,Food,").append(FIRST_DAY.plusDays(i)).append('\n');
+		}
+		importService.importCsv(user, new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+		AnomalyScore score = insightsService.score(user, add(user, "Food", 40_000, FIRST_DAY.plusDays(20)));
+		assertEquals(14, score.sampleSize());
+		assertTrue(score.unusual());
+	}
+
+	@Test
+	void projectsTheRecentRateOverTheRestOfTheBudgetPeriod() {
+		User user = user("projection");
+		for (int i = 0; i < 120; i++) {
+			add(user, "Food", 1_000, FIRST_DAY.plusDays(i));
+		}
+		LocalDate today = FIRST_DAY.plusDays(119);
+		Integer food = categoryDictionary.findId(user, "Food");
+		BudgetView current = budget(food, today.minusDays(9), today.plusDays(10));
+		BudgetView past = budget(food, FIRST_DAY, FIRST_DAY.plusDays(29));
+		BudgetView unspent = budget(categoryDictionary.resolve(user, "Travel").getId(), today, today.plusDays(10));
+
+		// About 10.00 a day for the ten days left
+		long projected = insightsService.projectedCents(user, current, 10_000, today);
+		assertTrue(projected > 19_500 && projected < 20_500, String.valueOf(projected));
+		assertEquals(30_000, insightsService.projectedCents(user, past, 30_000, today));
+		assertEquals(0, insightsService.projectedCents(user, unspent, 0, today));
+	}
+
+	private static BudgetView budget(Integer categoryId, LocalDate start, LocalDate end) {
+		return new BudgetView(1L, categoryId, null, Money.ofCents(1), "custom", start, end);
+	}
+
+	private Expense add(User user, String category, long cents, LocalDate date) {
+		Expense expense = new Expense(category + " expense", Money.ofCents(cents), null, date, user);
+		expense.setCategoryName(category);
+		return expenseService.addExpense(user, expense);
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@insights.test", "secret"));
+	}
+}
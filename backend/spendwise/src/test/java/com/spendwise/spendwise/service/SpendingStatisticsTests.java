@@ -0,0 +1,94 @@
+package com.spendwise.spendwise.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpendingStatisticsTests {
+
+	private static final int FOOD = 1;
+	private static final int FUEL = 2;
+
+	@Test
+	void scoresAnAmountAgainstTheOtherExpensesInItsCategory() {
+		long[] others = {1_000, 1_200, 900, 1_100, 950, 1_050, 1_300, 800};
+		SpendingStatistics statistics = new SpendingStatistics(30);
+		for (long cents : others) {
+			statistics.add(FOOD, 100, cents);
+		}
+		statistics.add(FUEL, 100, 1);
+		statistics.add(FOOD, 101, 5_000);
+
+		SpendingStatistics.Score score = statistics.score(FOOD, 5_000, 5);
+
+		double[] logs = Arrays.stream(others).mapToDouble(Math::log1p).toArray();
+		double mean = Arrays.stream(logs).average().orElseThrow();
+		double variance = Arrays.stream(logs).map(x -> (x - mean) * (x - mean)).sum() / (logs.length - 1);
+		assertEquals((Math.log1p(5_000) - mean) / Math.sqrt(variance), score.z(), 1e-9);
+		assertEquals(Math.expm1(mean), score.typicalCents(), 1e-6);
+		assertEquals(others.length, score.sampleSize());
+	}
+
+	@Test
+	void declinesToScoreWithoutEnoughHistoryOrSpread() {
+		SpendingStatistics statistics = new SpendingStatistics(30);
+		for (int i = 0; i < 4; i++) {
+			statistics.add(FOOD, 100, 1_000);
+		}
+
+		SpendingStatistics.Score few = statistics.score(FOOD, 1_000, 5);
+		assertTrue(Double.isNaN(few.z()));
+		assertEquals(3, few.sampleSize());
+		assertEquals(0, statistics.score(FUEL, 1_000, 5).sampleSize());
+
+		statistics.add(FOOD, 100, 1_000);
+		statistics.add(FOOD, 100, 1_000);
+		SpendingStatistics.Score flat = statistics.score(FOOD, 1_000, 5);
+		assertTrue(Double.isNaN(flat.z()));
+		assertEquals(5, flat.sampleSize());
+	}
+
+	@Test
+	void tracksTheRecentDailyRatePerCategoryAndOverall() {
+		SpendingStatistics statistics = new SpendingStatistics(30);
+		for (int day = 0; day < 365; day++) {
+			statistics.add(FOOD, day, 1_000);
+			statistics.add(FUEL, day, 500);
+		}
+
+		// A steady rate r decays to r / (1 - e^(-1/30)) / 30 per day, within two percent of r
+		assertEquals(1_000, statistics.dailyRate(FOOD, 364), 20);
+		assertEquals(1_500, statistics.dailyRate(null, 364), 30);
+		assertEquals(statistics.dailyRate(FOOD, 364) * Math.exp(-1), statistics.dailyRate(FOOD, 394), 1e-6);
+		assertEquals(0, statistics.dailyRate(3, 364));
+		assertEquals(0, new SpendingStatistics(30).dailyRate(null, 364));
+	}
+
+	@Test
+	void aBackDatedExpenseCountsWithItsDecayedWeight() {
+		SpendingStatistics statistics = new SpendingStatistics(30);
+		statistics.add(FOOD, 130, 3_000);
+		double before = statistics.dailyRate(FOOD, 130);
+
+		statistics.add(FOOD, 100, 3_000);
+
+		assertEquals(before * (1 + Math.exp(-1)), statistics.dailyRate(FOOD, 130), 1e-9);
+	}
+
+	@Test
+	void anUpdateForAnExpenseTheLoadAlreadyReadIsSkipped() {
+		SpendingStatistics.Loader loader = new SpendingStatistics.Loader(30);
+		for (long id = 1; id <= 300; id++) {
+			loader.add(id, FOOD, 100, 1_000);
+		}
+		SpendingStatistics statistics = loader.build();
+
+		statistics.addIfAbsent(300, FOOD, 100, 1_000);
+		assertEquals(299, statistics.score(FOOD, 1_000, 1).sampleSize());
+		statistics.addIfAbsent(301, FOOD, 100, 1_000);
+		assertEquals(300, statistics.score(FOOD, 1_000, 1).sampleSize());
+	}
+}
@@ -0,0 +1,110 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.UserDataVersionRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:versions;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class UserDataVersionsTests {
+
+	@Autowired
+	private UserDataVersions dataVersions;
+
+	@Autowired
+	private UserDataVersionRepository versionRepository;
+
+	@Autowired
+	private ExpenseService expenseService;
+
+	@Autowired
+	private CategoryDictionary categoryDictionary;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	void everyInstanceDerivesTheSameTagFromTheDatabase() {
+		User user = user("shared");
+		String before = dataVersions.etag(user.getId());
+
+		expenseService.addExpense(user, new Expense("Lunch", Money.ofCents(900), food(user), LocalDate.of(2025, 3, 1), user));
+
+		String after = dataVersions.etag(user.getId());
+		assertNotEquals(before, after);
+		// A second node shares only the database
+		assertEquals(after, new UserDataVersions(versionRepository, transactionManager).etag(user.getId()));
+		assertEquals(after.substring(0, after.length() - 1) + "-2025-03-01\"", dataVersions.etag(user.getId(), "2025-03-01"));
+	}
+
+	@Test
+	void rolledBackWriteKeepsTheVersion() {
+		User user = user("rollback");
+		Category food = food(user);
+		expenseService.addExpense(user, new Expense("Kept", Money.ofCents(100), food, LocalDate.of(2025, 1, 1), user));
+		String committed = dataVersions.etag(user.getId());
+
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			expenseService.addExpense(user, new Expense("Dropped", Money.ofCents(100), food, LocalDate.of(2025, 1, 2), user));
+			status.setRollbackOnly();
+		});
+
+		assertEquals(committed, dataVersions.etag(user.getId()));
+	}
+
+	@Test
+	void concurrentFirstWritesAreAllCounted() throws Exception {
+		User user = user("race");
+		Category food = food(user);
+		int writers = 8;
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		try (ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+			for (int i = 0; i < writers; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return expenseService.addExpense(user, new Expense("Lunch", Money.ofCents(100), food, LocalDate.of(2025, 2, 1), user));
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		}
+
+		assertEquals(writers, versionRepository.findVersion(user.getId()).orElseThrow());
+	}
+
+	private Category food(User user) {
+		return categoryDictionary.resolve(user, "Food");
+	}
+
+	private User user(String name) {
+		return userRepository.save(new User(name, name + "@versions.test", "secret"));
+	}
+}
@@ -0,0 +1,76 @@
+package com.spendwise.spendwise.service;
+
+import com.spendwise.spendwise.config.CacheConfig;
+import com.spendwise.spendwise.dto.UserIdentity;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:identities;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false"
+})
+class UserIdentityCacheTests {
+
+	@Autowired
+	private UserIdentityCache userIdentityCache;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@MockitoSpyBean
+	private UserRepository userRepository;
+
+	@Test
+	void aKnownEmailIsLookedUpOnceAndCounted() {
+		User user = userRepository.save(new User("hit", "hit@identities.test", "secret"));
+		double hits = gets("hit");
+		double misses = gets("miss");
+
+		UserIdentity first = userIdentityCache.find(user.getEmail());
+		UserIdentity second = userIdentityCache.find(user.getEmail());
+
+		assertEquals(new UserIdentity(user.getId(), user.getEmail()), first);
+		assertEquals(first, second);
+		verify(userRepository, times(1)).findByEmail(user.getEmail());
+		assertEquals(hits + 1, gets("hit"));
+		assertEquals(misses + 1, gets("miss"));
+	}
+
+	@Test
+	void anEvictedEmailIsLookedUpAgain() {
+		User user = userRepository.save(new User("evicted", "evicted@identities.test", "secret"));
+		userIdentityCache.find(user.getEmail());
+
+		userIdentityCache.evict(user.getEmail());
+		userRepository.delete(user);
+
+		assertNull(userIdentityCache.find(user.getEmail()));
+		verify(userRepository, times(2)).findByEmail(user.getEmail());
+	}
+
+	@Test
+	void anUnknownEmailIsNotCached() {
+		assertNull(userIdentityCache.find("later@identities.test"));
+
+		User user = userRepository.save(new User("later", "later@identities.test", "secret"));
+
+		assertEquals(user.getId(), userIdentityCache.find(user.getEmail()).id());
+		verify(userRepository, times(2)).findByEmail(user.getEmail());
+	}
+
+	private double gets(String result) {
+		return meterRegistry.get("cache.gets").tag("cache", CacheConfig.USER_IDENTITIES).tag("result", result)
+				.functionCounter().count();
+	}
+}
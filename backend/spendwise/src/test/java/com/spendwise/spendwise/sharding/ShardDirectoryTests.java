@@ -0,0 +1,99 @@
+package com.spendwise.spendwise.sharding;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:directory0;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false",
+		"spendwise.security.bcrypt-strength=4",
+		"spendwise.sharding.shards=2",
+		"spendwise.sharding.url-template=jdbc:h2:mem:directory{shard};DB_CLOSE_DELAY=-1"
+})
+class ShardDirectoryTests {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ShardDirectory shardDirectory;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void aRegisteredUserIsServedFromTheirHomeShard() throws Exception {
+		assertEquals(200, post("/api/auth/register", credentials("first@directory.test")).statusCode());
+		assertEquals(200, post("/api/auth/register", credentials("second@directory.test")).statusCode());
+		// Consecutive ids, so one user lives on each shard
+		long first = userId("first@directory.test");
+		String email = first % 2 == 1 ? "first@directory.test" : "second@directory.test";
+		long remote = userId(email);
+
+		assertEquals(1, shardDirectory.shardOf(remote));
+		assertEquals(1, jdbcTemplate.queryForObject("SELECT shard FROM user_shards WHERE user_id = ?", Integer.class, remote));
+		assertEquals(1, count(1, "SELECT COUNT(*) FROM users WHERE id = ?", remote));
+
+		HttpResponse<String> login = post("/api/auth/login", credentials(email));
+		String token = login.body().replaceAll(".*\"token\":\"([^\"]+)\".*", "$1");
+		HttpRequest add = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/expenses?email=" + email))
+				.header("Authorization", "Bearer " + token)
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(
+						"{\"title\":\"Lunch\",\"amount\":12.50,\"category\":\"Food\",\"date\":\"2025-05-01\"}"))
+				.build();
+		HttpResponse<String> added = client.send(add, HttpResponse.BodyHandlers.ofString());
+		assertTrue(added.body().contains("\"success\":true"), added.body());
+
+		assertEquals(1, count(1, "SELECT COUNT(*) FROM expenses WHERE user_id = ?", remote));
+		assertEquals(0, count(0, "SELECT COUNT(*) FROM expenses WHERE user_id = ?", remote));
+		assertEquals(1, count(1, "SELECT COUNT(*) FROM categories WHERE user_id = ?", remote));
+	}
+
+	@Test
+	void aDuplicateRegistrationLeavesNoSecondAccountOrAssignment() throws Exception {
+		assertEquals(200, post("/api/auth/register", credentials("twice@directory.test")).statusCode());
+		long id = userId("twice@directory.test");
+
+		HttpResponse<String> again = post("/api/auth/register", credentials("twice@directory.test"));
+
+		assertTrue(again.body().contains("User already exists"), again.body());
+		assertEquals(1, count(0, "SELECT COUNT(*) FROM users WHERE email = 'twice@directory.test'"));
+		assertEquals(1, count(0, "SELECT COUNT(*) FROM user_shards WHERE user_id = ?", id));
+		assertEquals(id % 2 == 1 ? 1 : 0, count(1, "SELECT COUNT(*) FROM users WHERE email = 'twice@directory.test'"));
+	}
+
+	private long userId(String email) {
+		return ShardContext.call(0, () -> jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email));
+	}
+
+	private int count(int shard, String sql, Object... args) {
+		return ShardContext.call(shard, () -> jdbcTemplate.queryForObject(sql, Integer.class, args));
+	}
+
+	private static String credentials(String email) {
+		return "{\"email\":\"" + email + "\",\"password\":\"secret\"}";
+	}
+
+	private HttpResponse<String> post(String path, String body) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+		return client.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
@@ -0,0 +1,145 @@
+package com.spendwise.spendwise.sharding;
+
+import com.spendwise.spendwise.dto.BudgetView;
+import com.spendwise.spendwise.dto.ExpenseView;
+import com.spendwise.spendwise.entity.Budget;
+import com.spendwise.spendwise.entity.Category;
+import com.spendwise.spendwise.entity.Expense;
+import com.spendwise.spendwise.entity.Money;
+import com.spendwise.spendwise.entity.RecurringExpense;
+import com.spendwise.spendwise.entity.User;
+import com.spendwise.spendwise.repository.BudgetRepository;
+import com.spendwise.spendwise.repository.CategoryRepository;
+import com.spendwise.spendwise.repository.ExpenseRepository;
+import com.spendwise.spendwise.repository.RecurringExpenseRepository;
+import com.spendwise.spendwise.repository.UserRepository;
+import com.spendwise.spendwise.service.ExpenseRollupService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:rebalance0;DB_CLOSE_DELAY=-1",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spendwise.recurring.enabled=false",
+		"spendwise.sharding.shards=2",
+		"spendwise.sharding.url-template=jdbc:h2:mem:rebalance{shard};DB_CLOSE_DELAY=-1",
+		// Small pages, so expenses are copied over several transactions
+		"spendwise.sharding.rebalance-batch-size=2"
+})
+class ShardRebalancerTests {
+
+	private static final LocalDate DAY = LocalDate.of(2025, 2, 1);
+
+	@Autowired
+	private ShardRebalancer shardRebalancer;
+
+	@Autowired
+	private ShardDirectory shardDirectory;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private ExpenseRepository expenseRepository;
+
+	@Autowired
+	private BudgetRepository budgetRepository;
+
+	@Autowired
+	private RecurringExpenseRepository recurringExpenseRepository;
+
+	@Autowired
+	private ExpenseRollupService rollupService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void movesUsersFromBeforeShardingToTheirHomeShard() {
+		// Saved without a directory entry, as accounts were before sharding was turned on
+		User first = userRepository.save(new User("first", "first@rebalance.test", "secret"));
+		User second = userRepository.save(new User("second", "second@rebalance.test", "secret"));
+		User moving = first.getId() % 2 == 1 ? first : second;
+		User staying = moving == first ? second : first;
+		history(moving);
+		history(staying);
+		// Leftovers of an earlier run that stopped half way
+		ShardContext.run(1, () -> {
+			shardDirectory.copyAccount(moving);
+			categoryRepository.save(new Category(moving, "Stale"));
+		});
+
+		assertEquals(1, shardRebalancer.rebalance());
+
+		assertEquals(1, shardDirectory.shardOf(moving.getId()));
+		assertEquals(0, shardDirectory.shardOf(staying.getId()));
+		ShardContext.run(1, () -> {
+			List<ExpenseView> expenses = expenseRepository.findViewsByUser(moving);
+			assertEquals(List.of("Bus", "Coffee", "Lunch", "Rent", "Taxi"),
+					expenses.stream().map(ExpenseView::title).sorted().toList());
+			assertEquals(15_550, expenses.stream().mapToLong(e -> e.amount().cents()).sum());
+			assertEquals(List.of("Food", "Home", "Travel"),
+					categoryRepository.findByUser(moving).stream().map(Category::getName).sorted().toList());
+			List<BudgetView> budgets = budgetRepository.findViewsByUser(moving).stream()
+					.sorted(Comparator.comparing(BudgetView::amount)).toList();
+			assertEquals(2, budgets.size());
+			assertNull(budgets.get(0).category());
+			assertEquals("Food", budgets.get(1).category());
+			assertEquals("Home", recurringExpenseRepository.findByUser(moving).get(0).getCategoryName());
+			assertTrue(rollupService.verify(moving).isConsistent());
+		});
+		for (String table : List.of("expenses", "categories", "budgets", "recurring_expenses")) {
+			assertEquals(0, count(0, "SELECT COUNT(*) FROM " + table + " WHERE user_id = ?", moving.getId()), table);
+			assertEquals(0, count(1, "SELECT COUNT(*) FROM " + table + " WHERE user_id = ?", staying.getId()), table);
+		}
+		assertEquals(5, count(0, "SELECT COUNT(*) FROM expenses WHERE user_id = ?", staying.getId()));
+		assertEquals(1, count(0, "SELECT COUNT(*) FROM users WHERE id = ?", moving.getId()));
+		// Ids stay unique across shards, as the archive and caches key expenses by id alone
+		List<Long> ids = new ArrayList<>(ids(0));
+		ids.addAll(ids(1));
+		assertEquals(10, ids.stream().distinct().count());
+
+		assertEquals(0, shardRebalancer.rebalance());
+		assertEquals(5, count(1, "SELECT COUNT(*) FROM expenses WHERE user_id = ?", moving.getId()));
+	}
+
+	// Five expenses in three categories, two budgets and a recurring rule, all on shard 0
+	private void history(User user) {
+		Category food = categoryRepository.save(new Category(user, "Food"));
+		Category travel = categoryRepository.save(new Category(user, "Travel"));
+		Category home = categoryRepository.save(new Category(user, "Home"));
+		expenseRepository.saveAll(List.of(
+				new Expense("Coffee", Money.ofCents(350), food, DAY, user),
+				new Expense("Lunch", Money.ofCents(1_200), food, DAY.plusDays(1), user),
+				new Expense("Bus", Money.ofCents(250), travel, DAY.plusDays(1), user),
+				new Expense("Taxi", Money.ofCents(3_750), travel, DAY.plusMonths(1), user),
+				new Expense("Rent", Money.ofCents(10_000), home, DAY.plusMonths(1), user)));
+		budgetRepository.save(new Budget(user, null, Money.parse("500.00"), "monthly", DAY, DAY.plusDays(27)));
+		budgetRepository.save(new Budget(user, food, Money.parse("900.00"), "monthly", DAY, DAY.plusDays(27)));
+		recurringExpenseRepository.save(new RecurringExpense(user, "Rent", Money.ofCents(10_000), home,
+				RecurringExpense.Frequency.MONTHLY, 1, DAY, null));
+		rollupService.rebuild(user);
+	}
+
+	private List<Long> ids(int shard) {
+		return ShardContext.call(shard, () -> jdbcTemplate.queryForList("SELECT id FROM expenses", Long.class));
+	}
+
+	private int count(int shard, String sql, Object... args) {
+		return ShardContext.call(shard, () -> jdbcTemplate.queryForObject(sql, Integer.class, args));
+	}
+}
@@ -29,6 +29,7 @@ export class App {
   logout(): void {
     if (typeof window !== 'undefined') {
       localStorage.removeItem('email');
+      localStorage.removeItem('token');
     }
     this.router.navigate(['/login']);
   }
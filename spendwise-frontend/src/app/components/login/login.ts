@@ -56,6 +56,7 @@ export class Login {
         if (response.success) {
           console.log('✅ Login successful, storing email and navigating');
           localStorage.setItem('email', this.email);
+          localStorage.setItem('token', response.token);
           this.router.navigate(['/expenses']).then(success => {
             console.log('Navigation to expenses:', success);
           });
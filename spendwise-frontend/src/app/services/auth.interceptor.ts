@@ -0,0 +1,13 @@
+import { HttpInterceptorFn } from '@angular/common/http';
+
+// Attaches the session token issued at login to every API call
+export const authInterceptor: HttpInterceptorFn = (req, next) => {
+  if (typeof window === 'undefined' || !req.url.startsWith('/api/')) {
+    return next(req);
+  }
+  const token = localStorage.getItem('token');
+  if (!token) {
+    return next(req);
+  }
+  return next(req.clone({ setHeaders: { Authorization: `Bearer ${token}` } }));
+};